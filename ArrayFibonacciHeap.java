@@ -0,0 +1,733 @@
+import java.util.Arrays;
+
+/**
+ * ArrayFibonacciHeap
+ *
+ * A Fibonacci Heap over integers that keeps no node objects. Every node is a
+ * slot (an int handle) in parallel primitive arrays holding its key, rank, mark
+ * and the parent/child/next/prev links, so a node costs 25 bytes instead of a
+ * HeapNode object with eight fields. Slots of deleted nodes are recycled by
+ * later inserts.
+ *
+ * The algorithms are the same as in FibonacciHeap.
+ */
+public class ArrayFibonacciHeap {
+	public static final int NIL = -1;
+	protected static final int INITIAL_CAPACITY = 16;
+	protected static final int MAX_RANK = 64;
+
+	protected int[] keys;
+	protected int[] ranks; // the rank of a node, -1 for a free slot
+	protected boolean[] marks;
+	protected int[] parents;
+	protected int[] children;
+	protected int[] nexts; // for a free slot: the next free slot
+	protected int[] prevs;
+
+	protected int first = NIL;
+	protected int min = NIL;
+	protected int free = NIL; // head of the free slots list
+	protected int used; // slots [0, used) were handed out at least once
+	protected int size;
+	protected int trees;
+	protected int marked;
+	protected int[] rankTable; // scratch for consolidate
+
+	/**
+	 * public ArrayFibonacciHeap()
+	 *
+	 * Constructs an empty heap.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public ArrayFibonacciHeap() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * public ArrayFibonacciHeap(int capacity)
+	 *
+	 * Constructs an empty heap with room for capacity nodes before it has to grow.
+	 *
+	 * Time complexity:
+	 *
+	 * O(capacity)
+	 */
+	public ArrayFibonacciHeap(int capacity) {
+		allocate(Math.max(capacity, 1));
+	}
+
+	/**
+	 * protected void allocate(int capacity)
+	 *
+	 * (re)allocates the node arrays to the given capacity keeping their content
+	 *
+	 * Time complexity:
+	 *
+	 * O(capacity)
+	 */
+	protected void allocate(int capacity) {
+		if (keys == null) {
+			keys = new int[capacity];
+			ranks = new int[capacity];
+			marks = new boolean[capacity];
+			parents = new int[capacity];
+			children = new int[capacity];
+			nexts = new int[capacity];
+			prevs = new int[capacity];
+			return;
+		}
+		keys = Arrays.copyOf(keys, capacity);
+		ranks = Arrays.copyOf(ranks, capacity);
+		marks = Arrays.copyOf(marks, capacity);
+		parents = Arrays.copyOf(parents, capacity);
+		children = Arrays.copyOf(children, capacity);
+		nexts = Arrays.copyOf(nexts, capacity);
+		prevs = Arrays.copyOf(prevs, capacity);
+	}
+
+	/**
+	 * protected void ensureCapacity(int capacity)
+	 *
+	 * grows the arrays (by half at least) if they hold less than capacity slots
+	 *
+	 * Time complexity:
+	 *
+	 * Amort O(1) per slot
+	 */
+	protected void ensureCapacity(int capacity) {
+		if (capacity > keys.length) {
+			allocate(Math.max(capacity, keys.length + (keys.length >> 1) + 1));
+		}
+	}
+
+	/**
+	 * public boolean isEmpty()
+	 *
+	 * Returns true if and only if the heap is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public boolean isEmpty() {
+		return first == NIL;
+	}
+
+	/**
+	 * public int getKey(int node)
+	 *
+	 * returns the key of the node
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public int getKey(int node) {
+		checkNode(node);
+		return keys[node];
+	}
+
+	/**
+	 * public int getRank(int node)
+	 *
+	 * returns the rank of the node
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public int getRank(int node) {
+		checkNode(node);
+		return ranks[node];
+	}
+
+	/**
+	 * protected void checkNode(int node)
+	 *
+	 * throws IllegalArgumentException if node is not a live handle of this heap
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected void checkNode(int node) {
+		if (node < 0 || node >= used || ranks[node] < 0) {
+			throw new IllegalArgumentException("not a node of this heap: " + node);
+		}
+	}
+
+	/**
+	 * protected void connect2Nodes(int left, int right)
+	 *
+	 * Receives 2 nodes and connects them setting one to be the next of the other.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected void connect2Nodes(int left, int right) {
+		nexts[left] = right;
+		prevs[right] = left;
+	}
+
+	/**
+	 * public int insert(int key)
+	 *
+	 * Creates a node which contains the given key in a free slot (growing the
+	 * arrays if there is none) and inserts it into the heap.
+	 *
+	 * Returns the handle of the new node.
+	 *
+	 * Time complexity:
+	 *
+	 * Amort O(1)
+	 */
+	public int insert(int key) {
+		int node;
+		if (free != NIL) {// reuse a slot of a deleted node
+			node = free;
+			free = nexts[node];
+		} else {
+			ensureCapacity(used + 1);
+			node = used++;
+		}
+		keys[node] = key;
+		ranks[node] = 0;
+		marks[node] = false;
+		parents[node] = NIL;
+		children[node] = NIL;
+		size++;
+		insertNode(node);
+		return node;
+	}
+
+	/**
+	 * protected void insertNode(int node)
+	 *
+	 * the method receives a root of a tree and inserts it as is to the heap as the
+	 * first tree.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected void insertNode(int node) {
+		trees++;
+		if (isEmpty()) {
+			min = node;
+			connect2Nodes(node, node);
+		} else {
+			if (keys[min] > keys[node]) {
+				min = node;
+			}
+			int last = prevs[first];
+			connect2Nodes(node, first);
+			connect2Nodes(last, node);
+		}
+		first = node;
+	}
+
+	/**
+	 * protected void release(int node)
+	 *
+	 * returns the slot of a removed node to the free list
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected void release(int node) {
+		ranks[node] = -1;
+		nexts[node] = free;
+		free = node;
+	}
+
+	/**
+	 * public int findMin()
+	 *
+	 * Returns the handle of the node whose key is minimal, or NIL if the heap is
+	 * empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public int findMin() {
+		return min;
+	}
+
+	/**
+	 * public void deleteMin()
+	 *
+	 * Deletes the node containing the minimum key.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(log(n))
+	 */
+	public void deleteMin() {
+		if (isEmpty()) {
+			return;
+		}
+		int oldMin = min;
+		size--;
+		if (size == 0) {
+			release(oldMin);
+			first = NIL;
+			min = NIL;
+			trees = 0;
+			marked = 0;
+			return;
+		}
+		int child = children[oldMin];
+		if (first == oldMin) {
+			first = child != NIL ? child : nexts[oldMin];
+		}
+		if (child == NIL) {
+			connect2Nodes(prevs[oldMin], nexts[oldMin]);
+		} else {
+			int node = child;
+			do {// the children become roots
+				if (marks[node]) {
+					marked--;
+					marks[node] = false;
+				}
+				parents[node] = NIL;
+				node = nexts[node];
+			} while (node != child);
+			if (nexts[oldMin] == oldMin) {
+				first = child;
+			} else {
+				int last = prevs[child];
+				int nextMin = nexts[oldMin];
+				int prevMin = prevs[oldMin];
+				connect2Nodes(last, nextMin);
+				connect2Nodes(prevMin, child);
+			}
+		}
+		release(oldMin);
+		consolidate();
+	}
+
+	/**
+	 * protected void consolidate()
+	 *
+	 * links the roots until no two of them have the same rank, using a rank table
+	 * that is kept between calls.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(logn)
+	 */
+	protected void consolidate() {
+		if (rankTable == null) {
+			rankTable = new int[MAX_RANK];
+			Arrays.fill(rankTable, NIL);
+		}
+		int[] table = rankTable;
+		int maxRank = 0;
+		int node = first;
+		nexts[prevs[first]] = NIL; // so we know where to stop
+		while (node != NIL) {
+			int next = nexts[node];
+			int k = ranks[node];
+			while (table[k] != NIL) {
+				node = link(node, table[k]);
+				table[k] = NIL;
+				k++;
+			}
+			table[k] = node;
+			maxRank = Math.max(maxRank, k);
+			node = next;
+		}
+		first = NIL;
+		trees = 0;
+		for (int i = maxRank; i >= 0; i--) {// from the bigger to the smaller so the smallest is the first
+			if (table[i] != NIL) {
+				insertNode(table[i]);
+				table[i] = NIL;
+			}
+		}
+	}
+
+	/**
+	 * protected int link(int parent, int child)
+	 *
+	 * Receives 2 roots of trees and combines them to 1 big tree and sets the
+	 * smaller to be the parent of the other
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected int link(int parent, int child) {
+		if (keys[child] < keys[parent]) {
+			int temp = parent;
+			parent = child;
+			child = temp;
+		}
+		parents[child] = parent;
+		marks[child] = false;
+		int thisChild = children[parent];
+		if (thisChild == NIL) {
+			connect2Nodes(child, child);
+		} else {
+			connect2Nodes(prevs[thisChild], child);
+			connect2Nodes(child, thisChild);
+		}
+		children[parent] = child;
+		ranks[parent]++;
+		return parent;
+	}
+
+	/**
+	 * public int meld(ArrayFibonacciHeap heap2)
+	 *
+	 * Melds heap2 with the current heap. The nodes of heap2 are moved into the
+	 * arrays of this heap, heap2 becomes empty, and a handle h of heap2 becomes
+	 * the handle h + offset of this heap, where offset is the returned value.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1) if this heap is empty, otherwise O(the slots used by heap2)
+	 */
+	public int meld(ArrayFibonacciHeap heap2) {
+		if (heap2 == this) {
+			throw new IllegalArgumentException("cannot meld a heap with itself");
+		}
+		int offset;
+		if (used == 0) {// nothing to move, take over the arrays of heap2
+			offset = 0;
+			keys = heap2.keys;
+			ranks = heap2.ranks;
+			marks = heap2.marks;
+			parents = heap2.parents;
+			children = heap2.children;
+			nexts = heap2.nexts;
+			prevs = heap2.prevs;
+			first = heap2.first;
+			min = heap2.min;
+			free = heap2.free;
+			used = heap2.used;
+			size = heap2.size;
+			trees = heap2.trees;
+			marked = heap2.marked;
+			heap2.keys = null;
+			heap2.allocate(INITIAL_CAPACITY);
+		} else {
+			offset = used;
+			int count = heap2.used;
+			ensureCapacity(used + count);
+			System.arraycopy(heap2.keys, 0, keys, offset, count);
+			System.arraycopy(heap2.ranks, 0, ranks, offset, count);
+			System.arraycopy(heap2.marks, 0, marks, offset, count);
+			shift(heap2.parents, parents, offset, count);
+			shift(heap2.children, children, offset, count);
+			shift(heap2.nexts, nexts, offset, count);
+			shift(heap2.prevs, prevs, offset, count);
+			used += count;
+			for (int slot = heap2.free; slot != NIL; slot = heap2.nexts[slot]) {// the free slots of heap2 stay free
+				release(slot + offset);
+			}
+			if (!heap2.isEmpty()) {
+				int thatFirst = heap2.first + offset;
+				int thatMin = heap2.min + offset;
+				if (isEmpty()) {
+					first = thatFirst;
+					min = thatMin;
+				} else {
+					int thisLast = prevs[first];
+					int thatLast = prevs[thatFirst];
+					connect2Nodes(thisLast, thatFirst);
+					connect2Nodes(thatLast, first);
+					min = keys[min] < keys[thatMin] ? min : thatMin;
+				}
+				size += heap2.size;
+				trees += heap2.trees;
+				marked += heap2.marked;
+			}
+		}
+		heap2.first = NIL;
+		heap2.min = NIL;
+		heap2.free = NIL;
+		heap2.used = 0;
+		heap2.size = 0;
+		heap2.trees = 0;
+		heap2.marked = 0;
+		return offset;
+	}
+
+	/**
+	 * private static void shift(int[] from, int[] to, int offset, int count)
+	 *
+	 * copies count links from the start of from to offset in to, moving every
+	 * handle by offset
+	 *
+	 * Time complexity:
+	 *
+	 * O(count)
+	 */
+	private static void shift(int[] from, int[] to, int offset, int count) {
+		for (int i = 0; i < count; i++) {
+			int link = from[i];
+			to[offset + i] = link == NIL ? NIL : link + offset;
+		}
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of elements in the heap.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * public int[] countersRep()
+	 *
+	 * Return an array of counters. The i-th entry contains the number of trees of
+	 * order i in the heap. An empty heap returns an empty array.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 */
+	public int[] countersRep() {
+		if (isEmpty()) {
+			return new int[0];
+		}
+		int maxRank = 0;
+		int node = first;
+		do {
+			maxRank = Math.max(maxRank, ranks[node]);
+			node = nexts[node];
+		} while (node != first);
+		int[] res = new int[maxRank + 1];
+		do {
+			res[ranks[node]]++;
+			node = nexts[node];
+		} while (node != first);
+		return res;
+	}
+
+	/**
+	 * public void delete(int node)
+	 *
+	 * Deletes the node from the heap. The node is cut up to the root list (with
+	 * cascading cuts) and deleted as if it was the minimum, so it works for any
+	 * key.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(logn)
+	 */
+	public void delete(int node) {
+		checkNode(node);
+		if (node != min) {// force it to be the minimum, a key below the minimum may overflow
+			if (parents[node] != NIL) {
+				cascadingCuts(node, parents[node]);
+			}
+			min = node;
+		}
+		deleteMin();
+	}
+
+	/**
+	 * public void decreaseKey(int node, int delta)
+	 *
+	 * decreases the key of the node by a non-negative value delta, applying
+	 * cascading cuts if the heap order is broken.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(1)
+	 */
+	public void decreaseKey(int node, int delta) {
+		checkNode(node);
+		keys[node] -= delta;
+		if (keys[node] < keys[min]) {
+			min = node;
+		}
+		int parent = parents[node];
+		if (parent == NIL || keys[parent] < keys[node]) {
+			return;
+		}
+		cascadingCuts(node, parent);
+	}
+
+	/**
+	 * protected void cascadingCuts(int child, int parent)
+	 *
+	 * cuts the node from its parent and continues up while the parents are marked,
+	 * marking the first unmarked non-root parent.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(1)
+	 */
+	protected void cascadingCuts(int child, int parent) {
+		while (true) {
+			if (marks[child]) {
+				marked--;
+				marks[child] = false;
+			}
+			cut(child, parent);
+			insertNode(child);
+			if (parents[parent] == NIL) {
+				return;
+			}
+			if (!marks[parent]) {
+				marks[parent] = true;
+				marked++;
+				return;
+			}
+			child = parent;
+			parent = parents[parent];
+		}
+	}
+
+	/**
+	 * protected void cut(int child, int parent)
+	 *
+	 * disconnects the child from the parent.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected void cut(int child, int parent) {
+		parents[child] = NIL;
+		if (nexts[child] == child) {
+			children[parent] = NIL;
+		} else {
+			if (children[parent] == child) {
+				children[parent] = nexts[child];
+			}
+			connect2Nodes(prevs[child], nexts[child]);
+		}
+		ranks[parent]--;
+	}
+
+	/**
+	 * public int potential()
+	 *
+	 * returns #trees + 2*#marked
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public int potential() {
+		return trees + 2 * marked;
+	}
+
+	/**
+	 * public static int[] kMin(ArrayFibonacciHeap H, int k)
+	 *
+	 * returns the k smallest keys of H (fewer if H is smaller) in ascending order
+	 * without changing H. The candidates are kept in a binary heap of handles.
+	 *
+	 * Time complexity:
+	 *
+	 * O(k*deg(H)*log(k*deg(H))) for a heap that contains a single tree
+	 */
+	public static int[] kMin(ArrayFibonacciHeap H, int k) {
+		k = Math.min(k, H.size);
+		int[] res = new int[Math.max(k, 0)];
+		if (k <= 0) {
+			return res;
+		}
+		int[] candidates = new int[(int) Math.min(H.size, H.trees + (long) k * MAX_RANK)];
+		int count = 0;
+		int root = H.first;
+		do {
+			count = H.siftUp(candidates, count, root);
+			root = H.nexts[root];
+		} while (root != H.first);
+		for (int i = 0; i < k; i++) {
+			int node = candidates[0];
+			res[i] = H.keys[node];
+			count--;
+			H.siftDown(candidates, count, candidates[count]);
+			int child = H.children[node];
+			if (child != NIL) {
+				do {
+					count = H.siftUp(candidates, count, child);
+					child = H.nexts[child];
+				} while (child != H.children[node]);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * private int siftUp(int[] heap, int count, int node)
+	 *
+	 * adds node to the binary heap of handles heap[0, count) ordered by key and
+	 * returns the new count
+	 *
+	 * Time complexity:
+	 *
+	 * O(log count)
+	 */
+	private int siftUp(int[] heap, int count, int node) {
+		int i = count;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (keys[heap[parent]] <= keys[node]) {
+				break;
+			}
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = node;
+		return count + 1;
+	}
+
+	/**
+	 * private void siftDown(int[] heap, int count, int node)
+	 *
+	 * puts node at the top of the binary heap of handles heap[0, count) and sifts
+	 * it down
+	 *
+	 * Time complexity:
+	 *
+	 * O(log count)
+	 */
+	private void siftDown(int[] heap, int count, int node) {
+		int i = 0;
+		int half = count >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			if (child + 1 < count && keys[heap[child + 1]] < keys[heap[child]]) {
+				child++;
+			}
+			if (keys[node] <= keys[heap[child]]) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		if (count > 0) {
+			heap[i] = node;
+		}
+	}
+}
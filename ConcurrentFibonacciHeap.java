@@ -0,0 +1,261 @@
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ConcurrentFibonacciHeap
+ *
+ * A thread-safe Fibonacci Heap over integers for many producer threads. insert
+ * does not lock: the new node is pushed on one of several lock-free stacks
+ * (chosen by the calling thread, so producers rarely share one). The operations
+ * that need the whole heap - deleteMin, decreaseKey, delete and the queries -
+ * take an exclusive lock and first move the buffered nodes into the underlying
+ * FibonacciHeap as new roots, which is O(1) per node, the cost insert would have
+ * paid anyway.
+ *
+ * The nodes returned by insert can be used with decreaseKey and delete from any
+ * thread. The heap has no node pool, so a handle is never reused for another
+ * key.
+ */
+public class ConcurrentFibonacciHeap {
+	protected final FibonacciHeap heap = new FibonacciHeap();
+	protected final ReentrantLock lock = new ReentrantLock();
+	protected final AtomicReferenceArray<FibonacciHeap.HeapNode> stripes; // heads of the insert stacks, linked by next
+	protected final int mask;
+
+	/**
+	 * public ConcurrentFibonacciHeap()
+	 *
+	 * Constructs an empty heap with an insert stack for every available processor
+	 * (rounded up to a power of two).
+	 *
+	 * Time complexity:
+	 *
+	 * O(#processors)
+	 */
+	public ConcurrentFibonacciHeap() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * public ConcurrentFibonacciHeap(int stripes)
+	 *
+	 * Constructs an empty heap with the given number of insert stacks (rounded up
+	 * to a power of two). Throws IllegalArgumentException if stripes is not
+	 * positive.
+	 *
+	 * Time complexity:
+	 *
+	 * O(stripes)
+	 */
+	public ConcurrentFibonacciHeap(int stripes) {
+		if (stripes <= 0 || stripes > 1 << 16) {
+			throw new IllegalArgumentException("stripes out of range: " + stripes);
+		}
+		int length = Integer.highestOneBit(stripes);
+		if (length < stripes) {
+			length <<= 1;
+		}
+		this.stripes = new AtomicReferenceArray<>(length);
+		this.mask = length - 1;
+	}
+
+	/**
+	 * public FibonacciHeap.HeapNode insert(int key)
+	 *
+	 * Creates a node with the key and buffers it for the heap without taking the
+	 * lock. The node becomes visible to findMin/deleteMin of any thread that runs
+	 * after insert returned.
+	 *
+	 * Returns the newly created node.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1) (lock-free, retried under contention on the same stack)
+	 */
+	public FibonacciHeap.HeapNode insert(int key) {
+		FibonacciHeap.HeapNode node = new FibonacciHeap.HeapNode(key);
+		int stripe = stripe();
+		FibonacciHeap.HeapNode head;
+		do {
+			head = stripes.get(stripe);
+			node.setNext(head);
+		} while (!stripes.compareAndSet(stripe, head, node));
+		return node;
+	}
+
+	/**
+	 * protected int stripe()
+	 *
+	 * returns the insert stack of the calling thread
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected int stripe() {
+		int h = System.identityHashCode(Thread.currentThread());
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	/**
+	 * protected void drain()
+	 *
+	 * moves all the buffered nodes into the heap as roots. Called with the lock
+	 * held.
+	 *
+	 * Time complexity:
+	 *
+	 * O(#stripes + #buffered nodes)
+	 */
+	protected void drain() {
+		for (int i = 0; i <= mask; i++) {
+			if (stripes.get(i) == null) {
+				continue;
+			}
+			FibonacciHeap.HeapNode node = stripes.getAndSet(i, null);
+			while (node != null) {
+				FibonacciHeap.HeapNode next = node.getNext();
+				heap.size++;
+				heap.insertNode(node);
+				node = next;
+			}
+		}
+	}
+
+	/**
+	 * public FibonacciHeap.HeapNode findMin()
+	 *
+	 * Returns the node of the heap whose key is minimal, or null if the heap is
+	 * empty. The node may be removed by another thread at any time after it was
+	 * returned.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1) + draining
+	 */
+	public FibonacciHeap.HeapNode findMin() {
+		lock.lock();
+		try {
+			drain();
+			return heap.findMin();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public void deleteMin()
+	 *
+	 * Deletes the node containing the minimum key.
+	 *
+	 * Time complexity:
+	 *
+	 * Amort O(log(n)) + draining
+	 */
+	public void deleteMin() {
+		lock.lock();
+		try {
+			drain();
+			heap.deleteMin();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public FibonacciHeap.HeapNode pollMin()
+	 *
+	 * Atomically finds and deletes the node containing the minimum key.
+	 *
+	 * Returns the deleted node, or null if the heap is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * Amort O(log(n)) + draining
+	 */
+	public FibonacciHeap.HeapNode pollMin() {
+		lock.lock();
+		try {
+			drain();
+			FibonacciHeap.HeapNode min = heap.findMin();
+			if (min != null) {
+				heap.deleteMin();
+			}
+			return min;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public void decreaseKey(FibonacciHeap.HeapNode x, int delta)
+	 *
+	 * decreases the key of the node x by a non-negative value delta. It is assumed
+	 * that x indeed belongs to the heap.
+	 *
+	 * Time complexity:
+	 *
+	 * Amort O(1) + draining
+	 */
+	public void decreaseKey(FibonacciHeap.HeapNode x, int delta) {
+		lock.lock();
+		try {
+			drain();// x may still be buffered
+			heap.decreaseKey(x, delta);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public void delete(FibonacciHeap.HeapNode x)
+	 *
+	 * Deletes the node x from the heap. It is assumed that x indeed belongs to the
+	 * heap.
+	 *
+	 * Time complexity:
+	 *
+	 * Amort O(logn) + draining
+	 */
+	public void delete(FibonacciHeap.HeapNode x) {
+		lock.lock();
+		try {
+			drain();
+			heap.delete(x);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of elements in the heap, including the buffered ones.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1) + draining
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			drain();
+			return heap.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public boolean isEmpty()
+	 *
+	 * Returns true if and only if the heap is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1) + draining
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+}
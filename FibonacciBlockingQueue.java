@@ -0,0 +1,414 @@
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * FibonacciBlockingQueue
+ *
+ * An unbounded BlockingQueue that hands out its elements in increasing order
+ * of an int priority, stored in a ValuedFibonacciHeap: offer is O(1) and poll
+ * is a deleteMin. Elements of equal priority come out in no particular order.
+ *
+ * The queue is guarded by a ReentrantLock and take waits on a Condition, never
+ * in a synchronized block, so a virtual thread blocked in take unmounts from
+ * its carrier instead of pinning it. drainTo removes its whole batch under a
+ * single lock acquisition. The iterator walks a snapshot of the elements, and
+ * its remove deletes the element from the queue if it is still there. Null
+ * elements are not permitted.
+ */
+public class FibonacciBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+	protected final ToIntFunction<? super E> priority;
+	protected final ReentrantLock lock = new ReentrantLock();
+	protected final Condition notEmpty = lock.newCondition();
+	protected ValuedFibonacciHeap<E> heap = new ValuedFibonacciHeap<>();
+
+	/**
+	 * public FibonacciBlockingQueue(ToIntFunction<? super E> priority)
+	 *
+	 * Constructs an empty queue ordering its elements by priority, the smallest
+	 * first. The priority of an element is read once, when it is inserted.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public FibonacciBlockingQueue(ToIntFunction<? super E> priority) {
+		if (priority == null) {
+			throw new NullPointerException("priority");
+		}
+		this.priority = priority;
+	}
+
+	/**
+	 * public boolean offer(E e)
+	 *
+	 * Inserts the element. Throws NullPointerException if it is null.
+	 *
+	 * Returns true, the queue is unbounded.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	public boolean offer(E e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		int key = priority.applyAsInt(e);
+		lock.lock();
+		try {
+			heap.insert(key, e);
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+		return true;
+	}
+
+	/**
+	 * public void put(E e)
+	 *
+	 * Inserts the element without blocking, the queue is unbounded.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	public void put(E e) {
+		offer(e);
+	}
+
+	/**
+	 * public boolean offer(E e, long timeout, TimeUnit unit)
+	 *
+	 * Inserts the element without blocking, the queue is unbounded.
+	 *
+	 * Returns true.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	public boolean offer(E e, long timeout, TimeUnit unit) {
+		return offer(e);
+	}
+
+	/**
+	 * public E poll()
+	 *
+	 * Removes and returns the element of minimal priority, or null if the queue
+	 * is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(log(n))
+	 */
+	@Override
+	public E poll() {
+		lock.lock();
+		try {
+			return heap.isEmpty() ? null : heap.deleteMinValue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public E take()
+	 *
+	 * Removes and returns the element of minimal priority, waiting until there is
+	 * one. Throws InterruptedException if interrupted while waiting.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(log(n))
+	 */
+	@Override
+	public E take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (heap.isEmpty()) {
+				notEmpty.await();
+			}
+			return heap.deleteMinValue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public E poll(long timeout, TimeUnit unit)
+	 *
+	 * Removes and returns the element of minimal priority, waiting up to the
+	 * timeout for one. Returns null if the timeout elapsed first. Throws
+	 * InterruptedException if interrupted while waiting.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(log(n))
+	 */
+	@Override
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (heap.isEmpty()) {
+				if (nanos <= 0) {
+					return null;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			return heap.deleteMinValue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public E peek()
+	 *
+	 * Returns the element of minimal priority without removing it, or null if the
+	 * queue is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	public E peek() {
+		lock.lock();
+		try {
+			return heap.isEmpty() ? null : heap.findMinValue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of elements in the queue.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			return heap.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public int remainingCapacity()
+	 *
+	 * Returns Integer.MAX_VALUE, the queue is unbounded.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	public int remainingCapacity() {
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * public int drainTo(Collection<? super E> c)
+	 *
+	 * Moves all the elements to c in increasing priority, see drainTo(c, max).
+	 *
+	 * Time complexity:
+	 *
+	 * O(n*log(n))
+	 */
+	@Override
+	public int drainTo(Collection<? super E> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * public int drainTo(Collection<? super E> c, int maxElements)
+	 *
+	 * Moves up to maxElements elements of minimal priority to c in increasing
+	 * priority, as a batch of deleteMins under one lock acquisition. Throws
+	 * IllegalArgumentException if c is this queue. If adding to c throws, the
+	 * element being added is lost, like in the other BlockingQueues.
+	 *
+	 * Returns the number of elements moved.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n*k)
+	 *
+	 * Amort O(k*log(n)) for k elements
+	 */
+	@Override
+	public int drainTo(Collection<? super E> c, int maxElements) {
+		if (c == null) {
+			throw new NullPointerException();
+		}
+		if (c == this) {
+			throw new IllegalArgumentException("cannot drain a queue to itself");
+		}
+		lock.lock();
+		try {
+			int n = 0;
+			while (n < maxElements && !heap.isEmpty()) {
+				c.add(heap.deleteMinValue());
+				n++;
+			}
+			return n;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public void clear()
+	 *
+	 * Removes all the elements by replacing the heap.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	public void clear() {
+		lock.lock();
+		try {
+			heap = new ValuedFibonacciHeap<>();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public Iterator<E> iterator()
+	 *
+	 * Returns an iterator over a snapshot of the elements, in no particular
+	 * order. Its remove deletes the last returned element from the queue unless
+	 * it was removed already.
+	 *
+	 * Time complexity:
+	 *
+	 * O(n) for the snapshot
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		lock.lock();
+		try {
+			return new Snapshot(entries(heap));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * protected static <E> ValuedFibonacciHeap.Entry<E>[] entries(ValuedFibonacciHeap<E> heap)
+	 *
+	 * returns the entries of the heap, walking its trees with an explicit stack
+	 *
+	 * Time complexity:
+	 *
+	 * O(n)
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected static <E> ValuedFibonacciHeap.Entry<E>[] entries(ValuedFibonacciHeap<E> heap) {
+		ValuedFibonacciHeap.Entry<E>[] res = new ValuedFibonacciHeap.Entry[heap.size()];
+		if (heap.isEmpty()) {
+			return res;
+		}
+		int count = 0;
+		FibonacciHeap.HeapNode[] stack = new FibonacciHeap.HeapNode[64];
+		int depth = 0;
+		stack[depth++] = heap.first;
+		while (depth > 0) {// every sibling list is pushed once, by its first node
+			FibonacciHeap.HeapNode start = stack[--depth];
+			FibonacciHeap.HeapNode node = start;
+			do {
+				res[count++] = (ValuedFibonacciHeap.Entry<E>) node;
+				if (node.getChild() != null) {
+					if (depth == stack.length) {
+						stack = Arrays.copyOf(stack, 2 * depth);
+					}
+					stack[depth++] = node.getChild();
+				}
+				node = node.getNext();
+			} while (node != start);
+		}
+		return res;
+	}
+
+	/**
+	 * protected class Snapshot
+	 *
+	 * The iterator of the queue over a copy of its entries.
+	 */
+	protected class Snapshot implements Iterator<E> {
+		protected final ValuedFibonacciHeap.Entry<E>[] entries;
+		protected final E[] values;
+		protected final ValuedFibonacciHeap<E> owner; // clear replaces the heap
+		protected int next;
+		protected int last = -1;
+
+		@SuppressWarnings("unchecked")
+		protected Snapshot(ValuedFibonacciHeap.Entry<E>[] entries) {
+			this.entries = entries;
+			this.values = (E[]) new Object[entries.length];
+			for (int i = 0; i < entries.length; i++) {
+				values[i] = entries[i].getValue();
+			}
+			this.owner = heap;
+		}
+
+		public boolean hasNext() {
+			return next < values.length;
+		}
+
+		public E next() {
+			if (next >= values.length) {
+				throw new NoSuchElementException();
+			}
+			last = next++;
+			return values[last];
+		}
+
+		public void remove() {
+			if (last < 0) {
+				throw new IllegalStateException();
+			}
+			ValuedFibonacciHeap.Entry<E> entry = entries[last];
+			lock.lock();
+			try {
+				// a deleted entry had its value cleared, and a cleared queue has a new heap
+				if (owner == heap && entry.getValue() == values[last]) {
+					heap.delete(entry);
+				}
+			} finally {
+				lock.unlock();
+			}
+			last = -1;
+		}
+	}
+}
@@ -21,8 +21,8 @@ public class FibonacciExp {
 		double second=System.currentTimeMillis();
 		System.out.println("M is"+String.valueOf(m));
 		System.out.println("the time it took is "+String.valueOf(second-first));
-		System.out.println("Total Links "+String.valueOf(FibonacciHeap.links));
-		System.out.println("Total Cuts "+String.valueOf(FibonacciHeap.cuts));
+		System.out.println("Total Links "+String.valueOf(FibonacciHeap.totalLinks()));
+		System.out.println("Total Cuts "+String.valueOf(FibonacciHeap.totalCuts()));
 		System.out.println("Potential "+String.valueOf(tree.potential()));
 		System.out.println(m-Math.floor(Math.log10(m)/Math.log10(2)));
 	}
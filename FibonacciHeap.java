@@ -1,3 +1,21 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
 /**
  * FibonacciHeap
  *
@@ -7,12 +25,91 @@ public class FibonacciHeap {
 	protected HeapNode first;
 	protected HeapNode min;
 	protected int size;
-	protected static int links;
-	protected static int cuts;
 	protected int trees;
 	protected int marked;
+	protected final int[] rootRanks = new int[64]; // rootRanks[r] = #roots of rank r, lazily deleted ones included
+	protected HeapNode[] rankTable; // scratch for consolidate
+	protected int rankTableLimit; // the biggest heap rankTable can consolidate
+
+	protected HeapNode[] pool; // recycled nodes, null when the node pool is off
+	protected int poolCapacity;
+	protected int pooled;
+	protected long poolHits;
+	protected long poolMisses;
+	protected long poolDrops;
+
+	protected IdIndex index; // id -> node of the nodes inserted with an id, null until the first one
+
+	protected int capacity = Integer.MAX_VALUE; // bounded mode when smaller, see setCapacity
+
+	protected double purgeFraction; // lazy deletion when positive
+	protected int tombstones; // lazily deleted nodes still in the trees, not counted in size
+
+	protected int parallelConsolidateThreshold = DEFAULT_PARALLEL_CONSOLIDATE_THRESHOLD; // roots
+
+	protected int[] kMinKeys; // scratch binary heap of peekK: the candidate keys
+	protected HeapNode[] kMinNodes; // and their nodes
+
+	// counters of this heap, published to the global adders below once per operation
+	protected long links;
+	protected long cuts;
+	protected long consolidations;
+	protected long rootsScanned;
+	protected int maxCascadeDepth;
+
+	// counters of all the heaps, striped so heaps on different threads do not contend
+	protected static final LongAdder TOTAL_LINKS = new LongAdder();
+	protected static final LongAdder TOTAL_CUTS = new LongAdder();
+	protected static final LongAdder TOTAL_CONSOLIDATIONS = new LongAdder();
+	protected static final LongAdder TOTAL_ROOTS_SCANNED = new LongAdder();
+	protected static final LongAccumulator MAX_CASCADE_DEPTH = new LongAccumulator(Math::max, 0);
+
+	protected static final int SNAPSHOT_MAGIC = 0x46485031; // "FHP1", the format of writeTo
+	protected static final int SNAPSHOT_BUFFER = 1 << 16;
+	protected static final int SNAPSHOT_MAX_HEADER = 4 + 10 * 10 + 8; // magic, 10 varints, purgeFraction
+	protected static final int SNAPSHOT_MAX_RECORD = 4 * 10; // flags, id, rank and key varints of a node
+
+	// consolidate links chunks of the root list in parallel from this many roots, never on a single core
+	protected static final int DEFAULT_PARALLEL_CONSOLIDATE_THRESHOLD = ForkJoinPool.getCommonPoolParallelism() > 1
+			? 1 << 20
+			: Integer.MAX_VALUE;
+	protected static final int PARALLEL_CONSOLIDATE_CHUNK = 1 << 14; // the fewest roots a task links
+
+	protected static final double PHI = (1 + Math.sqrt(5)) / 2;
+	protected static final double LOG_PHI = Math.log(PHI);
+
+	/**
+	 * public FibonacciHeap()
+	 * 
+	 * Constructs an empty heap without a node pool.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 */
+	public FibonacciHeap() {
+	}
 
-	// empty constructor O(1)
+	/**
+	 * public FibonacciHeap(int nodePoolCapacity)
+	 * 
+	 * Constructs an empty heap that recycles the nodes removed by deleteMin and
+	 * delete, keeping up to nodePoolCapacity of them for later inserts. A recycled
+	 * node gets a new generation (see HeapNode.getGeneration()), and using a
+	 * handle of a deleted node throws IllegalStateException instead of corrupting
+	 * the heap.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 */
+	public FibonacciHeap(int nodePoolCapacity) {
+		if (nodePoolCapacity < 0) {
+			throw new IllegalArgumentException("negative node pool capacity: " + nodePoolCapacity);
+		}
+		this.poolCapacity = nodePoolCapacity;
+		this.pool = new HeapNode[Math.min(nodePoolCapacity, 16)];
+	}
 
 	/**
 	 * public boolean isEmpty()
@@ -42,8 +139,10 @@ public class FibonacciHeap {
 		trees = 0;
 		marked = 0;
 		size = 0;
+		tombstones = 0;
 		first = null;
 		min = null;
+		Arrays.fill(rootRanks, 0);
 	}
 
 	/**
@@ -67,19 +166,420 @@ public class FibonacciHeap {
 	 * Creates a node (of type HeapNode) which contains the given key, and inserts
 	 * it into the heap. The added key is assumed not to already belong to the heap.
 	 * 
-	 * Returns the newly created node.
+	 * Returns the newly created node. Throws IllegalStateException if the heap is
+	 * bounded and full, see offer.
 	 * 
 	 * Time complexity:
 	 * 
 	 * O(1)
 	 */
 	public HeapNode insert(int key) {
-		HeapNode node = new HeapNode(key); // create a new Node
+		ensureRoom(1);
+		HeapNode node = newNode(key); // create a new Node (or take one from the pool)
 		size++;// Increase the size of the heap
 		insertNode(node); // insert the newly created node
 		return node;
 
 	}
+
+	/**
+	 * public HeapNode offer(int key)
+	 * 
+	 * Inserts the key if there is room for it. A bounded heap (see setCapacity)
+	 * that is full keeps its capacity largest keys: a key that is not bigger
+	 * than the minimum - the worst key kept - is rejected with a single
+	 * comparison, and a bigger one evicts the minimum. With a node pool the
+	 * evicted node is reused, so a full heap allocates nothing.
+	 * 
+	 * Returns the newly created node, or null if the key was rejected.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1) when there is room or the key is rejected, Amort O(log(n)) when it
+	 * evicts
+	 */
+	public HeapNode offer(int key) {
+		if (size < capacity) {
+			return insert(key);
+		}
+		if (key <= min.getKey()) {
+			return null;
+		}
+		deleteMin();
+		return insert(key);
+	}
+
+	/**
+	 * public void setCapacity(int capacity)
+	 * 
+	 * Bounds the heap to capacity elements, evicting the minimums while it holds
+	 * more. A full heap rejects insert, insertAll, insertWithId and meld with
+	 * IllegalStateException, and offer keeps the largest keys. Integer.MAX_VALUE,
+	 * the default, means unbounded. Throws IllegalArgumentException if capacity
+	 * is not positive.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1), Amort O(log(n)) per evicted element
+	 */
+	public void setCapacity(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("non-positive capacity: " + capacity);
+		}
+		this.capacity = capacity;
+		while (size > capacity) {
+			deleteMin();
+		}
+	}
+
+	/**
+	 * public int capacity()
+	 * 
+	 * Returns the most elements the heap may hold, Integer.MAX_VALUE if it is
+	 * unbounded.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * protected void ensureRoom(int count)
+	 * 
+	 * throws IllegalStateException if count more elements would exceed the
+	 * capacity
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 */
+	protected void ensureRoom(int count) {
+		if (count > capacity - size) {
+			throw new IllegalStateException("heap is full, capacity " + capacity);
+		}
+	}
+
+	/**
+	 * public HeapNode[] insertAll(int[] keys)
+	 * 
+	 * Inserts all the keys in a single pass, linking the new nodes into
+	 * binomial trees on the way (like a binary counter), so the heap receives
+	 * O(log n) new trees instead of n singletons and the next deleteMin does not
+	 * have to consolidate them.
+	 * 
+	 * Returns the newly created nodes, the i-th node holds keys[i].
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(n)
+	 */
+	public HeapNode[] insertAll(int[] keys) {
+		ensureRoom(keys.length);
+		HeapNode[] nodes = new HeapNode[keys.length];
+		linkAll(keys, nodes);
+		return nodes;
+	}
+
+	/**
+	 * protected void linkAll(int[] keys, HeapNode[] nodes)
+	 * 
+	 * the work of insertAll, storing the new nodes in nodes unless it is null.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(n)
+	 */
+	protected void linkAll(int[] keys, HeapNode[] nodes) {
+		if (keys.length == 0) {
+			return;
+		}
+		HeapNode[] ranks = rankTable(size + tombstones + keys.length);
+		long linksBefore = links;
+		long occupied = 0; // bit k is set iff ranks[k] holds a new tree
+		for (int i = 0; i < keys.length; i++) {
+			HeapNode node = newNode(keys[i]);
+			if (nodes != null) {
+				nodes[i] = node;
+			}
+			int k = 0;
+			while ((occupied & (1L << k)) != 0) {// carrying like in a binary counter, O(1) amortized
+				node = link(node, ranks[k]);
+				ranks[k] = null;
+				occupied &= ~(1L << k);
+				k++;
+			}
+			ranks[k] = node;
+			occupied |= 1L << k;
+		}
+		size += keys.length;
+		while (occupied != 0) {// inserting the trees from the bigger to the smaller
+			int k = 63 - Long.numberOfLeadingZeros(occupied);
+			occupied &= ~(1L << k);
+			insertNode(ranks[k]);
+			ranks[k] = null;
+		}
+		TOTAL_LINKS.add(links - linksBefore);
+	}
+
+	/**
+	 * public HeapNode[] insertAll(IntStream keys)
+	 * 
+	 * Inserts all the keys of the stream like insertAll(int[]).
+	 * 
+	 * Returns the newly created nodes in the order of the stream.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(n)
+	 */
+	public HeapNode[] insertAll(IntStream keys) {
+		return insertAll(keys.toArray());
+	}
+
+	/**
+	 * public HeapNode[] insertAllSorted(int[] keys)
+	 * 
+	 * Inserts keys that are sorted in non-decreasing order. The binomial trees are
+	 * built directly from consecutive runs of 2^k keys without comparing keys:
+	 * the first key of a run is the root and the rest of the run is split into its
+	 * subtrees. Throws IllegalArgumentException if the keys are not sorted.
+	 * 
+	 * Returns the newly created nodes, the i-th node holds keys[i].
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(n)
+	 */
+	public HeapNode[] insertAllSorted(int[] keys) {
+		ensureRoom(keys.length);
+		for (int i = 1; i < keys.length; i++) {
+			if (keys[i - 1] > keys[i]) {
+				throw new IllegalArgumentException("keys are not sorted at index " + i);
+			}
+		}
+		HeapNode[] nodes = new HeapNode[keys.length];
+		int from = 0;
+		for (int k = 31; k >= 0; k--) {// a tree for every bit of n, the smaller keys in the bigger trees
+			if ((keys.length & (1 << k)) != 0) {
+				insertNode(buildSortedTree(keys, from, k, nodes));
+				from += 1 << k;
+			}
+		}
+		links += keys.length - Integer.bitCount(keys.length);// a tree of 2^k nodes stands for 2^k - 1 links
+		TOTAL_LINKS.add(keys.length - Integer.bitCount(keys.length));
+		size += keys.length;
+		return nodes;
+	}
+
+	/**
+	 * protected HeapNode buildSortedTree(int[] keys, int from, int rank, HeapNode[] nodes)
+	 * 
+	 * builds a binomial tree of the given rank from the sorted keys[from, from +
+	 * 2^rank): the root holds keys[from] and its children are the trees of ranks
+	 * rank-1, ..., 0 built from the following runs, in the order link() would leave
+	 * them. The created nodes are stored in nodes at the indices of their keys.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(2^rank)
+	 */
+	protected HeapNode buildSortedTree(int[] keys, int from, int rank, HeapNode[] nodes) {
+		HeapNode root = newNode(keys[from]);
+		nodes[from] = root;
+		root.setRank(rank);
+		HeapNode head = null;
+		HeapNode last = null;
+		int childFrom = from + 1;
+		for (int r = rank - 1; r >= 0; r--) {// recursion depth is at most 31
+			HeapNode child = buildSortedTree(keys, childFrom, r, nodes);
+			child.setParent(root);
+			if (head == null) {
+				head = child;
+			} else {
+				connect2Nodes(last, child);
+			}
+			last = child;
+			childFrom += 1 << r;
+		}
+		if (head != null) {
+			connect2Nodes(last, head);
+			root.setChild(head);
+		}
+		return root;
+	}
+	/**
+	 * protected HeapNode newNode(int key)
+	 * 
+	 * returns a fresh root node with the key, taken from the node pool when it has
+	 * one.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 * 
+	 */
+	protected HeapNode newNode(int key) {
+		if (pooled > 0) {
+			poolHits++;
+			HeapNode node = pool[--pooled];
+			pool[pooled] = null;
+			node.key = key;
+			node.rank = 0;
+			return node;
+		}
+		if (pool != null) {
+			poolMisses++;
+		}
+		return allocateNode(key);
+	}
+
+	/**
+	 * protected HeapNode allocateNode(int key)
+	 * 
+	 * allocates a new node with the key, subclasses override it to use a node
+	 * class that carries more data.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 * 
+	 */
+	protected HeapNode allocateNode(int key) {
+		return new HeapNode(key);
+	}
+
+	/**
+	 * protected void recycle(HeapNode node)
+	 * 
+	 * called with every node that was removed from the heap. The id of an indexed
+	 * node is removed from the index. When the node pool is on, the node is marked
+	 * as deleted, gets a new generation and is kept for reuse if the pool is not
+	 * full.
+	 * 
+	 * Time complexity:
+	 * 
+	 * Amort O(1)
+	 * 
+	 */
+	protected void recycle(HeapNode node) {
+		if (index != null && node instanceof Indexed) {
+			index.remove(((Indexed) node).getId(), node);
+		}
+		if (pool == null) {
+			return;
+		}
+		node.generation++;
+		node.rank = -1;// deleted
+		node.mark = false;
+		node.child = null;
+		node.parent = null;
+		node.next = null;
+		node.prev = null;
+		if (node instanceof Indexed) {// only plain nodes are handed out again
+			return;
+		}
+		if (pooled == pool.length) {
+			if (pooled == poolCapacity) {
+				poolDrops++;
+				return;
+			}
+			pool = Arrays.copyOf(pool, (int) Math.min(poolCapacity, 2L * pooled));
+		}
+		pool[pooled++] = node;
+	}
+
+	/**
+	 * protected void checkNode(HeapNode x)
+	 * 
+	 * throws IllegalStateException if x was lazily deleted, or deleted from the
+	 * heap and recycled by the node pool
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 * 
+	 */
+	protected void checkNode(HeapNode x) {
+		if (x.rank < 0 || x.tombstone) {
+			throw new IllegalStateException("the node was deleted from the heap");
+		}
+	}
+
+	/**
+	 * protected void checkNode(HeapNode x, int generation)
+	 * 
+	 * throws IllegalStateException if x does not belong to the given generation
+	 * anymore, that is it was deleted and possibly reused for another key.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 * 
+	 */
+	protected void checkNode(HeapNode x, int generation) {
+		if (x.generation != generation) {
+			throw new IllegalStateException("stale node handle: generation " + generation + " but the node is at generation " + x.generation);
+		}
+		checkNode(x);
+	}
+
+	/**
+	 * public int pooledNodes()
+	 * 
+	 * Returns the number of nodes kept in the node pool.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 */
+	public int pooledNodes() {
+		return pooled;
+	}
+
+	/**
+	 * public long poolHits()
+	 * 
+	 * Returns the number of inserts that reused a pooled node.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 */
+	public long poolHits() {
+		return poolHits;
+	}
+
+	/**
+	 * public long poolMisses()
+	 * 
+	 * Returns the number of inserts that had to allocate a node although the node
+	 * pool is on.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 */
+	public long poolMisses() {
+		return poolMisses;
+	}
+
+	/**
+	 * public long poolDrops()
+	 * 
+	 * Returns the number of deleted nodes that were left to the garbage collector
+	 * because the node pool was full.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 */
+	public long poolDrops() {
+		return poolDrops;
+	}
+
 	/**
 	 * protected void insertNode(HeapNode node)
 	 * 
@@ -92,6 +592,7 @@ public class FibonacciHeap {
 	 */
 	protected void insertNode(HeapNode node) {
 		trees++; //Increase the amount of trees
+		rootRanks[node.getRank()]++;
 		if (this.isEmpty()) {// if the new root is the only one it is also the minimum and the next of itself
 			min = node; 
 			connect2Nodes(node, node);
@@ -107,6 +608,25 @@ public class FibonacciHeap {
 		first = node;
 	}
 
+	/**
+	 * protected void addRoot(HeapNode node)
+	 * 
+	 * adds a tree as the first root of a non-empty heap without updating min.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 * 
+	 */
+	protected void addRoot(HeapNode node) {
+		trees++;
+		rootRanks[node.getRank()]++;
+		HeapNode last = first.getPrev();
+		connect2Nodes(node, first);
+		connect2Nodes(last, node);
+		first = node;
+	}
+
 	/**
 	 * public void deleteMin()
 	 *
@@ -120,9 +640,13 @@ public class FibonacciHeap {
 	 *
 	 */
 	public void deleteMin() {
+		HeapNode deleted = min;
 		size--; //we delete a node so the size goes down
 		if (size == 0 || size == -1) {// if we stated with an empty heap or size one, it's an empty one so we will reset O(1)
 			resetHeap();
+			if (deleted != null) {
+				recycle(deleted);
+			}
 			return;
 		} else {
 			if (first == min) {// if the deleted node is the root of the first tree O(1)
@@ -160,46 +684,365 @@ public class FibonacciHeap {
 
 		}
 		this.consolidate();// consolidating amort O(logn), WC O(n)
-
+		recycle(deleted);
 	}
 	
 	/**
-	 * protected void consolidate()
+	 * protected int pollMinKey()
 	 * 
-	 * optimizes the amount of trees in the heap by linking them accordingly
+	 * deletes the minimum and returns its key, reading min once. The heap must not
+	 * be empty.
 	 * 
 	 * Time complexity:
 	 * 
 	 * WC O(n)
 	 * 
-	 * Amort O(logn)
+	 * Amort O(log(n))
+	 */
+	protected int pollMinKey() {
+		int key = min.key;
+		deleteMin();
+		return key;
+	}
+
+	/**
+	 * public int drainTo(int[] dst, int max)
+	 * 
+	 * Deletes the max smallest keys (all of them if the heap has fewer) and writes
+	 * them to dst[0, count) in ascending order. Throws IllegalArgumentException
+	 * if max is negative or dst is shorter than the count.
 	 * 
+	 * Returns count.
+	 * 
+	 * Time complexity:
+	 * 
+	 * Amort O(count*log(n))
 	 */
+	public int drainTo(int[] dst, int max) {
+		if (max < 0) {
+			throw new IllegalArgumentException("negative max: " + max);
+		}
+		int count = Math.min(max, size);
+		if (dst.length < count) {
+			throw new IllegalArgumentException("dst holds " + dst.length + " keys but " + count + " are drained");
+		}
+		for (int i = 0; i < count; i++) {
+			dst[i] = pollMinKey();
+		}
+		return count;
+	}
 
-	protected void consolidate() {
-		HeapNode[] ranks = new HeapNode[(int) Math.ceil(Math.log((double) size))*2 + 2];//making array for the possible ranks (it might be much less but it's still O(logn)
+	/**
+	 * public PrimitiveIterator.OfInt drainIterator()
+	 * 
+	 * Returns an iterator that deletes the keys of the heap in ascending order as
+	 * it returns them. Keys inserted while iterating are returned in order too.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1), every nextInt() Amort O(log(n))
+	 */
+	public PrimitiveIterator.OfInt drainIterator() {
+		return new PrimitiveIterator.OfInt() {
+			public boolean hasNext() {
+				return !isEmpty();
+			}
+
+			public int nextInt() {
+				if (isEmpty()) {
+					throw new NoSuchElementException("the heap is empty");
+				}
+				return pollMinKey();
+			}
+		};
+	}
+
+	/**
+	 * public IntStream drain()
+	 * 
+	 * Returns a sequential, sorted stream that deletes the keys of the heap in
+	 * ascending order as they are consumed. The heap should not be changed while
+	 * the stream is in use.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1), every element Amort O(log(n))
+	 */
+	public IntStream drain() {
+		return StreamSupport.intStream(
+				Spliterators.spliterator(drainIterator(), size, Spliterator.ORDERED | Spliterator.SORTED | Spliterator.NONNULL),
+				false);
+	}
+
+	/**
+	 * public static void sort(int[] a)
+	 * 
+	 * Sorts a in ascending order with a Fibonacci heap: the keys are inserted with
+	 * insertAll, which builds the binomial trees directly so the first deleteMin
+	 * does not consolidate n singletons, and drained back into a.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(nlogn)
+	 */
+	public static void sort(int[] a) {
+		FibonacciHeap heap = new FibonacciHeap();
+		heap.linkAll(a, null);
+		heap.drainTo(a, a.length);
+	}
+
+	/**
+	 * protected void consolidate()
+	 * 
+	 * optimizes the amount of trees in the heap by linking them accordingly.
+	 * The rank table is kept in the heap between calls and a bitmask tracks its
+	 * occupied slots, so no garbage is created. Lazily deleted roots are removed
+	 * on the way.
+	 * 
+	 * Time complexity:
+	 * 
+	 * WC O(n)
+	 * 
+	 * Amort O(logn)
+	 * 
+	 */
+
+	protected void consolidate() {
+		HeapNode[] ranks = rankTable(size + tombstones);
+		long linksBefore = links;
+		int roots = 0;
+		long occupied = 0; // bit k is set iff ranks[k] holds a tree
 		HeapNode node = first;
 		first.getPrev().setNext(null); // so we know where to stop
+		if (trees >= parallelConsolidateThreshold && tombstones == 0) {// the chunks leave few trees for the loop
+			node = consolidateParallel(node, ranks.length);
+		}
 		while (node != null) {//iterating over the trees, O(n), Amort O(logn)
+			roots++;
 			HeapNode next = node.getNext();//the next node
+			if (node.tombstone) {// a lazily deleted root is dropped and its children are scanned in its place
+				next = dropTombstone(node, next);
+				node = next;
+				continue;
+			}
 			int k = node.getRank();
-			while (ranks[k] != null) {// go until there is no  tree in our rank
+			while ((occupied & (1L << k)) != 0) {// go until there is no tree in our rank
 				node = link(node, ranks[k]);// if there is we will link them and empty the spot at the array O(1)
 				ranks[k] = null;
+				occupied &= ~(1L << k);
 				k++;
 			}
-
 			ranks[k] = node;// we will put the joint tree in the correct spot
+			occupied |= 1L << k;
 			node = next;
 		}
-		first = null;// "reseting" the tree
-		this.trees = 0;
-		for (int i=ranks.length-1;i>=0;i--) {// inserting the trees to the heap from the bigger to the smaller so the smallest will be our first
-			HeapNode tree=ranks[i];
-			if (tree != null) {
-				insertNode(tree);//inserting O(1)
+		// rebuilding the root list from the smaller rank to the bigger so the smallest will be our first,
+		// on equal keys the tree of the bigger rank is the minimum
+		this.trees = Long.bitCount(occupied);
+		Arrays.fill(rootRanks, 0);// deleteMin and purge leave the histogram to this rebuild
+		first = null;
+		HeapNode last = null;
+		while (occupied != 0) {// O(logn)
+			int k = Long.numberOfTrailingZeros(occupied);
+			occupied &= occupied - 1;
+			HeapNode tree = ranks[k];
+			ranks[k] = null;
+			rootRanks[k] = 1;
+			if (first == null) {
+				first = tree;
+				min = tree;
+			} else {
+				connect2Nodes(last, tree);
+				if (tree.getKey() <= min.getKey()) {
+					min = tree;
+				}
+			}
+			last = tree;
+		}
+		connect2Nodes(last, first);
+		consolidations++;
+		rootsScanned += roots;
+		TOTAL_LINKS.add(links - linksBefore);
+		TOTAL_CONSOLIDATIONS.increment();
+		TOTAL_ROOTS_SCANNED.add(roots);
+	}
+
+	/**
+	 * protected HeapNode consolidateParallel(HeapNode node, int maxRanks)
+	 * 
+	 * links the root list that starts at node and ends at null in chunks of at
+	 * least PARALLEL_CONSOLIDATE_CHUNK roots on the common ForkJoinPool, each
+	 * chunk into a rank table of its own, and returns the trees of all the
+	 * chunks as a list linked by next and ended by null. They have at most
+	 * maxRanks distinct ranks per chunk, and consolidate links them into one
+	 * table, carrying like binary addition. Only called without lazily deleted
+	 * nodes, so the tasks touch nothing but their own trees.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(n/#cores + #cores*logn), plus one sequential walk over the roots to cut
+	 * the chunks
+	 */
+	protected HeapNode consolidateParallel(HeapNode node, int maxRanks) {
+		int parallelism = Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+		int chunk = Math.max(PARALLEL_CONSOLIDATE_CHUNK, trees / (4 * parallelism));
+		int chunks = (trees + chunk - 1) / chunk;
+		HeapNode[] starts = new HeapNode[chunks];
+		for (int i = 0; i < chunks; i++) {
+			starts[i] = node;
+			for (int j = 0; j < chunk && node != null; j++) {
+				node = node.getNext();
+			}
+		}
+		ConsolidateTask task = new ConsolidateTask(starts, chunk, maxRanks, 0, chunks);
+		HeapNode res = ForkJoinPool.commonPool().invoke(task);
+		links += task.links;
+		return res;
+	}
+
+	/**
+	 * protected static class ConsolidateTask
+	 * 
+	 * Links the chunks [from, to) of the root list, see consolidateParallel.
+	 * Returns their trees as a list linked by next and ended by null.
+	 */
+	protected static class ConsolidateTask extends RecursiveTask<HeapNode> {
+		private static final long serialVersionUID = 1L;
+
+		protected final HeapNode[] starts;
+		protected final int chunk;
+		protected final int maxRanks;
+		protected final int from;
+		protected final int to;
+		protected long links;
+
+		protected ConsolidateTask(HeapNode[] starts, int chunk, int maxRanks, int from, int to) {
+			this.starts = starts;
+			this.chunk = chunk;
+			this.maxRanks = maxRanks;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected HeapNode compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				ConsolidateTask left = new ConsolidateTask(starts, chunk, maxRanks, from, middle);
+				ConsolidateTask right = new ConsolidateTask(starts, chunk, maxRanks, middle, to);
+				left.fork();
+				HeapNode second = right.compute();
+				HeapNode first = left.join();
+				links = left.links + right.links;
+				HeapNode last = first;
+				while (last.getNext() != null) {// O(log n) trees per chunk
+					last = last.getNext();
+				}
+				last.setNext(second);
+				return first;
+			}
+			HeapNode[] ranks = new HeapNode[maxRanks];
+			long occupied = 0;
+			HeapNode node = starts[from];
+			for (int i = 0; i < chunk && node != null; i++) {
+				HeapNode next = node.getNext();// read before linking changes it
+				int k = node.getRank();
+				while ((occupied & (1L << k)) != 0) {
+					node = linkTrees(node, ranks[k]);
+					links++;
+					ranks[k] = null;
+					occupied &= ~(1L << k);
+					k++;
+				}
+				ranks[k] = node;
+				occupied |= 1L << k;
+				node = next;
 			}
+			HeapNode res = null;
+			while (occupied != 0) {
+				int k = 63 - Long.numberOfLeadingZeros(occupied);
+				occupied &= ~(1L << k);
+				ranks[k].setNext(res);
+				res = ranks[k];
+			}
+			return res;
+		}
+	}
+
+	/**
+	 * public void setParallelConsolidateThreshold(int roots)
+	 * 
+	 * Makes consolidate (run by deleteMin) link the root list in parallel chunks
+	 * on the common ForkJoinPool when it has at least this many roots, as after
+	 * a long run of inserts. The result is a valid heap like the sequential one,
+	 * though it may link different pairs of trees. The default is 2^20 roots,
+	 * or never (Integer.MAX_VALUE) when the pool has a single thread. Lazily
+	 * deleted nodes keep consolidate sequential. Throws IllegalArgumentException
+	 * if roots is not positive.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 */
+	public void setParallelConsolidateThreshold(int roots) {
+		if (roots <= 0) {
+			throw new IllegalArgumentException("non-positive threshold: " + roots);
+		}
+		this.parallelConsolidateThreshold = roots;
+	}
+
+	/**
+	 * protected HeapNode dropTombstone(HeapNode node, HeapNode next)
+	 * 
+	 * removes a lazily deleted root met by consolidate, whose scan continues at
+	 * next: the children of the node become roots and are put in front of next.
+	 * Returns where the scan continues.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(rank)
+	 */
+	protected HeapNode dropTombstone(HeapNode node, HeapNode next) {
+		tombstones--;
+		HeapNode child = node.getChild();
+		if (child != null) {
+			HeapNode c = child;
+			do {
+				if (c.isMark()) {
+					marked--;
+					c.setMark(false);
+				}
+				c.setParent(null);
+				c = c.getNext();
+			} while (c != child);
+			child.getPrev().setNext(next);
+			next = child;
+		}
+		node.setChild(null);
+		node.tombstone = false;
+		recycle(node);
+		return next;
+	}
+
+	/**
+	 * protected HeapNode[] rankTable(int n)
+	 * 
+	 * returns the scratch rank table of the heap, (re)allocating it only when it
+	 * is too small for a heap of n nodes. A tree whose root has rank d holds at
+	 * least phi^d nodes, so the ranks are at most log_phi(n).
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1), O(logn) when the table grows
+	 * 
+	 */
+	protected HeapNode[] rankTable(int n) {
+		if (rankTable == null || n > rankTableLimit) {
+			int length = (int) (Math.log(Math.max(n, 2)) / LOG_PHI) + 2;
+			rankTable = new HeapNode[length];
+			rankTableLimit = (int) Math.min(Integer.MAX_VALUE, Math.pow(PHI, length - 1));
 		}
+		return rankTable;
 	}
 	/**
 	 * protected HeapNode link(HeapNode parent, HeapNode child)
@@ -211,7 +1054,21 @@ public class FibonacciHeap {
 	 * O(1)
 	 */
 	protected HeapNode link(HeapNode parent, HeapNode child) {
-		links++;// we link so we increase the amount of links that have been done
+		links++;// we link so we increase the amount of links that have been done, the caller publishes it
+		return linkTrees(parent, child);
+	}
+
+	/**
+	 * protected static HeapNode linkTrees(HeapNode parent, HeapNode child)
+	 * 
+	 * the linking of link without counting it, touching nothing but the two
+	 * trees, so the tasks of consolidateParallel can use it
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 */
+	protected static HeapNode linkTrees(HeapNode parent, HeapNode child) {
 		if (child.getKey() < parent.getKey()) {//swap to the correct parent-child relation
 			HeapNode temp = parent;
 			parent = child;
@@ -221,13 +1078,15 @@ public class FibonacciHeap {
 		child.setMark(false);// child is no longer a root so we need to make sure that it's mark is false
 		if (parent.getChild() == null) {// if the parent has no children we will put the child as the only child
 			parent.setChild(child);
-			connect2Nodes(child, child);
-
+			child.setNext(child);
+			child.setPrev(child);
 		} else {// we will put the child as the first one O(1)
 			HeapNode thisChild = parent.getChild();
 			HeapNode lastChild = thisChild.getPrev();
-			connect2Nodes(lastChild, child);
-			connect2Nodes(child, thisChild);
+			lastChild.setNext(child);
+			child.setPrev(lastChild);
+			child.setNext(thisChild);
+			thisChild.setPrev(child);
 			parent.setChild(child);
 		}
 		parent.setRank(parent.getRank() + 1);// change the rank of the parent to the correct one
@@ -252,13 +1111,23 @@ public class FibonacciHeap {
 	/**
 	 * public void meld (FibonacciHeap heap2)
 	 *
-	 * Melds heap2 with the current heap.
+	 * Melds heap2 with the current heap. If both heaps hold nodes with ids, their
+	 * indexes are merged, and an id found in both throws IllegalArgumentException
+	 * before anything is changed.
 	 *
 	 * Time complexity:
 	 *
-	 * O(1)
+	 * O(1), O(min(#ids)) when both heaps hold nodes with ids
 	 */
 	public void meld(FibonacciHeap heap2) {
+		ensureRoom(heap2.size);
+		mergeIndex(heap2);
+		// the work done on heap2 now belongs to this heap (it was already counted globally)
+		this.links += heap2.links;
+		this.cuts += heap2.cuts;
+		this.consolidations += heap2.consolidations;
+		this.rootsScanned += heap2.rootsScanned;
+		this.maxCascadeDepth = Math.max(this.maxCascadeDepth, heap2.maxCascadeDepth);
 		if(heap2.isEmpty()) {
 			//if the second one is empty we do nothing
 			return;
@@ -268,265 +1137,1565 @@ public class FibonacciHeap {
 			this.first=heap2.first;
 			this.marked=heap2.marked;
 			this.size=heap2.size;
+			this.tombstones=heap2.tombstones;
 			this.trees=heap2.trees;
 			this.min=heap2.min;
+			System.arraycopy(heap2.rootRanks, 0, rootRanks, 0, rootRanks.length);
+			return;
+		}
+		//we will set the first of the added heap as the next of the last of the original heap and vice versa
+		HeapNode thisLast = this.first.getPrev();
+		HeapNode thatLast = heap2.first.getPrev();
+		HeapNode thisFirst = this.first;
+		HeapNode thatFirst = heap2.first;
+		connect2Nodes(thisLast, thatFirst);
+		connect2Nodes(thatLast, thisFirst);
+		this.size += heap2.size;// add the attributes
+		this.tombstones += heap2.tombstones;
+		this.trees += heap2.trees;
+		this.marked += heap2.marked;
+		for (int r = 0; r < rootRanks.length; r++) {
+			rootRanks[r] += heap2.rootRanks[r];
+		}
+		min = this.min.getKey() < heap2.min.getKey() ? min : heap2.min; // check which of the minimums is the new minimum
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of elements in the heap.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * public int[] countersRep()
+	 *
+	 * Return an array of counters. The i-th entry contains the number of trees of
+	 * order i in the heap. Note: The size of of the array depends on the maximum
+	 * order of a tree, and an empty heap returns an empty array. The counts are
+	 * kept up to date by every change of the root list, so the roots are not
+	 * visited.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(max rank)
+	 * 
+	 */
+	public int[] countersRep() {
+		return Arrays.copyOf(rootRanks, maxRootRank() + 1);
+	}
+
+	/**
+	 * public int maxRootRank()
+	 *
+	 * Returns the highest rank of a tree in the heap, or -1 if the heap is empty.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(max rank)
+	 */
+	public int maxRootRank() {
+		int r = rootRanks.length - 1;
+		while (r >= 0 && rootRanks[r] == 0) {
+			r--;
+		}
+		return r;
+	}
+
+	/**
+	 * public void delete(HeapNode x)
+	 *
+	 * Deletes the node x from the heap. It is assumed that x indeed belongs to the
+	 * heap. With lazy deletion on (see setLazyDeletion) a node other than the
+	 * minimum is only marked as deleted.
+	 * 
+	 * Time complexity:
+	 * 
+	 * WC O(n)
+	 * 
+	 * Amort O(logn), Amort O(1) with lazy deletion
+	 *
+	 */
+	public void delete(HeapNode x) {
+		checkNode(x);
+		if (purgeFraction > 0 && x != min) {// lazy deletion, the minimum is always deleted eagerly
+			bury(x);
+			return;
+		}
+		if (x != min) {//if is not the minimum we force it to be the minimum
+			if (x.getParent() != null) {// cut to the root list, a key below the minimum may overflow
+				cutToRoot(x);//WC O(n), Amort O(1)
+			}
+			this.min = x;
+		}
+		//now it's the minimum and we delete it
+		this.deleteMin();//WC O(n), Amort O(logn)
+	}
+
+	/**
+	 * public void setLazyDeletion(double purgeFraction)
+	 * 
+	 * Turns lazy deletion on for a positive purgeFraction: delete then only marks
+	 * the node as deleted (a tombstone) and removes it from size() in O(1), the
+	 * tombstones are dropped when consolidate meets them as roots, and all of
+	 * them are purged at once when there are more than purgeFraction * size() of
+	 * them. Deleting the minimum stays eager so findMin never returns a
+	 * tombstone. 0 turns lazy deletion off and purges the tombstones. Throws
+	 * IllegalArgumentException if purgeFraction is negative or NaN.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1), O(n) when the tombstones are purged
+	 */
+	public void setLazyDeletion(double purgeFraction) {
+		if (!(purgeFraction >= 0)) {
+			throw new IllegalArgumentException("invalid purge fraction: " + purgeFraction);
+		}
+		this.purgeFraction = purgeFraction;
+		if (purgeFraction == 0 || tombstones > purgeFraction * size) {
+			purge();
+		}
+	}
+
+	/**
+	 * public int tombstones()
+	 * 
+	 * Returns the number of lazily deleted nodes that are still in the trees.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 */
+	public int tombstones() {
+		return tombstones;
+	}
+
+	/**
+	 * protected void bury(HeapNode x)
+	 * 
+	 * lazily deletes x, which is not the minimum, and purges when there are too
+	 * many tombstones
+	 * 
+	 * Time complexity:
+	 * 
+	 * Amort O(1)
+	 */
+	protected void bury(HeapNode x) {
+		if (index != null && x instanceof Indexed) {
+			index.remove(((Indexed) x).getId(), x);
+		}
+		x.tombstone = true;
+		tombstones++;
+		size--;
+		if (tombstones > purgeFraction * size) {
+			purge();
+		}
+	}
+
+	/**
+	 * public void purge()
+	 * 
+	 * Removes all the tombstones from the trees: every tombstone is cut to the
+	 * root list with the usual cascading cuts, its children become roots, and
+	 * the heap is consolidated once at the end.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(n)
+	 */
+	public void purge() {
+		if (tombstones == 0) {
+			return;
+		}
+		HeapNode[] buried = new HeapNode[tombstones];
+		int count = 0;
+		HeapNode[] stack = new HeapNode[64];
+		int depth = 0;
+		HeapNode root = first;
+		do {// preorder over all the trees, so a tombstone is found before its descendants
+			stack[depth++] = root;
+			while (depth > 0) {
+				HeapNode node = stack[--depth];
+				if (node.tombstone) {
+					buried[count++] = node;
+				}
+				HeapNode child = node.getChild();
+				if (child != null) {
+					do {
+						if (depth == stack.length) {
+							stack = Arrays.copyOf(stack, 2 * depth);
+						}
+						stack[depth++] = child;
+						child = child.getNext();
+					} while (child != node.getChild());
+				}
+			}
+			root = root.getNext();
+		} while (root != first);
+		long cutsBefore = cuts;
+		for (int i = 0; i < count; i++) {
+			HeapNode node = buried[i];
+			if (node.getParent() != null) {
+				cascadingCuts(node, node.getParent());
+			}
+			// node is a root now, it is replaced by its children
+			HeapNode next = node.getNext();
+			HeapNode prev = node.getPrev();
+			HeapNode child = node.getChild();
+			if (child != null) {
+				HeapNode c = child;
+				do {
+					if (c.isMark()) {
+						marked--;
+						c.setMark(false);
+					}
+					c.setParent(null);
+					c = c.getNext();
+				} while (c != child);
+				trees += node.getRank();
+			}
+			trees--;
+			if (next == node) {// the only root, size > 0 so it has children
+				first = child;
+			} else {
+				if (child == null) {
+					connect2Nodes(prev, next);
+				} else {
+					HeapNode lastChild = child.getPrev();
+					connect2Nodes(prev, child);
+					connect2Nodes(lastChild, next);
+				}
+				if (first == node) {
+					first = child != null ? child : next;
+				}
+			}
+			node.setChild(null);
+			node.tombstone = false;
+			recycle(node);
+		}
+		TOTAL_CUTS.add(cuts - cutsBefore);
+		tombstones = 0;
+		consolidate();
+	}
+
+	/**
+	 * public void decreaseKey(HeapNode x, int delta)
+	 * decreases the key of the node x by a non-negative value delta. The structure
+	 * of the heap should be updated to reflect this change (for example, the
+	 * cascading cuts procedure should be applied if needed).
+	 * 
+	 * Time complexity:
+	 * 
+	 * WC O(n)
+	 * 
+	 * Amort O(1)
+	 */
+	public void decreaseKey(HeapNode x, int delta) {
+		checkNode(x);
+		x.setKey(x.getKey() - delta);//change the key
+		if (x.getKey() < this.min.getKey()) {// if its's the new minimum we set it as the minimum
+			this.min = x;
+		}
+		if (x.getParent() == null || x.getParent().getKey() < x.getKey()) {// we didn't break any rule? GREAT!
+			return;
+		}
+		// if we broke a rule we'll use cascading cuts to cut the node
+		cutToRoot(x);//WC O(n), Amort O(1)
+	}
+
+	/**
+	 * protected void cutToRoot(HeapNode x)
+	 *
+	 * cuts the node x, which has a parent, to the root list with cascading cuts,
+	 * and records the depth of the cascade
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(1)
+	 */
+	protected void cutToRoot(HeapNode x) {
+		long cutsBefore = cuts;
+		cascadingCuts(x, x.getParent());
+		int depth = (int) (cuts - cutsBefore);
+		if (depth > maxCascadeDepth) {
+			maxCascadeDepth = depth;
+			MAX_CASCADE_DEPTH.accumulate(depth);
+		}
+		TOTAL_CUTS.add(depth);
+	}
+
+	/**
+	 * public void increaseKey(HeapNode x, int delta)
+	 *
+	 * increases the key of the node x by a non-negative value delta, keeping x in
+	 * the heap so its handle stays valid. Only the children of x that are now
+	 * smaller than it are cut to the root list. Losing one child marks a non-root
+	 * x, losing a second one cuts x like the cascading cuts of decreaseKey. If x
+	 * was the minimum the roots are scanned for the new one, there is no
+	 * consolidate unless lazily deleted nodes may hide the minimum.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(log(n)), O(#trees) more if x was the minimum
+	 */
+	public void increaseKey(HeapNode x, int delta) {
+		checkNode(x);
+		boolean wasMin = x == min; // insertNode may move min to a cut child
+		x.setKey(x.getKey() + delta);
+		long cutsBefore = cuts;
+		int lost = 0;
+		HeapNode child = x.getChild();
+		for (int i = x.getRank(); i > 0; i--) {// cut(child, x) decreases the rank, so count down a copy
+			HeapNode next = child.getNext();
+			if (child.getKey() < x.getKey()) {
+				if (child.isMark()) {
+					marked--;
+					child.setMark(false);
+				}
+				cut(child, x);
+				insertNode(child);
+				lost++;
+			}
+			child = next;
+		}
+		if (lost > 0 && x.getParent() != null) {
+			if (x.isMark() || lost > 1) {// x lost a second child
+				cascadingCuts(x, x.getParent());
+			} else {
+				x.setMark(true);
+				marked++;
+			}
+		}
+		TOTAL_CUTS.add(cuts - cutsBefore);
+		if (wasMin) {
+			if (tombstones > 0) {// a lazily deleted root may hide the minimum under it
+				consolidate();
+			} else {
+				rescanMin();
+			}
+		}
+	}
+
+	/**
+	 * protected void rescanMin()
+	 *
+	 * sets min to the smallest root of a non-empty heap without tombstones
+	 *
+	 * Time complexity:
+	 *
+	 * O(#trees)
+	 */
+	protected void rescanMin() {
+		HeapNode best = first;
+		int roots = 1;
+		for (HeapNode node = first.getNext(); node != first; node = node.getNext()) {
+			roots++;
+			if (node.getKey() < best.getKey()) {
+				best = node;
+			}
+		}
+		min = best;
+		rootsScanned += roots;
+		TOTAL_ROOTS_SCANNED.add(roots);
+	}
+
+	/**
+	 * public HeapNode insertWithId(long id, int key)
+	 * 
+	 * Inserts the key like insert, and indexes the new node by id so it can be
+	 * found by getById, decreaseKeyById, deleteById and upsert without keeping a
+	 * map from ids to nodes. The id is forgotten when the node is deleted. Throws
+	 * IllegalArgumentException if the heap already holds a node with this id.
+	 * 
+	 * Returns the newly created node.
+	 * 
+	 * Time complexity:
+	 * 
+	 * Amort O(1)
+	 */
+	public HeapNode insertWithId(long id, int key) {
+		if (containsId(id)) {
+			throw new IllegalArgumentException("duplicate id " + id);
+		}
+		return insertIndexed(id, key);
+	}
+
+	/**
+	 * protected HeapNode allocateIndexedNode(long id, int key)
+	 * 
+	 * allocates a new node with the key and the id for insertWithId and upsert.
+	 * The node must implement Indexed, subclasses that override allocateNode
+	 * override this too so their nodes can carry an id.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 */
+	protected HeapNode allocateIndexedNode(long id, int key) {
+		return new IndexedNode(key, id);
+	}
+
+	/**
+	 * protected HeapNode insertIndexed(long id, int key)
+	 * 
+	 * inserts a node with the key and the id, which is not in the heap.
+	 * 
+	 * Time complexity:
+	 * 
+	 * Amort O(1)
+	 */
+	protected HeapNode insertIndexed(long id, int key) {
+		ensureRoom(1);
+		if (index == null) {
+			index = new IdIndex();
+		}
+		HeapNode node = allocateIndexedNode(id, key);
+		size++;
+		insertNode(node);
+		index.put(id, node);
+		return node;
+	}
+
+	/**
+	 * public HeapNode getById(long id)
+	 * 
+	 * Returns the node inserted with the id, or null if there is none in the heap.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1) expected
+	 */
+	public HeapNode getById(long id) {
+		return index == null ? null : index.get(id);
+	}
+
+	/**
+	 * public boolean containsId(long id)
+	 * 
+	 * Returns true if and only if the heap holds a node inserted with the id.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1) expected
+	 */
+	public boolean containsId(long id) {
+		return getById(id) != null;
+	}
+
+	/**
+	 * public boolean decreaseKeyById(long id, int delta)
+	 * 
+	 * decreases the key of the node with the id by a non-negative delta.
+	 * 
+	 * Returns false (and does nothing) if there is no node with the id.
+	 * 
+	 * Time complexity:
+	 * 
+	 * WC O(n)
+	 * 
+	 * Amort O(1)
+	 */
+	public boolean decreaseKeyById(long id, int delta) {
+		HeapNode node = getById(id);
+		if (node == null) {
+			return false;
+		}
+		decreaseKey(node, delta);
+		return true;
+	}
+
+	/**
+	 * public boolean deleteById(long id)
+	 * 
+	 * Deletes the node with the id.
+	 * 
+	 * Returns false (and does nothing) if there is no node with the id.
+	 * 
+	 * Time complexity:
+	 * 
+	 * WC O(n)
+	 * 
+	 * Amort O(logn)
+	 */
+	public boolean deleteById(long id) {
+		HeapNode node = getById(id);
+		if (node == null) {
+			return false;
+		}
+		delete(node);
+		return true;
+	}
+
+	/**
+	 * public HeapNode upsert(long id, int key)
+	 * 
+	 * Inserts the key with the id if there is no node with the id, and otherwise
+	 * decreases the key of that node to key if key is smaller (the relax step of
+	 * Dijkstra and Prim). A bigger key leaves the node as it is.
+	 * 
+	 * Returns the node of the id.
+	 * 
+	 * Time complexity:
+	 * 
+	 * Amort O(1)
+	 */
+	public HeapNode upsert(long id, int key) {
+		HeapNode node = getById(id);
+		if (node == null) {
+			return insertIndexed(id, key);
+		}
+		if (key < node.getKey()) {
+			decreaseKey(node, node.getKey() - key);
+		}
+		return node;
+	}
+
+	/**
+	 * protected void mergeIndex(FibonacciHeap heap2)
+	 * 
+	 * merges the id index of heap2 into the index of this heap for meld, adding
+	 * the smaller index to the bigger one. Throws IllegalArgumentException if an
+	 * id is in both, without changing either heap.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1), O(min(#ids)) when both heaps have an index
+	 */
+	protected void mergeIndex(FibonacciHeap heap2) {
+		if (heap2.index == null || heap2.index.count == 0) {
+			return;
+		}
+		if (index == null || index.count == 0) {
+			index = heap2.index;
+			heap2.index = null;
+			return;
+		}
+		IdIndex big = index.count >= heap2.index.count ? index : heap2.index;
+		IdIndex small = big == index ? heap2.index : index;
+		for (int i = 0; i < small.nodes.length; i++) {
+			if (small.nodes[i] != null && big.get(small.ids[i]) != null) {
+				throw new IllegalArgumentException("both heaps hold id " + small.ids[i]);
+			}
+		}
+		for (int i = 0; i < small.nodes.length; i++) {
+			if (small.nodes[i] != null) {
+				big.put(small.ids[i], small.nodes[i]);
+			}
+		}
+		index = big;
+		heap2.index = null;
+	}
+
+	/**
+	 * public void decreaseKeys(HeapNode[] nodes, int[] deltas)
+	 * 
+	 * decreases the key of nodes[i] by the non-negative deltas[i] for every i, like
+	 * calling decreaseKey for each pair, but in batch: all the keys are changed
+	 * first, then the nodes that break the heap order are cut in a single pass, and
+	 * the minimum is updated once at the end. A node whose parent was decreased
+	 * below it in the same batch is not cut at all. The cascading cuts walk up the
+	 * chain of marked parents iteratively, so deep chains cannot overflow the
+	 * stack. Throws IllegalArgumentException if the arrays differ in length.
+	 * 
+	 * Time complexity:
+	 * 
+	 * WC O(n)
+	 * 
+	 * Amort O(k) for k nodes
+	 */
+	public void decreaseKeys(HeapNode[] nodes, int[] deltas) {
+		if (nodes.length != deltas.length) {
+			throw new IllegalArgumentException(nodes.length + " nodes but " + deltas.length + " deltas");
+		}
+		for (HeapNode x : nodes) {
+			checkNode(x);
+		}
+		for (int i = 0; i < nodes.length; i++) {// changing all the keys first
+			nodes[i].setKey(nodes[i].getKey() - deltas[i]);
+		}
+		long cutsBefore = cuts;
+		HeapNode newMin = min;
+		for (HeapNode x : nodes) {
+			HeapNode parent = x.getParent();
+			if (parent != null && parent.getKey() >= x.getKey()) {// the same rule decreaseKey cuts by
+				cutChain(x, parent);
+			}
+			if (x.getParent() == null && x.getKey() < newMin.getKey()) {// only decreased roots can be the new minimum
+				newMin = x;
+			}
+		}
+		min = newMin;
+		TOTAL_CUTS.add(cuts - cutsBefore);
+	}
+
+	/**
+	 * protected void cutChain(HeapNode child, HeapNode parent)
+	 * 
+	 * the iterative form of cascadingCuts for decreaseKeys: cuts child and then
+	 * every marked ancestor, adding them as roots without touching min.
+	 * 
+	 * Time complexity:
+	 * 
+	 * WC O(n)
+	 * 
+	 * Amort O(1)
+	 */
+	protected void cutChain(HeapNode child, HeapNode parent) {
+		int depth = 0;
+		while (true) {
+			if (child.isMark()) {// it is going to be a root so unmark
+				this.marked--;
+				child.setMark(false);
+			}
+			cut(child, parent);
+			addRoot(child);
+			depth++;
+			if (parent.getParent() == null) {
+				break;
+			}
+			if (!parent.isMark()) {
+				parent.setMark(true);
+				this.marked++;
+				break;
+			}
+			child = parent;
+			parent = parent.getParent();
+		}
+		if (depth > maxCascadeDepth) {
+			maxCascadeDepth = depth;
+			MAX_CASCADE_DEPTH.accumulate(depth);
+		}
+	}
+
+	/**
+	 * public void delete(HeapNode x, int generation)
+	 * 
+	 * Deletes the node x from the heap after checking that x still holds the entry
+	 * of the given generation (the value x.getGeneration() returned right after
+	 * x was inserted).
+	 * 
+	 * Time complexity:
+	 * 
+	 * WC O(n)
+	 * 
+	 * Amort O(logn)
+	 */
+	public void delete(HeapNode x, int generation) {
+		checkNode(x, generation);
+		delete(x);
+	}
+
+	/**
+	 * public void decreaseKey(HeapNode x, int delta, int generation)
+	 * 
+	 * decreases the key of the node x by delta after checking that x still holds
+	 * the entry of the given generation.
+	 * 
+	 * Time complexity:
+	 * 
+	 * WC O(n)
+	 * 
+	 * Amort O(1)
+	 */
+	public void decreaseKey(HeapNode x, int delta, int generation) {
+		checkNode(x, generation);
+		decreaseKey(x, delta);
+	}
+
+	/**
+	 * protected void cascadingCuts(HeapNode child, HeapNode parent) 
+	 * 
+	 * cuts the current node from the tree and checking if the parent is marked, and if it is continue until the parent is marked or it's a root
+	 * 
+	 * Time complexity:
+	 * 
+	 * WC O(n)
+	 * 
+	 * Amort O(1)
+	 * 
+	 */
+	protected void cascadingCuts(HeapNode child, HeapNode parent) {
+		if (child.isMark()) {//if it is marked it's going to be a root so unmark
+			this.marked--;
+			child.setMark(false);
+		}
+		cut(child, parent);// cutting O(1)
+		insertNode(child);//insert it as a tree
+		if (parent.getParent() != null) {
+			if (parent.isMark()) {
+				cascadingCuts(parent, parent.getParent());// recursion as we saw in lecture WC O(n) Amort O(1)
+
+			} else {
+				parent.setMark(true);//if we don't need to continue just mark the parent and finish
+				this.marked++;
+			}
+
+		}
+	}
+	
+	/**
+	 * protected void cut(HeapNode child, HeapNode parent)
+	 * 
+	 * Receives a parent and it's child disconnecting the child from the parent and affectively making it a new tree.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 * 
+	 */
+	protected void cut(HeapNode child, HeapNode parent) {
+		cuts++;// add to the count of cuts, the caller publishes it
+		child.setParent(null);// Setting it's parent to be null
+		if (child.getNext() == child) {// if it's the only child, parent is going to have no children
+			parent.setChild(null);
+		} else {
+			if(parent.child==child) {// if it's the first child the paren't direct child changes
+				parent.setChild(child.getNext());
+			}
+			HeapNode next = child.getNext();
+			HeapNode prev = child.getPrev();
+			connect2Nodes(prev, next);// connect the relevant children
+		}
+		if (parent.getParent() == null) {// a root loses a rank
+			rootRanks[parent.getRank()]--;
+			rootRanks[parent.getRank() - 1]++;
+		}
+		parent.setRank(parent.getRank() - 1);// decrease the rank
+	}
+
+	/**
+	 * public int potential()
+	 *
+	 * This function returns the current potential of the heap, which is: Potential
+	 * = #trees + 2*#marked
+	 * 
+	 * In words: The potential equals to the number of trees in the heap plus twice
+	 * the number of marked nodes in the heap.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1) calculation
+	 */
+	public int potential() {
+		return trees + 2 * marked; //calculation
+	}
+
+	/**
+	 * public static int totalLinks()
+	 *
+	 * This static function returns the total number of link operations made during
+	 * the run-time of the program. A link operation is the operation which gets as
+	 * input two trees of the same rank, and generates a tree of rank bigger by one,
+	 * by hanging the tree which has larger value in its root under the other tree.
+	 * It is the sum of links() over all the heaps, truncated to an int.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(#threads)
+	 */
+	public static int totalLinks() {
+		return TOTAL_LINKS.intValue();
+	}
+
+	/**
+	 * public static int totalCuts()
+	 *
+	 * This static function returns the total number of cut operations made during
+	 * the run-time of the program. A cut operation is the operation which
+	 * disconnects a subtree from its parent (during decreaseKey/delete methods).
+	 * It is the sum of cuts() over all the heaps, truncated to an int.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(#threads)
+	 */
+	public static int totalCuts() {
+		return TOTAL_CUTS.intValue();
+	}
+
+	/**
+	 * public static long totalConsolidations()
+	 * 
+	 * Returns the number of consolidations made by all the heaps.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(#threads)
+	 */
+	public static long totalConsolidations() {
+		return TOTAL_CONSOLIDATIONS.sum();
+	}
+
+	/**
+	 * public static long totalRootsScanned()
+	 * 
+	 * Returns the number of roots scanned by the consolidations of all the heaps.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(#threads)
+	 */
+	public static long totalRootsScanned() {
+		return TOTAL_ROOTS_SCANNED.sum();
+	}
+
+	/**
+	 * public static int maxTotalCascadingCutDepth()
+	 * 
+	 * Returns the largest number of cuts a single decreaseKey/delete made in any of
+	 * the heaps.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(#threads)
+	 */
+	public static int maxTotalCascadingCutDepth() {
+		return (int) MAX_CASCADE_DEPTH.get();
+	}
+
+	/**
+	 * public long links()
+	 * 
+	 * Returns the number of link operations made by this heap (and by the heaps
+	 * melded into it).
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 */
+	public long links() {
+		return links;
+	}
+
+	/**
+	 * public long cuts()
+	 * 
+	 * Returns the number of cut operations made by this heap (and by the heaps
+	 * melded into it).
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 */
+	public long cuts() {
+		return cuts;
+	}
+
+	/**
+	 * public long consolidations()
+	 * 
+	 * Returns the number of consolidations made by this heap (and by the heaps
+	 * melded into it).
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 */
+	public long consolidations() {
+		return consolidations;
+	}
+
+	/**
+	 * public long rootsScanned()
+	 * 
+	 * Returns the number of roots the consolidations of this heap went over, the
+	 * amortized cost that deleteMin paid. A parallel consolidate counts the trees
+	 * its chunks left, the roots it linked in the chunks are not counted.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 */
+	public long rootsScanned() {
+		return rootsScanned;
+	}
+
+	/**
+	 * public int maxCascadingCutDepth()
+	 * 
+	 * Returns the largest number of cuts a single decreaseKey/delete of this heap
+	 * made.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(1)
+	 */
+	public int maxCascadingCutDepth() {
+		return maxCascadeDepth;
+	}
+
+	/**
+	 * public void writeTo(WritableByteChannel channel)
+	 * 
+	 * Writes a snapshot of the heap to the channel that readFrom turns back into a
+	 * heap of the same shape: the same trees with their children in the same
+	 * order, the same marks, ids, lazily deleted nodes, minimum and counters, so
+	 * potential() and countersRep() are unchanged. The node pool and the handles
+	 * are not part of the snapshot.
+	 * 
+	 * After a header the nodes follow in preorder, tree by tree from the first
+	 * root. Each node is a varint of its flags (mark, deleted, has an id), the
+	 * zigzag varint of its id if it has one, a varint of its rank and the varint
+	 * of its key minus its parent's key - never negative by heap order - or, for
+	 * a root, the zigzag varint of its key minus the previous root's key. The
+	 * bytes go through one direct buffer, so a heap of n nodes takes O(1) extra
+	 * memory besides the O(height) traversal stack.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(n)
+	 */
+	public void writeTo(WritableByteChannel channel) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER);
+		buf.putInt(SNAPSHOT_MAGIC);
+		putVarLong(buf, size);
+		putVarLong(buf, tombstones);
+		putVarLong(buf, trees);
+		putVarLong(buf, marked);
+		putVarLong(buf, links);
+		putVarLong(buf, cuts);
+		putVarLong(buf, consolidations);
+		putVarLong(buf, rootsScanned);
+		putVarLong(buf, maxCascadeDepth);
+		buf.putDouble(purgeFraction);
+		int minIndex = 0;
+		if (!isEmpty()) {
+			for (HeapNode root = first; root != min; root = root.getNext()) {
+				minIndex++;
+			}
+		}
+		putVarLong(buf, minIndex);
+
+		HeapNode[] stack = new HeapNode[16];
+		int depth = 0;
+		int previousRoot = 0;
+		HeapNode root = first;
+		for (int i = 0; i < trees; i++, root = root.getNext()) {
+			stack[depth++] = root;
+			while (depth > 0) {
+				HeapNode node = stack[--depth];
+				if (buf.remaining() < SNAPSHOT_MAX_RECORD) {
+					flush(channel, buf);
+				}
+				int flags = (node.mark ? 1 : 0) | (node.tombstone ? 2 : 0) | (node instanceof Indexed ? 4 : 0);
+				putVarLong(buf, flags);
+				if (node instanceof Indexed) {
+					putVarLong(buf, zigzag(((Indexed) node).getId()));
+				}
+				putVarLong(buf, node.getRank());
+				if (node.getParent() == null) {
+					putVarLong(buf, zigzag((long) node.getKey() - previousRoot));
+					previousRoot = node.getKey();
+				} else {
+					putVarLong(buf, (long) node.getKey() - node.getParent().getKey());
+				}
+				if (node.getChild() != null) {// push the children last to first so the first is written next
+					if (depth + node.getRank() > stack.length) {
+						stack = Arrays.copyOf(stack, Math.max(2 * stack.length, depth + node.getRank()));
+					}
+					HeapNode child = node.getChild().getPrev();
+					for (int j = 0; j < node.getRank(); j++, child = child.getPrev()) {
+						stack[depth++] = child;
+					}
+				}
+			}
+		}
+		flush(channel, buf);
+	}
+
+	/**
+	 * public static FibonacciHeap readFrom(ReadableByteChannel channel)
+	 * 
+	 * Reads a snapshot written by writeTo and returns the heap it describes. The
+	 * trees are linked directly as they were written, without insert or
+	 * consolidate, and the counters of this heap are not added to the totals
+	 * (totalLinks() etc.) again. Nodes with an id can be found with getById.
+	 * Throws IOException if the channel fails, ends early or does not hold a
+	 * consistent snapshot.
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(n)
+	 */
+	public static FibonacciHeap readFrom(ReadableByteChannel channel) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER);
+		buf.flip();
+		try {
+			fill(channel, buf, SNAPSHOT_MAX_HEADER);
+			if (buf.getInt() != SNAPSHOT_MAGIC) {
+				throw new IOException("not a FibonacciHeap snapshot");
+			}
+			FibonacciHeap heap = new FibonacciHeap();
+			int size = getVarInt(buf);
+			int tombstones = getVarInt(buf);
+			int trees = getVarInt(buf);
+			int marked = getVarInt(buf);
+			heap.links = getVarLong(buf);
+			heap.cuts = getVarLong(buf);
+			heap.consolidations = getVarLong(buf);
+			heap.rootsScanned = getVarLong(buf);
+			heap.maxCascadeDepth = getVarInt(buf);
+			heap.purgeFraction = buf.getDouble();
+			int minIndex = getVarInt(buf);
+			if ((long) size + tombstones < trees || (trees == 0) != (size == 0) || (minIndex >= trees && trees > 0)
+					|| !(heap.purgeFraction >= 0)) {
+				throw new IOException("corrupt snapshot header");
+			}
+
+			// the nodes whose children are still being read, and how many are missing
+			HeapNode[] parents = new HeapNode[16];
+			int[] missing = new int[16];
+			int depth = 0;
+			long nodes = 0;
+			int markedSeen = 0;
+			int tombstonesSeen = 0;
+			int previousRoot = 0;
+			for (int i = 0; i < trees; i++) {
+				do {
+					HeapNode parent = null;
+					if (depth > 0) {
+						if (missing[depth - 1] == 0) {
+							depth--;
+							continue;
+						}
+						missing[depth - 1]--;
+						parent = parents[depth - 1];
+					}
+					fill(channel, buf, SNAPSHOT_MAX_RECORD);
+					int flags = getVarInt(buf);
+					if ((flags & ~7) != 0 || ++nodes > (long) size + tombstones) {
+						throw new IOException("corrupt snapshot node");
+					}
+					HeapNode node = (flags & 4) != 0 ? new IndexedNode(0, unzigzag(getVarLong(buf))) : new HeapNode(0);
+					int rank = getVarInt(buf);
+					long key = parent == null ? previousRoot + unzigzag(getVarLong(buf))
+							: parent.getKey() + getVarLong(buf);
+					if (key != (int) key) {
+						throw new IOException("corrupt snapshot key");
+					}
+					node.setKey((int) key);
+					node.setRank(rank);
+					node.mark = (flags & 1) != 0;
+					node.tombstone = (flags & 2) != 0;
+					markedSeen += node.mark ? 1 : 0;
+					tombstonesSeen += node.tombstone ? 1 : 0;
+					if (parent == null) {// append as the last root
+						if (rank >= heap.rootRanks.length) {
+							throw new IOException("corrupt snapshot rank: " + rank);
+						}
+						heap.rootRanks[rank]++;
+						previousRoot = node.getKey();
+						if (heap.first == null) {
+							heap.first = node;
+							heap.connect2Nodes(node, node);
+						} else {
+							heap.connect2Nodes(heap.first.getPrev(), node);
+							heap.connect2Nodes(node, heap.first);
+						}
+						if (i == minIndex) {
+							heap.min = node;
+						}
+					} else {// append as the last child
+						node.setParent(parent);
+						if (parent.getChild() == null) {
+							parent.setChild(node);
+							heap.connect2Nodes(node, node);
+						} else {
+							heap.connect2Nodes(parent.getChild().getPrev(), node);
+							heap.connect2Nodes(node, parent.getChild());
+						}
+					}
+					if (node instanceof IndexedNode && !node.tombstone) {
+						long id = ((IndexedNode) node).getId();
+						if (heap.index == null) {
+							heap.index = new IdIndex();
+						}
+						if (heap.index.get(id) != null) {
+							throw new IOException("duplicate id in snapshot: " + id);
+						}
+						heap.index.put(id, node);
+					}
+					if (depth == parents.length) {
+						parents = Arrays.copyOf(parents, 2 * depth);
+						missing = Arrays.copyOf(missing, 2 * depth);
+					}
+					parents[depth] = node;
+					missing[depth++] = rank;
+				} while (depth > 0);
+			}
+			if (nodes != (long) size + tombstones || markedSeen != marked || tombstonesSeen != tombstones
+					|| (heap.min != null && heap.min.tombstone)) {
+				throw new IOException("corrupt snapshot: the nodes do not match the header");
+			}
+			heap.size = size;
+			heap.trees = trees;
+			heap.marked = marked;
+			heap.tombstones = tombstones;
+			return heap;
+		} catch (BufferUnderflowException e) {
+			throw new EOFException("truncated FibonacciHeap snapshot");
+		}
+	}
+
+	/**
+	 * protected static void flush(WritableByteChannel channel, ByteBuffer buf)
+	 * 
+	 * writes the contents of buf to the channel and clears it
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(buf.position())
+	 */
+	protected static void flush(WritableByteChannel channel, ByteBuffer buf) throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+		buf.clear();
+	}
+
+	/**
+	 * protected static void fill(ReadableByteChannel channel, ByteBuffer buf, int need)
+	 * 
+	 * makes buf hold at least need unread bytes, or everything left in the
+	 * channel if that is less
+	 * 
+	 * Time complexity:
+	 * 
+	 * O(buf.capacity()) when it reads, O(1) otherwise
+	 */
+	protected static void fill(ReadableByteChannel channel, ByteBuffer buf, int need) throws IOException {
+		if (buf.remaining() >= need) {
 			return;
 		}
-		//we will set the first of the added heap as the next of the last of the original heap and vice versa
-		HeapNode thisLast = this.first.getPrev();
-		HeapNode thatLast = heap2.first.getPrev();
-		HeapNode thisFirst = this.first;
-		HeapNode thatFirst = heap2.first;
-		connect2Nodes(thisLast, thatFirst);
-		connect2Nodes(thatLast, thisFirst);
-		this.size += heap2.size;// add the attributes
-		this.trees += heap2.trees;
-		this.marked += heap2.marked;
-		min = this.min.getKey() < heap2.min.getKey() ? min : heap2.min; // check which of the minimums is the new minimum
+		buf.compact();
+		while (buf.position() < need && channel.read(buf) >= 0) {
+		}
+		buf.flip();
 	}
 
 	/**
-	 * public int size()
-	 *
-	 * Returns the number of elements in the heap.
+	 * protected static void putVarLong(ByteBuffer buf, long value)
+	 * 
+	 * writes value as an unsigned varint: 7 bits per byte, low bits first, the
+	 * high bit set on all but the last byte
 	 * 
 	 * Time complexity:
 	 * 
 	 * O(1)
 	 */
-	public int size() {
-		return this.size;
+	protected static void putVarLong(ByteBuffer buf, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buf.put((byte) (value | 0x80));
+			value >>>= 7;
+		}
+		buf.put((byte) value);
 	}
 
 	/**
-	 * public int[] countersRep()
-	 *
-	 * Return an array of counters. The i-th entry contains the number of trees of
-	 * order i in the heap. Note: The size of of the array depends on the maximum
-	 * order of a tree, and an empty heap returns an empty array.
+	 * protected static long getVarLong(ByteBuffer buf)
 	 * 
-	 * Time complexity:
+	 * reads an unsigned varint written by putVarLong
 	 * 
-	 * WC O(n)
+	 * Time complexity:
 	 * 
+	 * O(1)
 	 */
-	public int[] countersRep() {
-		if (this.isEmpty()) {//special case
-			return new int[0];
-		}
-		HeapNode node = this.first;
-		int max_rank = 0;
-
-		do {// iterating over the nodes to check what is the highest rank we have (we go over all the trees so it can be O(n))
-			if (node.getRank() >= max_rank) {
-				max_rank = node.getRank();
+	protected static long getVarLong(ByteBuffer buf) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = buf.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
 			}
-			node = node.getNext();
-		} while (node != this.first);
-
-		int[] res = new int[max_rank + 1];// make an array with a slot for each rank
-
-		node = this.first;
-
-		do {//iterating over the roots and counting the ranks in the array (we go over all the trees so it can be O(n))
-			int rank = node.getRank();
-			res[rank]++;
-			node=node.getNext();
-		} while (node != this.first);
-
-		return res;
+		}
+		throw new IOException("corrupt snapshot varint");
 	}
 
 	/**
-	 * public void delete(HeapNode x)
-	 *
-	 * Deletes the node x from the heap. It is assumed that x indeed belongs to the
-	 * heap.
+	 * protected static int getVarInt(ByteBuffer buf)
 	 * 
-	 * Time complexity:
+	 * reads an unsigned varint that has to fit in a non-negative int
 	 * 
-	 * WC O(n)
+	 * Time complexity:
 	 * 
-	 * Amort O(logn)
-	 *
+	 * O(1)
 	 */
-	public void delete(HeapNode x) {
-
-		if (x != min) {//if is not the minimum we force it to be the minimum
-			decreaseKey(x, x.getKey() - this.min.getKey() + 1);//WC O(n), Amort O(1)
+	protected static int getVarInt(ByteBuffer buf) throws IOException {
+		long value = getVarLong(buf);
+		if (value < 0 || value > Integer.MAX_VALUE) {
+			throw new IOException("corrupt snapshot: " + value + " out of range");
 		}
-		//now it's the minimum and we delete it
-		this.deleteMin();//WC O(n), Amort O(logn)
+		return (int) value;
 	}
 
 	/**
-	 * public void decreaseKey(HeapNode x, int delta)
-	 * decreases the key of the node x by a non-negative value delta. The structure
-	 * of the heap should be updated to reflect this change (for example, the
-	 * cascading cuts procedure should be applied if needed).
+	 * protected static long zigzag(long value)
 	 * 
-	 * Time complexity:
+	 * maps signed values to unsigned ones so small magnitudes get short varints:
+	 * 0, -1, 1, -2, ... become 0, 1, 2, 3, ...
 	 * 
-	 * WC O(n)
+	 * Time complexity:
 	 * 
-	 * Amort O(1)
+	 * O(1)
 	 */
-	public void decreaseKey(HeapNode x, int delta) {		
-		x.setKey(x.getKey() - delta);//change the key
-		if (x.getKey() < this.min.getKey()) {// if its's the new minimum we set it as the minimum
-			this.min = x;
-		}
-		if (x.getParent() == null || x.getParent().getKey() < x.getKey()) {// we didn't break any rule? GREAT!
-			return;
-		}
-		// if we broke a rule we'll use cascading cuts to cut the node
-		cascadingCuts(x, x.getParent());//WC O(n), Amort O(1)
-
+	protected static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
 	}
-	
+
 	/**
-	 * protected void cascadingCuts(HeapNode child, HeapNode parent) 
+	 * protected static long unzigzag(long value)
 	 * 
-	 * cuts the current node from the tree and checking if the parent is marked, and if it is continue until the parent is marked or it's a root
+	 * the inverse of zigzag
 	 * 
 	 * Time complexity:
 	 * 
-	 * WC O(n)
+	 * O(1)
+	 */
+	protected static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * public static int[] kMin(FibonacciHeap H, int k)
+	 *
+	 * This static function returns the k smallest elements of H in ascending order
+	 * (all of them if H has fewer than k) without changing H. It works for any
+	 * shape of heap, see peekK.
 	 * 
-	 * Amort O(1)
+	 * Time complexity:
+	 * 
+	 * O(#trees + k*deg(H)*log(k*deg(H)))
 	 * 
 	 */
-	protected void cascadingCuts(HeapNode child, HeapNode parent) {
-		if (child.isMark()) {//if it is marked it's going to be a root so unmark
-			this.marked--;
-			child.setMark(false);
-		}
-		cut(child, parent);// cutting O(1)
-		insertNode(child);//insert it as a tree
-		if (parent.getParent() != null) {
-			if (parent.isMark()) {
-				cascadingCuts(parent, parent.getParent());// recursion as we saw in lecture WC O(n) Amort O(1)
-
-			} else {
-				parent.setMark(true);//if we don't need to continue just mark the parent and finish
-				this.marked++;
-			}
-
-		}
+	public static int[] kMin(FibonacciHeap H, int k) {
+		int[] res = new int[Math.max(0, Math.min(k, H.size()))];
+		H.peekK(k, res);
+		return res;
 	}
-	
+
 	/**
-	 * protected void cut(HeapNode child, HeapNode parent)
+	 * public int peekK(int k, int[] dst)
 	 * 
-	 * Receives a parent and it's child disconnecting the child from the parent and affectively making it a new tree.
+	 * Writes the k smallest keys of the heap (all of them if it has fewer) to
+	 * dst[0, count) in ascending order without changing the heap, and returns
+	 * count. The candidates - all the roots, then the children of every key that
+	 * was taken - are kept in a binary heap of primitive keys with the nodes in a
+	 * parallel array, both kept in the heap between calls, so no garbage is
+	 * created once they are big enough. Throws IllegalArgumentException if k is
+	 * negative or dst is shorter than the count.
 	 * 
 	 * Time complexity:
 	 * 
-	 * O(1)
-	 * 
+	 * O(#trees + k*deg(H)*log(k*deg(H)))
 	 */
-	protected void cut(HeapNode child, HeapNode parent) {
-		cuts++;// add to the overall count of cuts
-		child.setParent(null);// Setting it's parent to be null
-		if (child.getNext() == child) {// if it's the only child, parent is going to have no children
-			parent.setChild(null);
-		} else {
-			if(parent.child==child) {// if it's the first child the paren't direct child changes
-				parent.setChild(child.getNext());
+	public int peekK(int k, int[] dst) {
+		if (k < 0) {
+			throw new IllegalArgumentException("negative k: " + k);
+		}
+		int count = Math.min(k, size);
+		if (dst.length < count) {
+			throw new IllegalArgumentException("dst holds " + dst.length + " keys but " + count + " are needed");
+		}
+		if (count == 0) {
+			return 0;
+		}
+		int candidates = 0;
+		int used = 0; // the prefix of kMinNodes to clear at the end
+		ensureCandidates(trees);
+		HeapNode root = first;
+		do {// the roots are heapified bottom-up, O(#trees)
+			kMinKeys[candidates] = root.getKey();
+			kMinNodes[candidates++] = root;
+			root = root.getNext();
+		} while (root != first);
+		for (int i = (candidates >>> 1) - 1; i >= 0; i--) {
+			siftDownCandidate(i, candidates);
+		}
+		used = candidates;
+		for (int i = 0; i < count;) {
+			HeapNode node = kMinNodes[0];
+			if (!node.tombstone) {// a lazily deleted node is skipped but its children are candidates
+				dst[i++] = kMinKeys[0];
+			}
+			candidates--;
+			kMinKeys[0] = kMinKeys[candidates];
+			kMinNodes[0] = kMinNodes[candidates];
+			siftDownCandidate(0, candidates);
+			HeapNode child = node.getChild();
+			if (child != null) {// at most deg(H) children
+				ensureCandidates(candidates + node.getRank());
+				do {
+					siftUpCandidate(candidates++, child.getKey(), child);
+					child = child.getNext();
+				} while (child != node.getChild());
+				used = Math.max(used, candidates);
 			}
-			HeapNode next = child.getNext();
-			HeapNode prev = child.getPrev();
-			connect2Nodes(prev, next);// connect the relevant children
 		}
-		parent.setRank(parent.getRank() - 1);// decrease the rank
+		Arrays.fill(kMinNodes, 0, used, null);// so the scratch does not keep deleted nodes alive
+		return count;
 	}
 
 	/**
-	 * public int potential()
-	 *
-	 * This function returns the current potential of the heap, which is: Potential
-	 * = #trees + 2*#marked
+	 * protected void ensureCandidates(int capacity)
 	 * 
-	 * In words: The potential equals to the number of trees in the heap plus twice
-	 * the number of marked nodes in the heap.
+	 * grows the scratch arrays of peekK to hold at least capacity candidates
 	 * 
 	 * Time complexity:
 	 * 
-	 * O(1) calculation
+	 * Amort O(1) per candidate
 	 */
-	public int potential() {
-		return trees + 2 * marked; //calculation
+	protected void ensureCandidates(int capacity) {
+		if (kMinKeys == null || kMinKeys.length < capacity) {
+			int length = Math.max(Math.max(capacity, 16), kMinKeys == null ? 0 : 2 * kMinKeys.length);
+			kMinKeys = kMinKeys == null ? new int[length] : Arrays.copyOf(kMinKeys, length);
+			kMinNodes = kMinNodes == null ? new HeapNode[length] : Arrays.copyOf(kMinNodes, length);
+		}
 	}
 
 	/**
-	 * public static int totalLinks()
-	 *
-	 * This static function returns the total number of link operations made during
-	 * the run-time of the program. A link operation is the operation which gets as
-	 * input two trees of the same rank, and generates a tree of rank bigger by one,
-	 * by hanging the tree which has larger value in its root under the other tree.
+	 * protected void siftUpCandidate(int i, int key, HeapNode node)
+	 * 
+	 * puts the candidate at position i of the binary heap of peekK and sifts it up
 	 * 
 	 * Time complexity:
 	 * 
-	 * O(1)
+	 * O(log i)
 	 */
-	public static int totalLinks() {
-		return links;
+	protected void siftUpCandidate(int i, int key, HeapNode node) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (kMinKeys[parent] <= key) {
+				break;
+			}
+			kMinKeys[i] = kMinKeys[parent];
+			kMinNodes[i] = kMinNodes[parent];
+			i = parent;
+		}
+		kMinKeys[i] = key;
+		kMinNodes[i] = node;
 	}
 
 	/**
-	 * public static int totalCuts()
-	 *
-	 * This static function returns the total number of cut operations made during
-	 * the run-time of the program. A cut operation is the operation which
-	 * disconnects a subtree from its parent (during decreaseKey/delete methods).
+	 * protected void siftDownCandidate(int i, int count)
+	 * 
+	 * sifts the candidate at position i of the binary heap [0, count) of peekK down
 	 * 
 	 * Time complexity:
 	 * 
-	 * O(1)
+	 * O(log count)
 	 */
-	public static int totalCuts() {
-		return cuts; 
+	protected void siftDownCandidate(int i, int count) {
+		int key = kMinKeys[i];
+		HeapNode node = kMinNodes[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= count) {
+				break;
+			}
+			if (child + 1 < count && kMinKeys[child + 1] < kMinKeys[child]) {
+				child++;
+			}
+			if (key <= kMinKeys[child]) {
+				break;
+			}
+			kMinKeys[i] = kMinKeys[child];
+			kMinNodes[i] = kMinNodes[child];
+			i = child;
+		}
+		kMinKeys[i] = key;
+		kMinNodes[i] = node;
 	}
 
 	/**
-	 * public static int[] kMin(FibonacciHeap H, int k)
-	 *
-	 * This static function returns the k smallest elements in a Fibonacci heap that
-	 * contains a single tree. The function should run in O(k*deg(H)). (deg(H) is
-	 * the degree of the only tree in H.)
+	 * public interface Indexed
 	 * 
-	 * ###CRITICAL### : you are NOT allowed to change H.
-	 * 
-	 * Time complexity:
+	 * Implemented by the nodes that carry an id (see allocateIndexedNode).
+	 */
+	public interface Indexed {
+		/**
+		 * public long getId()
+		 * 
+		 * returns the id of the node
+		 */
+		long getId();
+	}
+
+	/**
+	 * public static class IndexedNode
 	 * 
-	 * O(k*deg(H)) 
+	 * A node inserted with an id (see insertWithId).
+	 */
+	public static class IndexedNode extends HeapNode implements Indexed {
+		protected final long id;
+
+		/**
+		 * public IndexedNode(int key, long id)
+		 *
+		 * Constructs a new node with the key and the id
+		 * 
+		 * Time complexity: 
+		 * O(1)
+		 */
+		public IndexedNode(int key, long id) {
+			super(key);
+			this.id = id;
+		}
+
+		/**
+		 * public long getId()
+		 * 
+		 * returns the id of the node
+		 * 
+		 * Time Complexity:
+		 * 
+		 * O(1)
+		 */
+		public long getId() {
+			return id;
+		}
+	}
+
+	/**
+	 * protected static class IdIndex
 	 * 
+	 * An open-addressing hash map from long ids to nodes with linear probing and
+	 * backward-shift deletion, kept at most half full. No boxing and no entry
+	 * objects. The home slot is a Fibonacci hash of the whole id, so strided ids
+	 * do not pile up into long probe runs.
 	 */
-	public static int[] kMin(FibonacciHeap H, int k) {
-		if(H.isEmpty()) {// special case
-			return new int[0];
-		}
-		int[] res = new int[k];//initializing the result 
-		FibonacciHeap help = new FibonacciHeap(); // creating an auxiliary heap
-		help.insert(H.findMin().getKey()).kmin_help = H.findMin();
-		//K iterations for O(H) work
-		for (int i = 0; i < k; i++) {
-			HeapNode node = help.findMin();
-			res[i] = node.getKey();// inserting the value of the i th minimum while removing it from the auxiliary heap
-			help.deleteMin();//O(log(k))<O(2^deg(H))=O(H)
-			HeapNode child = node.kmin_help.getChild();
-			if (child != null) {//iterating over it's children < deg(H)
-				do {
-					help.insert(child.getKey()).kmin_help = child;//inserting a copy of the child while keeping a pointer to the original
-					child = child.getNext();
-				} while (child != node.kmin_help.child);
+	protected static class IdIndex {
+		protected long[] ids = new long[16];
+		protected HeapNode[] nodes = new HeapNode[16]; // null for a free slot
+		protected int shift = 64 - 4; // 64 - log2(nodes.length)
+		protected int count;
+
+		/**
+		 * protected int slot(long id)
+		 * 
+		 * returns the home slot of the id: the top log2(nodes.length) bits of id
+		 * times 2^64 / the golden ratio, which depend on all the bits of the id
+		 * 
+		 * Time complexity:
+		 * 
+		 * O(1)
+		 */
+		protected int slot(long id) {
+			return (int) ((id * 0x9E3779B97F4A7C15L) >>> shift);
+		}
+
+		/**
+		 * protected HeapNode get(long id)
+		 * 
+		 * returns the node of the id or null
+		 * 
+		 * Time complexity:
+		 * 
+		 * O(1) expected
+		 */
+		protected HeapNode get(long id) {
+			int mask = nodes.length - 1;
+			for (int i = slot(id); nodes[i] != null; i = (i + 1) & mask) {
+				if (ids[i] == id) {
+					return nodes[i];
+				}
 			}
+			return null;
 		}
 
-		return res;
-	}
+		/**
+		 * protected void put(long id, HeapNode node)
+		 * 
+		 * maps the id, which is not in the index, to the node
+		 * 
+		 * Time complexity:
+		 * 
+		 * Amort O(1) expected
+		 */
+		protected void put(long id, HeapNode node) {
+			if (2 * (count + 1) > nodes.length) {
+				long[] oldIds = ids;
+				HeapNode[] oldNodes = nodes;
+				ids = new long[2 * oldIds.length];
+				nodes = new HeapNode[2 * oldNodes.length];
+				shift--;
+				for (int i = 0; i < oldNodes.length; i++) {
+					if (oldNodes[i] != null) {
+						place(oldIds[i], oldNodes[i]);
+					}
+				}
+			}
+			place(id, node);
+			count++;
+		}
+
+		/**
+		 * protected void place(long id, HeapNode node)
+		 * 
+		 * stores the pair in the first free slot from the home slot of the id
+		 * 
+		 * Time complexity:
+		 * 
+		 * O(1) expected
+		 */
+		protected void place(long id, HeapNode node) {
+			int mask = nodes.length - 1;
+			int i = slot(id);
+			while (nodes[i] != null) {
+				i = (i + 1) & mask;
+			}
+			ids[i] = id;
+			nodes[i] = node;
+		}
 
+		/**
+		 * protected void remove(long id, HeapNode node)
+		 * 
+		 * removes the id if it is mapped to the node, shifting back the following
+		 * pairs of the probe run so no tombstones are needed
+		 * 
+		 * Time complexity:
+		 * 
+		 * O(1) expected
+		 */
+		protected void remove(long id, HeapNode node) {
+			int mask = nodes.length - 1;
+			int i = slot(id);
+			while (nodes[i] != null && ids[i] != id) {
+				i = (i + 1) & mask;
+			}
+			if (nodes[i] != node) {
+				return;
+			}
+			count--;
+			int j = i;
+			while (true) {
+				j = (j + 1) & mask;
+				if (nodes[j] == null) {
+					break;
+				}
+				int home = slot(ids[j]);
+				// the pair at j can fill the hole at i if its home is not in (i, j]
+				if (((j - home) & mask) >= ((j - i) & mask)) {
+					ids[i] = ids[j];
+					nodes[i] = nodes[j];
+					i = j;
+				}
+			}
+			nodes[i] = null;
+		}
+	}
 
 	/**
 	 * public class HeapNode
@@ -540,11 +2709,12 @@ public class FibonacciHeap {
 		public int key;
 		protected int rank;
 		protected boolean mark;
-		protected HeapNode kmin_help;
 		protected HeapNode child;
 		protected HeapNode prev;
 		protected HeapNode parent;
 		protected HeapNode next;
+		protected int generation;
+		protected boolean tombstone; // lazily deleted
 		
 		
 		/**
@@ -724,6 +2894,19 @@ public class FibonacciHeap {
 		public void setKey(int key) {
 			this.key = key;
 		}
+		/**
+		 * public int getGeneration()
+		 * 
+		 * returns how many times the node was recycled by the node pool of its heap.
+		 * A handle is stale when the generation changed since it was taken.
+		 * 
+		 * Time Complexity:
+		 * 
+		 * O(1)
+		 */
+		public int getGeneration() {
+			return generation;
+		}
 		/**
 		 * public boolean getMarked()
 		 * 
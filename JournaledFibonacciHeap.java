@@ -0,0 +1,596 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * JournaledFibonacciHeap
+ *
+ * A Fibonacci Heap whose changes survive a crash. The elements are addressed by
+ * long ids (see FibonacciHeap.insertWithId) because node handles do not survive
+ * a restart. Every change is applied to an in-memory FibonacciHeap and
+ * recorded in a write-ahead log in the directory: a memory-mapped file of
+ * records, each with its length and CRC32C. The log is forced to disk once per
+ * syncEvery records (group commit), so a crash loses at most the last
+ * syncEvery - 1 changes, or everything since the last sync() when syncEvery is
+ * 0.
+ *
+ * checkpoint() writes a snapshot of the heap (see FibonacciHeap.writeTo) and
+ * starts an empty log. open() loads the last snapshot and replays the log on
+ * top of it. The snapshot restores the exact shape of the heap, so the replayed
+ * deleteMin records remove the same nodes again. Replay stops at the first torn
+ * or corrupt record, and the log is cut there. Replay maps the whole log, so
+ * a change that would grow it past 2GB checkpoints first.
+ *
+ * A change reserves its record before it touches the heap: if the log cannot
+ * take the record, the IOException leaves the heap as it was.
+ *
+ * Like FibonacciHeap, it is not thread-safe.
+ */
+public class JournaledFibonacciHeap implements Closeable {
+	protected static final String SNAPSHOT = "heap.snapshot";
+	protected static final String LOG = "heap.log";
+	protected static final int LOG_MAGIC = 0x46484A31; // "FHJ1"
+	protected static final int LOG_HEADER = 4 + 8; // magic, epoch
+	protected static final int RECORD_HEADER = 4 + 4; // length, CRC32C of the type and the payload
+	protected static final int WINDOW = 1 << 20; // how much of the log is mapped at a time
+	protected static final long MAX_LOG = Integer.MAX_VALUE; // the longest log replay can map
+
+	protected static final byte INSERT = 1;
+	protected static final byte DECREASE_KEY = 2;
+	protected static final byte DELETE = 3;
+	protected static final byte DELETE_MIN = 4;
+	protected static final byte MELD = 5;
+
+	protected final Path dir;
+	protected final int syncEvery;
+	protected FibonacciHeap heap;
+	protected long epoch; // the snapshot the log applies to
+	protected FileChannel log;
+	protected MappedByteBuffer window; // the mapped part of the log, position is the end of the log
+	protected long windowStart; // file offset of the window
+	protected int unsynced; // records appended since the last force
+	protected long logLimit = MAX_LOG; // the log is checkpointed before a mapping would pass it
+	protected final CRC32C crc = new CRC32C();
+
+	/**
+	 * protected JournaledFibonacciHeap(Path dir, int syncEvery)
+	 *
+	 * Constructs a journaled heap in dir, see open.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected JournaledFibonacciHeap(Path dir, int syncEvery) {
+		this.dir = dir;
+		this.syncEvery = syncEvery;
+	}
+
+	/**
+	 * public static JournaledFibonacciHeap open(Path dir, int syncEvery)
+	 *
+	 * Opens the journaled heap stored in dir, creating the directory and an empty
+	 * heap if there is none, and recovers its state from the last snapshot and
+	 * the log. The log is forced to disk after every syncEvery records, never
+	 * automatically if syncEvery is 0. Throws IllegalArgumentException if
+	 * syncEvery is negative and IOException if the files cannot be used.
+	 *
+	 * Time complexity:
+	 *
+	 * O(#nodes in the snapshot + the replay of the log)
+	 */
+	public static JournaledFibonacciHeap open(Path dir, int syncEvery) throws IOException {
+		if (syncEvery < 0) {
+			throw new IllegalArgumentException("negative syncEvery: " + syncEvery);
+		}
+		JournaledFibonacciHeap journaled = new JournaledFibonacciHeap(dir, syncEvery);
+		journaled.recover();
+		return journaled;
+	}
+
+	/**
+	 * protected void recover()
+	 *
+	 * loads the snapshot, replays the records of the log that belong to it and
+	 * maps the end of the log for new records
+	 *
+	 * Time complexity:
+	 *
+	 * O(#nodes in the snapshot + the replay of the log)
+	 */
+	protected void recover() throws IOException {
+		Files.createDirectories(dir);
+		Path snapshot = dir.resolve(SNAPSHOT);
+		heap = new FibonacciHeap();
+		epoch = 0;
+		if (Files.exists(snapshot)) {
+			try (FileChannel in = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+				ByteBuffer header = ByteBuffer.allocate(8);
+				while (header.hasRemaining() && in.read(header) >= 0) {
+				}
+				if (header.hasRemaining()) {
+					throw new IOException("truncated snapshot " + snapshot);
+				}
+				epoch = header.getLong(0);
+				heap = FibonacciHeap.readFrom(in);
+			}
+		}
+
+		log = FileChannel.open(dir.resolve(LOG), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		long end = replay();
+		if (end < 0) {// no log of this snapshot yet
+			startLog();
+		} else {
+			log.truncate(end);// drop a torn tail so a later record cannot follow it
+			map(end, 0);
+		}
+	}
+
+	/**
+	 * protected long replay()
+	 *
+	 * applies the valid records of the log to the heap and returns the offset
+	 * after the last of them, or -1 if the log does not belong to the snapshot
+	 *
+	 * Time complexity:
+	 *
+	 * O(the replay of the log)
+	 */
+	protected long replay() throws IOException {
+		long length = log.size();
+		if (length < LOG_HEADER) {
+			return -1;
+		}
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("log longer than 2GB, checkpoint more often");
+		}
+		MappedByteBuffer in = log.map(FileChannel.MapMode.READ_ONLY, 0, length);
+		if (in.getInt() != LOG_MAGIC || in.getLong() != epoch) {
+			return -1;
+		}
+		while (in.remaining() >= RECORD_HEADER) {
+			int start = in.position();
+			int size = in.getInt();
+			int checksum = in.getInt();
+			if (size <= 0 || size > in.remaining()) {
+				in.position(start);
+				break;
+			}
+			ByteBuffer record = in.slice(in.position(), size);
+			crc.reset();
+			crc.update(record.duplicate());
+			if ((int) crc.getValue() != checksum || !apply(record)) {
+				in.position(start);
+				break;
+			}
+			in.position(in.position() + size);
+		}
+		return in.position();
+	}
+
+	/**
+	 * protected boolean apply(ByteBuffer record)
+	 *
+	 * replays one record, returns false if its type is unknown
+	 *
+	 * Time complexity:
+	 *
+	 * the time of the operation it records
+	 */
+	protected boolean apply(ByteBuffer record) throws IOException {
+		switch (record.get()) {
+		case INSERT:
+			long id = record.getLong();
+			heap.insertWithId(id, record.getInt());
+			return true;
+		case DECREASE_KEY:
+			id = record.getLong();
+			heap.decreaseKeyById(id, record.getInt());
+			return true;
+		case DELETE:
+			heap.deleteById(record.getLong());
+			return true;
+		case DELETE_MIN:
+			heap.deleteMin();
+			return true;
+		case MELD:
+			byte[] bytes = new byte[record.remaining()];
+			record.get(bytes);
+			heap.meld(FibonacciHeap.readFrom(Channels.newChannel(new ByteArrayInputStream(bytes))));
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * protected void startLog()
+	 *
+	 * empties the log and writes the header of the current epoch
+	 *
+	 * Time complexity:
+	 *
+	 * O(1) + fsync
+	 */
+	protected void startLog() throws IOException {
+		window = null;
+		log.truncate(0);
+		map(0, LOG_HEADER);
+		window.putInt(LOG_MAGIC);
+		window.putLong(epoch);
+		window.force();
+		unsynced = 0;
+	}
+
+	/**
+	 * protected void map(long start, int size)
+	 *
+	 * maps the log from the offset start, at least size bytes, as the window for
+	 * new records
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected void map(long start, int size) throws IOException {
+		windowStart = start;
+		window = log.map(FileChannel.MapMode.READ_WRITE, start, Math.max(WINDOW, size));
+	}
+
+	/**
+	 * protected int begin(byte type, int payload)
+	 *
+	 * reserves a record of the type with payload bytes at the end of the log,
+	 * leaves the window positioned at the payload and returns where the record
+	 * starts in the window. Called before the change is applied to the heap: a
+	 * log that would grow past logLimit is checkpointed first, and an
+	 * IOException leaves nothing to undo.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1), and a force when it moves the window, O(n) when it checkpoints
+	 */
+	protected int begin(byte type, int payload) throws IOException {
+		if (window == null) {
+			throw new IllegalStateException("closed");
+		}
+		int size = RECORD_HEADER + 1 + payload;
+		if (window.remaining() < size) {
+			long end = windowStart + window.position();
+			if (end + Math.max(WINDOW, size) > logLimit && end > LOG_HEADER) {
+				checkpoint();
+			}
+		}
+		if (window.remaining() < size) {
+			long end = windowStart + window.position();
+			if (end + Math.max(WINDOW, size) > logLimit) {
+				throw new IOException("record of " + size + " bytes does not fit in the log");
+			}
+			if (unsynced > 0) {
+				window.force();
+				unsynced = 0;
+			}
+			map(end, size);
+		}
+		int start = window.position();
+		window.position(start + RECORD_HEADER);
+		window.put(type);
+		return start;
+	}
+
+	/**
+	 * protected void abort(int start)
+	 *
+	 * drops the record that begins at start in the window, for a change that
+	 * failed after begin. Its bytes are zeroed so a shorter record written in its
+	 * place is not followed by a stale one.
+	 *
+	 * Time complexity:
+	 *
+	 * O(record length)
+	 */
+	protected void abort(int start) {
+		for (int i = start; i < window.position(); i++) {
+			window.put(i, (byte) 0);
+		}
+		window.position(start);
+	}
+
+	/**
+	 * protected void commit(int start)
+	 *
+	 * fills in the length and the checksum of the record that begins at start in
+	 * the window and forces the log if syncEvery records are waiting
+	 *
+	 * Time complexity:
+	 *
+	 * O(record length) + fsync once per syncEvery records
+	 */
+	protected void commit(int start) throws IOException {
+		int size = window.position() - start - RECORD_HEADER;
+		crc.reset();
+		crc.update(window.slice(start + RECORD_HEADER, size));
+		window.putInt(start, size);
+		window.putInt(start + 4, (int) crc.getValue());
+		unsynced++;
+		if (syncEvery > 0 && unsynced >= syncEvery) {
+			sync();
+		}
+	}
+
+	/**
+	 * public FibonacciHeap.HeapNode insert(long id, int key)
+	 *
+	 * Inserts the key with the id and journals it. Throws
+	 * IllegalArgumentException, without journaling, if the id is in the heap.
+	 *
+	 * Returns the newly created node.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1) + fsync once per syncEvery records
+	 */
+	public FibonacciHeap.HeapNode insert(long id, int key) throws IOException {
+		if (heap.containsId(id)) {
+			throw new IllegalArgumentException("duplicate id " + id);
+		}
+		int start = begin(INSERT, 12);
+		window.putLong(id).putInt(key);
+		FibonacciHeap.HeapNode node = heap.insertWithId(id, key);
+		commit(start);
+		return node;
+	}
+
+	/**
+	 * public boolean decreaseKey(long id, int delta)
+	 *
+	 * Decreases the key of the node with the id by a non-negative delta and
+	 * journals it. Returns false, without journaling, if the id is not in the
+	 * heap.
+	 *
+	 * Time complexity:
+	 *
+	 * Amort O(1) + fsync once per syncEvery records
+	 */
+	public boolean decreaseKey(long id, int delta) throws IOException {
+		if (!heap.containsId(id)) {
+			return false;
+		}
+		int start = begin(DECREASE_KEY, 12);
+		window.putLong(id).putInt(delta);
+		heap.decreaseKeyById(id, delta);
+		commit(start);
+		return true;
+	}
+
+	/**
+	 * public boolean delete(long id)
+	 *
+	 * Deletes the node with the id and journals it. Returns false, without
+	 * journaling, if the id is not in the heap.
+	 *
+	 * Time complexity:
+	 *
+	 * Amort O(log(n)) + fsync once per syncEvery records
+	 */
+	public boolean delete(long id) throws IOException {
+		if (!heap.containsId(id)) {
+			return false;
+		}
+		int start = begin(DELETE, 8);
+		window.putLong(id);
+		heap.deleteById(id);
+		commit(start);
+		return true;
+	}
+
+	/**
+	 * public FibonacciHeap.HeapNode deleteMin()
+	 *
+	 * Deletes the node containing the minimum key and journals it.
+	 *
+	 * Returns the deleted node, whose id is its IndexedNode.getId() unless it came
+	 * from a melded heap without ids, or null if the heap is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * Amort O(log(n)) + fsync once per syncEvery records
+	 */
+	public FibonacciHeap.HeapNode deleteMin() throws IOException {
+		FibonacciHeap.HeapNode min = heap.findMin();
+		if (min == null) {
+			return null;
+		}
+		int start = begin(DELETE_MIN, 0);
+		heap.deleteMin();
+		commit(start);
+		return min;
+	}
+
+	/**
+	 * public void meld(FibonacciHeap heap2)
+	 *
+	 * Melds heap2 into this heap and journals a snapshot of heap2, so it is
+	 * replayed in the same shape. Values of subclasses such as
+	 * ValuedFibonacciHeap are not journaled. Throws IllegalArgumentException,
+	 * without journaling, if the heaps share an id.
+	 *
+	 * Time complexity:
+	 *
+	 * O(size of heap2) + fsync once per syncEvery records
+	 */
+	public void meld(FibonacciHeap heap2) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		heap2.writeTo(Channels.newChannel(bytes));
+		int start = begin(MELD, bytes.size());
+		window.put(bytes.toByteArray());
+		try {
+			heap.meld(heap2);
+		} catch (RuntimeException e) {// shared ids are found by the meld
+			abort(start);
+			throw e;
+		}
+		commit(start);
+	}
+
+	/**
+	 * public FibonacciHeap.HeapNode findMin()
+	 *
+	 * Returns the node of the heap whose key is minimal, or null if the heap is
+	 * empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public FibonacciHeap.HeapNode findMin() {
+		return heap.findMin();
+	}
+
+	/**
+	 * public FibonacciHeap.HeapNode getById(long id)
+	 *
+	 * Returns the node with the id, or null if there is none.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1) expected
+	 */
+	public FibonacciHeap.HeapNode getById(long id) {
+		return heap.getById(id);
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of elements in the heap.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public int size() {
+		return heap.size();
+	}
+
+	/**
+	 * public boolean isEmpty()
+	 *
+	 * Returns true if and only if the heap is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public boolean isEmpty() {
+		return heap.isEmpty();
+	}
+
+	/**
+	 * public long epoch()
+	 *
+	 * Returns the number of checkpoints of the heap.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public long epoch() {
+		return epoch;
+	}
+
+	/**
+	 * public void sync()
+	 *
+	 * Forces the journaled changes to disk.
+	 *
+	 * Time complexity:
+	 *
+	 * fsync
+	 */
+	public void sync() throws IOException {
+		if (unsynced > 0) {
+			window.force();
+			unsynced = 0;
+		}
+	}
+
+	/**
+	 * public void checkpoint()
+	 *
+	 * Writes a snapshot of the heap and empties the log. The snapshot is written
+	 * to a temporary file that replaces the old one atomically, and it carries
+	 * the next epoch, so after a crash between the two steps the old log, of the
+	 * previous epoch, is not replayed again.
+	 *
+	 * Time complexity:
+	 *
+	 * O(n) + fsync
+	 */
+	public void checkpoint() throws IOException {
+		Path temp = dir.resolve(SNAPSHOT + ".tmp");
+		try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(8).putLong(0, epoch + 1);
+			while (header.hasRemaining()) {
+				out.write(header);
+			}
+			heap.writeTo(out);
+			out.force(true);
+		}
+		Files.move(temp, dir.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		syncDirectory();
+		epoch++;
+		startLog();
+	}
+
+	/**
+	 * protected void syncDirectory()
+	 *
+	 * forces the directory entry of the renamed snapshot to disk where the
+	 * platform allows opening a directory
+	 *
+	 * Time complexity:
+	 *
+	 * fsync
+	 */
+	protected void syncDirectory() {
+		try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+			d.force(true);
+		} catch (IOException e) {
+			// not supported on this platform, the rename is still atomic
+		}
+	}
+
+	/**
+	 * public void close()
+	 *
+	 * Forces the journaled changes to disk and closes the log, cutting it to
+	 * its records. The heap must not be changed afterwards.
+	 *
+	 * Time complexity:
+	 *
+	 * fsync
+	 */
+	public void close() throws IOException {
+		if (window == null) {
+			return;
+		}
+		sync();
+		long end = windowStart + window.position();
+		window = null;
+		log.truncate(end);
+		log.close();
+	}
+}
@@ -0,0 +1,793 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LongFibonacciHeap
+ *
+ * An implementation of a Fibonacci Heap over long keys, generated from
+ * codegen/PrimitiveFibonacciHeap.java.template by codegen/generate.sh. Edit the
+ * template and regenerate instead of editing this file.
+ *
+ * The algorithms are the same as in FibonacciHeap (consolidate with a rank
+ * table and a bitmask, cascading cuts, kMin), with the keys and deltas of type
+ * long. delete cuts the node up to the root list instead of decreasing its
+ * key below the minimum, so it works for any key. The links/cuts of all the
+ * LongFibonacciHeaps are counted in LongFibonacciHeap.totalLinks()/totalCuts(),
+ * apart from those of FibonacciHeap.
+ */
+public class LongFibonacciHeap {
+	protected HeapNode first;
+	protected HeapNode min;
+	protected int size;
+	protected int trees;
+	protected int marked;
+	protected long links;
+	protected long cuts;
+	protected HeapNode[] rankTable; // scratch for consolidate
+	protected int rankTableLimit; // the biggest heap rankTable can consolidate
+
+	// counters of all the LongFibonacciHeaps, striped so heaps on different threads do not contend
+	protected static final LongAdder TOTAL_LINKS = new LongAdder();
+	protected static final LongAdder TOTAL_CUTS = new LongAdder();
+
+	/**
+	 * public LongFibonacciHeap()
+	 *
+	 * Constructs an empty heap.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public LongFibonacciHeap() {
+	}
+
+	/**
+	 * public boolean isEmpty()
+	 *
+	 * Returns true if and only if the heap is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public boolean isEmpty() {
+		return first == null;
+	}
+
+	/**
+	 * protected void resetHeap()
+	 *
+	 * sets all the variables as if the heap was just initialized
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected void resetHeap() {
+		trees = 0;
+		marked = 0;
+		size = 0;
+		first = null;
+		min = null;
+	}
+
+	/**
+	 * protected void connect2Nodes(HeapNode left, HeapNode right)
+	 *
+	 * sets right to be the next of left.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected void connect2Nodes(HeapNode left, HeapNode right) {
+		left.next = right;
+		right.prev = left;
+	}
+
+	/**
+	 * public HeapNode insert(long key)
+	 *
+	 * Creates a node which contains the given key, and inserts it into the heap.
+	 * Throws IllegalArgumentException if the key is NaN.
+	 *
+	 * Returns the newly created node.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public HeapNode insert(long key) {
+		if (key != key) {// NaN, never true for integral keys
+			throw new IllegalArgumentException("NaN key");
+		}
+		HeapNode node = newNode(key);
+		size++;
+		insertNode(node);
+		return node;
+	}
+
+	/**
+	 * protected HeapNode newNode(long key)
+	 *
+	 * creates the node for a new key, subclasses override it to store more in the
+	 * nodes
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected HeapNode newNode(long key) {
+		return new HeapNode(key);
+	}
+
+	/**
+	 * protected void insertNode(HeapNode node)
+	 *
+	 * inserts the root of a tree as is to the heap as the first tree.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected void insertNode(HeapNode node) {
+		trees++;
+		if (isEmpty()) {
+			min = node;
+			connect2Nodes(node, node);
+		} else {
+			if (min.key > node.key) {
+				min = node;
+			}
+			HeapNode last = first.prev;
+			connect2Nodes(node, first);
+			connect2Nodes(last, node);
+		}
+		first = node;
+	}
+
+	/**
+	 * public HeapNode findMin()
+	 *
+	 * Returns the node of the heap whose key is minimal, or null if the heap is
+	 * empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public HeapNode findMin() {
+		return min;
+	}
+
+	/**
+	 * public void deleteMin()
+	 *
+	 * Deletes the node containing the minimum key.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(log(n))
+	 */
+	public void deleteMin() {
+		if (isEmpty()) {
+			return;
+		}
+		size--;
+		if (size == 0) {
+			resetHeap();
+			return;
+		}
+		HeapNode child = min.child;
+		if (child != null) {// the children become roots
+			HeapNode node = child;
+			do {
+				if (node.mark) {
+					marked--;
+					node.mark = false;
+				}
+				node.parent = null;
+				node = node.next;
+			} while (node != child);
+		}
+		if (min.next == min) {
+			first = child;
+		} else {
+			HeapNode next = min.next;
+			HeapNode prev = min.prev;
+			if (child == null) {
+				connect2Nodes(prev, next);
+			} else {
+				HeapNode lastChild = child.prev;
+				connect2Nodes(prev, child);
+				connect2Nodes(lastChild, next);
+			}
+			if (first == min) {
+				first = child != null ? child : next;
+			}
+		}
+		consolidate();
+	}
+
+	/**
+	 * protected void consolidate()
+	 *
+	 * links the roots until no two of them have the same rank, using a rank table
+	 * kept between calls and a bitmask of its occupied slots.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(logn)
+	 */
+	protected void consolidate() {
+		HeapNode[] ranks = rankTable(size);
+		long linksBefore = links;
+		long occupied = 0; // bit k is set iff ranks[k] holds a tree
+		HeapNode node = first;
+		first.prev.next = null; // so we know where to stop
+		while (node != null) {
+			HeapNode next = node.next;
+			int k = node.rank;
+			while ((occupied & (1L << k)) != 0) {
+				node = link(node, ranks[k]);
+				ranks[k] = null;
+				occupied &= ~(1L << k);
+				k++;
+			}
+			ranks[k] = node;
+			occupied |= 1L << k;
+			node = next;
+		}
+		trees = Long.bitCount(occupied);
+		first = null;
+		HeapNode last = null;
+		while (occupied != 0) {// rebuilding the root list from the smaller rank to the bigger
+			int k = Long.numberOfTrailingZeros(occupied);
+			occupied &= occupied - 1;
+			HeapNode tree = ranks[k];
+			ranks[k] = null;
+			if (first == null) {
+				first = tree;
+				min = tree;
+			} else {
+				connect2Nodes(last, tree);
+				if (tree.key <= min.key) {
+					min = tree;
+				}
+			}
+			last = tree;
+		}
+		connect2Nodes(last, first);
+		TOTAL_LINKS.add(links - linksBefore);
+	}
+
+	/**
+	 * protected HeapNode[] rankTable(int n)
+	 *
+	 * returns the scratch rank table, (re)allocating it only when it is too small
+	 * for a heap of n nodes (the ranks are at most log_phi(n)).
+	 *
+	 * Time complexity:
+	 *
+	 * O(1), O(logn) when the table grows
+	 */
+	protected HeapNode[] rankTable(int n) {
+		if (rankTable == null || n > rankTableLimit) {
+			int length = (int) (Math.log(Math.max(n, 2)) / FibonacciHeap.LOG_PHI) + 2;
+			rankTable = new HeapNode[length];
+			rankTableLimit = (int) Math.min(Integer.MAX_VALUE, Math.pow(FibonacciHeap.PHI, length - 1));
+		}
+		return rankTable;
+	}
+
+	/**
+	 * protected HeapNode link(HeapNode parent, HeapNode child)
+	 *
+	 * hangs the root with the bigger key under the other one and returns the new
+	 * root.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected HeapNode link(HeapNode parent, HeapNode child) {
+		links++;
+		if (child.key < parent.key) {
+			HeapNode temp = parent;
+			parent = child;
+			child = temp;
+		}
+		child.parent = parent;
+		child.mark = false;
+		if (parent.child == null) {
+			parent.child = child;
+			connect2Nodes(child, child);
+		} else {
+			HeapNode thisChild = parent.child;
+			connect2Nodes(thisChild.prev, child);
+			connect2Nodes(child, thisChild);
+			parent.child = child;
+		}
+		parent.rank++;
+		return parent;
+	}
+
+	/**
+	 * public void meld(LongFibonacciHeap heap2)
+	 *
+	 * Melds heap2 with the current heap.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public void meld(LongFibonacciHeap heap2) {
+		links += heap2.links;
+		cuts += heap2.cuts;
+		if (heap2.isEmpty()) {
+			return;
+		}
+		if (isEmpty()) {
+			first = heap2.first;
+			min = heap2.min;
+		} else {
+			HeapNode thisLast = first.prev;
+			HeapNode thatLast = heap2.first.prev;
+			connect2Nodes(thisLast, heap2.first);
+			connect2Nodes(thatLast, first);
+			if (heap2.min.key < min.key) {
+				min = heap2.min;
+			}
+		}
+		size += heap2.size;
+		trees += heap2.trees;
+		marked += heap2.marked;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of elements in the heap.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * public int[] countersRep()
+	 *
+	 * Returns an array whose i-th entry is the number of trees of order i in the
+	 * heap, an empty array for an empty heap.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 */
+	public int[] countersRep() {
+		if (isEmpty()) {
+			return new int[0];
+		}
+		int maxRank = 0;
+		HeapNode node = first;
+		do {
+			maxRank = Math.max(maxRank, node.rank);
+			node = node.next;
+		} while (node != first);
+		int[] res = new int[maxRank + 1];
+		do {
+			res[node.rank]++;
+			node = node.next;
+		} while (node != first);
+		return res;
+	}
+
+	/**
+	 * public void delete(HeapNode x)
+	 *
+	 * Deletes the node x from the heap. It is assumed that x indeed belongs to the
+	 * heap. x is cut up to the root list (with cascading cuts) and deleted as if it
+	 * was the minimum.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(logn)
+	 */
+	public void delete(HeapNode x) {
+		if (x.parent != null) {
+			cascadingCuts(x, x.parent);
+		}
+		min = x;
+		deleteMin();
+	}
+
+	/**
+	 * public void decreaseKey(HeapNode x, long delta)
+	 *
+	 * decreases the key of the node x by a non-negative value delta, applying
+	 * cascading cuts if the heap order is broken. Throws IllegalArgumentException
+	 * if the new key is NaN.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(1)
+	 */
+	public void decreaseKey(HeapNode x, long delta) {
+		long key = x.key - delta;
+		if (key != key) {// NaN, never true for integral keys
+			throw new IllegalArgumentException("NaN key");
+		}
+		x.key = key;
+		if (key < min.key) {
+			min = x;
+		}
+		if (x.parent == null || x.parent.key < key) {
+			return;
+		}
+		cascadingCuts(x, x.parent);
+	}
+
+	/**
+	 * protected void cascadingCuts(HeapNode child, HeapNode parent)
+	 *
+	 * cuts the node from its parent and continues up while the parents are marked,
+	 * marking the first unmarked non-root parent.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(1)
+	 */
+	protected void cascadingCuts(HeapNode child, HeapNode parent) {
+		long cutsBefore = cuts;
+		while (true) {
+			if (child.mark) {
+				marked--;
+				child.mark = false;
+			}
+			cut(child, parent);
+			insertNode(child);
+			if (parent.parent == null) {
+				break;
+			}
+			if (!parent.mark) {
+				parent.mark = true;
+				marked++;
+				break;
+			}
+			child = parent;
+			parent = parent.parent;
+		}
+		TOTAL_CUTS.add(cuts - cutsBefore);
+	}
+
+	/**
+	 * protected void cut(HeapNode child, HeapNode parent)
+	 *
+	 * disconnects the child from the parent.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected void cut(HeapNode child, HeapNode parent) {
+		cuts++;
+		child.parent = null;
+		if (child.next == child) {
+			parent.child = null;
+		} else {
+			if (parent.child == child) {
+				parent.child = child.next;
+			}
+			connect2Nodes(child.prev, child.next);
+		}
+		parent.rank--;
+	}
+
+	/**
+	 * public int potential()
+	 *
+	 * Returns #trees + 2*#marked.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public int potential() {
+		return trees + 2 * marked;
+	}
+
+	/**
+	 * public long links()
+	 *
+	 * Returns the number of link operations made by this heap.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public long links() {
+		return links;
+	}
+
+	/**
+	 * public long cuts()
+	 *
+	 * Returns the number of cut operations made by this heap.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public long cuts() {
+		return cuts;
+	}
+
+	/**
+	 * public static long totalLinks()
+	 *
+	 * Returns the number of link operations made by all the LongFibonacciHeaps,
+	 * the sum of their links().
+	 *
+	 * Time complexity:
+	 *
+	 * O(#threads)
+	 */
+	public static long totalLinks() {
+		return TOTAL_LINKS.sum();
+	}
+
+	/**
+	 * public static long totalCuts()
+	 *
+	 * Returns the number of cut operations made by all the LongFibonacciHeaps,
+	 * the sum of their cuts().
+	 *
+	 * Time complexity:
+	 *
+	 * O(#threads)
+	 */
+	public static long totalCuts() {
+		return TOTAL_CUTS.sum();
+	}
+
+	/**
+	 * public static long[] kMin(LongFibonacciHeap H, int k)
+	 *
+	 * returns the k smallest keys of H (fewer if H is smaller) in ascending order
+	 * without changing H. The candidates are kept in a binary heap of nodes.
+	 *
+	 * Time complexity:
+	 *
+	 * O(k*deg(H)*log(k*deg(H))) for a heap that contains a single tree
+	 */
+	public static long[] kMin(LongFibonacciHeap H, int k) {
+		k = Math.max(0, Math.min(k, H.size));
+		long[] res = new long[k];
+		if (k == 0) {
+			return res;
+		}
+		HeapNode[] candidates = new HeapNode[Math.min(H.size, H.trees + 64)];
+		int count = 0;
+		HeapNode root = H.first;
+		do {
+			candidates = grow(candidates, count);
+			count = siftUp(candidates, count, root);
+			root = root.next;
+		} while (root != H.first);
+		for (int i = 0; i < k; i++) {
+			HeapNode node = candidates[0];
+			res[i] = node.key;
+			count--;
+			siftDown(candidates, count, candidates[count]);
+			candidates[count] = null;
+			HeapNode child = node.child;
+			if (child != null) {
+				do {
+					candidates = grow(candidates, count);
+					count = siftUp(candidates, count, child);
+					child = child.next;
+				} while (child != node.child);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * private static HeapNode[] grow(HeapNode[] heap, int count)
+	 *
+	 * returns heap, or a bigger copy of it if it is full
+	 *
+	 * Time complexity:
+	 *
+	 * Amort O(1)
+	 */
+	private static HeapNode[] grow(HeapNode[] heap, int count) {
+		return count < heap.length ? heap : Arrays.copyOf(heap, 2 * heap.length);
+	}
+
+	/**
+	 * private static int siftUp(HeapNode[] heap, int count, HeapNode node)
+	 *
+	 * adds node to the binary heap heap[0, count) ordered by key and returns the
+	 * new count
+	 *
+	 * Time complexity:
+	 *
+	 * O(log count)
+	 */
+	private static int siftUp(HeapNode[] heap, int count, HeapNode node) {
+		int i = count;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (heap[parent].key <= node.key) {
+				break;
+			}
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = node;
+		return count + 1;
+	}
+
+	/**
+	 * private static void siftDown(HeapNode[] heap, int count, HeapNode node)
+	 *
+	 * puts node at the top of the binary heap heap[0, count) and sifts it down
+	 *
+	 * Time complexity:
+	 *
+	 * O(log count)
+	 */
+	private static void siftDown(HeapNode[] heap, int count, HeapNode node) {
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= count) {
+				break;
+			}
+			if (child + 1 < count && heap[child + 1].key < heap[child].key) {
+				child++;
+			}
+			if (node.key <= heap[child].key) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		if (count > 0) {
+			heap[i] = node;
+		}
+	}
+
+	/**
+	 * public static class HeapNode
+	 *
+	 * A node of a LongFibonacciHeap.
+	 */
+	public static class HeapNode {
+		protected long key;
+		protected int rank;
+		protected boolean mark;
+		protected HeapNode child;
+		protected HeapNode prev;
+		protected HeapNode parent;
+		protected HeapNode next;
+
+		/**
+		 * public HeapNode(long key)
+		 *
+		 * Constructs a new HeapNode with the key
+		 *
+		 * Time complexity:
+		 * O(1)
+		 */
+		public HeapNode(long key) {
+			this.key = key;
+		}
+
+		/**
+		 * public long getKey()
+		 *
+		 * returns the key of the node
+		 *
+		 * Time Complexity:
+		 *
+		 * O(1)
+		 */
+		public long getKey() {
+			return key;
+		}
+
+		/**
+		 * public int getRank()
+		 *
+		 * returns the rank of the node
+		 *
+		 * Time Complexity:
+		 *
+		 * O(1)
+		 */
+		public int getRank() {
+			return rank;
+		}
+
+		/**
+		 * public boolean isMark()
+		 *
+		 * returns whether the node is marked or not
+		 *
+		 * Time Complexity:
+		 *
+		 * O(1)
+		 */
+		public boolean isMark() {
+			return mark;
+		}
+
+		/**
+		 * public HeapNode getChild()
+		 *
+		 * returns the first child of the node
+		 *
+		 * Time complexity:
+		 *
+		 * O(1)
+		 */
+		public HeapNode getChild() {
+			return child;
+		}
+
+		/**
+		 * public HeapNode getParent()
+		 *
+		 * returns the parent node of the node
+		 *
+		 * Time complexity:
+		 *
+		 * O(1)
+		 */
+		public HeapNode getParent() {
+			return parent;
+		}
+
+		/**
+		 * public HeapNode getNext()
+		 *
+		 * returns the next node of the node
+		 *
+		 * Time complexity:
+		 *
+		 * O(1)
+		 */
+		public HeapNode getNext() {
+			return next;
+		}
+
+		/**
+		 * public HeapNode getPrev()
+		 *
+		 * returns the previous node of the node
+		 *
+		 * Time complexity:
+		 *
+		 * O(1)
+		 */
+		public HeapNode getPrev() {
+			return prev;
+		}
+	}
+}
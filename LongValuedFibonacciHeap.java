@@ -0,0 +1,264 @@
+import java.util.NoSuchElementException;
+
+/**
+ * LongValuedFibonacciHeap
+ *
+ * A FibonacciHeap whose nodes carry a primitive long value next to their int
+ * key (an id, an index or packed data), without boxing. The nodes are Entry
+ * objects: insert, insertWithId, findMin and the node handles work as in
+ * FibonacciHeap, and deleteMinValue removes the minimum and returns its value.
+ * A node inserted with an id is an IndexedEntry.
+ */
+public class LongValuedFibonacciHeap extends FibonacciHeap {
+
+	/**
+	 * public LongValuedFibonacciHeap()
+	 *
+	 * Constructs an empty heap without a node pool.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public LongValuedFibonacciHeap() {
+	}
+
+	/**
+	 * public LongValuedFibonacciHeap(int nodePoolCapacity)
+	 *
+	 * Constructs an empty heap that recycles up to nodePoolCapacity deleted
+	 * entries, see FibonacciHeap(int).
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public LongValuedFibonacciHeap(int nodePoolCapacity) {
+		super(nodePoolCapacity);
+	}
+
+	/**
+	 * public Entry insert(int key, long value)
+	 *
+	 * Inserts an entry with the key and the value.
+	 *
+	 * Returns the newly created entry.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public Entry insert(int key, long value) {
+		Entry entry = insert(key);
+		entry.value = value;
+		return entry;
+	}
+
+	/**
+	 * public Entry insert(int key)
+	 *
+	 * Inserts an entry with the key and the value 0.
+	 *
+	 * Returns the newly created entry.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	public Entry insert(int key) {
+		return (Entry) super.insert(key);
+	}
+
+	/**
+	 * public Entry findMin()
+	 *
+	 * Returns the entry whose key is minimal, or null if the heap is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	public Entry findMin() {
+		return (Entry) min;
+	}
+
+	/**
+	 * public long findMinValue()
+	 *
+	 * Returns the value of the entry whose key is minimal. Throws
+	 * NoSuchElementException if the heap is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public long findMinValue() {
+		if (isEmpty()) {
+			throw new NoSuchElementException("the heap is empty");
+		}
+		return findMin().value;
+	}
+
+	/**
+	 * public long deleteMinValue()
+	 *
+	 * Deletes the entry whose key is minimal and returns its value. Throws
+	 * NoSuchElementException if the heap is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(log(n))
+	 */
+	public long deleteMinValue() {
+		long value = findMinValue();
+		deleteMin();
+		return value;
+	}
+
+	/**
+	 * public void meld(FibonacciHeap heap2)
+	 *
+	 * Melds heap2 with the current heap. Throws IllegalArgumentException if heap2
+	 * is not a LongValuedFibonacciHeap, whose nodes would not be entries.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	public void meld(FibonacciHeap heap2) {
+		if (!(heap2 instanceof LongValuedFibonacciHeap)) {
+			throw new IllegalArgumentException("can only meld a LongValuedFibonacciHeap");
+		}
+		super.meld(heap2);
+	}
+
+	/**
+	 * protected HeapNode allocateNode(int key)
+	 *
+	 * allocates an entry with the value 0
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	protected HeapNode allocateNode(int key) {
+		return new Entry(key);
+	}
+
+	/**
+	 * protected HeapNode allocateIndexedNode(long id, int key)
+	 *
+	 * allocates an entry with the id and a value 0, so insertWithId and upsert
+	 * return entries too
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	protected HeapNode allocateIndexedNode(long id, int key) {
+		return new IndexedEntry(key, id);
+	}
+
+	/**
+	 * protected void recycle(HeapNode node)
+	 *
+	 * resets the value of the deleted entry before the node pool may reuse it
+	 *
+	 * Time complexity:
+	 *
+	 * Amort O(1)
+	 */
+	@Override
+	protected void recycle(HeapNode node) {
+		((Entry) node).value = 0;
+		super.recycle(node);
+	}
+
+	/**
+	 * public static class Entry
+	 *
+	 * A node of a LongValuedFibonacciHeap, holding a key and a long value.
+	 */
+	public static class Entry extends HeapNode {
+		protected long value;
+
+		/**
+		 * public Entry(int key)
+		 *
+		 * Constructs an entry with the key and the value 0
+		 *
+		 * Time complexity:
+		 * O(1)
+		 */
+		public Entry(int key) {
+			super(key);
+		}
+
+		/**
+		 * public long getValue()
+		 *
+		 * returns the value of the entry
+		 *
+		 * Time Complexity:
+		 *
+		 * O(1)
+		 */
+		public long getValue() {
+			return value;
+		}
+
+		/**
+		 * public void setValue(long value)
+		 *
+		 * sets the value of the entry
+		 *
+		 * Time complexity:
+		 * O(1)
+		 */
+		public void setValue(long value) {
+			this.value = value;
+		}
+	}
+
+	/**
+	 * public static class IndexedEntry
+	 *
+	 * An entry inserted with an id (see insertWithId).
+	 */
+	public static class IndexedEntry extends Entry implements FibonacciHeap.Indexed {
+		protected final long id;
+
+		/**
+		 * public IndexedEntry(int key, long id)
+		 *
+		 * Constructs an entry with the key, the id and a value 0
+		 *
+		 * Time complexity:
+		 * O(1)
+		 */
+		public IndexedEntry(int key, long id) {
+			super(key);
+			this.id = id;
+		}
+
+		/**
+		 * public long getId()
+		 *
+		 * returns the id of the entry
+		 *
+		 * Time Complexity:
+		 *
+		 * O(1)
+		 */
+		public long getId() {
+			return id;
+		}
+	}
+}
@@ -0,0 +1,700 @@
+import java.util.NoSuchElementException;
+
+/**
+ * MinMaxFibonacciHeap
+ *
+ * A double-ended FibonacciHeap: findMax, deleteMax and increaseKey next to the
+ * operations of a min-heap. Every key is a single MinMaxNode that lives in two
+ * Fibonacci heaps at once, the min-ordered trees of FibonacciHeap and a
+ * max-ordered forest threaded through a second set of links in the same node,
+ * so one node handle serves both ends and an update touches one node instead
+ * of two mirrored heaps.
+ *
+ * Node ids, lazy deletion and the node pool are not supported, and heaps meld
+ * only with other MinMaxFibonacciHeaps.
+ */
+public class MinMaxFibonacciHeap extends FibonacciHeap {
+	protected MinMaxNode maxFirst; // the first root of the max-ordered forest
+	protected MinMaxNode max;
+	protected int maxTrees;
+	protected int maxMarked;
+
+	/**
+	 * public MinMaxFibonacciHeap()
+	 *
+	 * Constructs an empty heap.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public MinMaxFibonacciHeap() {
+	}
+
+	/**
+	 * public MinMaxNode insert(int key)
+	 *
+	 * Inserts a node with the key into both orders.
+	 *
+	 * Returns the newly created node.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	public MinMaxNode insert(int key) {
+		MinMaxNode node = (MinMaxNode) super.insert(key);
+		maxInsertNode(node);
+		return node;
+	}
+
+	/**
+	 * public HeapNode[] insertAll(int[] keys)
+	 *
+	 * Inserts the keys, see FibonacciHeap.insertAll. The max order receives the
+	 * nodes as single trees.
+	 *
+	 * Time complexity:
+	 *
+	 * O(n)
+	 */
+	@Override
+	public HeapNode[] insertAll(int[] keys) {
+		HeapNode[] nodes = super.insertAll(keys);
+		for (HeapNode node : nodes) {
+			maxInsertNode((MinMaxNode) node);
+		}
+		return nodes;
+	}
+
+	/**
+	 * public HeapNode[] insertAllSorted(int[] keys)
+	 *
+	 * Inserts keys that are sorted in non-decreasing order, see
+	 * FibonacciHeap.insertAllSorted. The max order receives the nodes as single
+	 * trees.
+	 *
+	 * Time complexity:
+	 *
+	 * O(n)
+	 */
+	@Override
+	public HeapNode[] insertAllSorted(int[] keys) {
+		HeapNode[] nodes = super.insertAllSorted(keys);
+		for (HeapNode node : nodes) {
+			maxInsertNode((MinMaxNode) node);
+		}
+		return nodes;
+	}
+
+	/**
+	 * public MinMaxNode findMin()
+	 *
+	 * Returns the node whose key is minimal, or null if the heap is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	public MinMaxNode findMin() {
+		return (MinMaxNode) min;
+	}
+
+	/**
+	 * public MinMaxNode findMax()
+	 *
+	 * Returns the node whose key is maximal, or null if the heap is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public MinMaxNode findMax() {
+		return max;
+	}
+
+	/**
+	 * public int findMaxKey()
+	 *
+	 * Returns the maximal key. Throws NoSuchElementException if the heap is
+	 * empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public int findMaxKey() {
+		if (max == null) {
+			throw new NoSuchElementException("the heap is empty");
+		}
+		return max.key;
+	}
+
+	/**
+	 * public void deleteMin()
+	 *
+	 * Deletes the node containing the minimum key from both orders.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(log(n))
+	 */
+	@Override
+	public void deleteMin() {
+		if (min != null) {
+			maxRemove((MinMaxNode) min);
+		}
+		super.deleteMin();
+	}
+
+	/**
+	 * public void deleteMax()
+	 *
+	 * Deletes the node containing the maximum key from both orders.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(log(n))
+	 */
+	public void deleteMax() {
+		if (max == null) {
+			super.deleteMin();// keeps deleteMin's behavior on an empty heap
+			return;
+		}
+		delete(max);
+	}
+
+	/**
+	 * public void delete(HeapNode x)
+	 *
+	 * Deletes the node from both orders. The node is made the minimum by cutting
+	 * it to the root list, not by changing its key.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(log(n))
+	 */
+	@Override
+	public void delete(HeapNode x) {
+		checkNode(x);
+		maxRemove((MinMaxNode) x);
+		if (x != min) {
+			if (x.getParent() != null) {
+				cutToRoot(x);
+			}
+			min = x;
+		}
+		super.deleteMin();
+	}
+
+	/**
+	 * public void decreaseKey(HeapNode x, int delta)
+	 *
+	 * Decreases the key of the node by the non-negative delta. In the max order
+	 * the children now bigger than the node are cut, see maxLowered.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(log(n)), O(#max trees) more if x was the maximum
+	 */
+	@Override
+	public void decreaseKey(HeapNode x, int delta) {
+		super.decreaseKey(x, delta);
+		maxLowered((MinMaxNode) x);
+	}
+
+	/**
+	 * public void decreaseKeys(HeapNode[] nodes, int[] deltas)
+	 *
+	 * Decreases the key of nodes[i] by deltas[i] for every i, one decreaseKey at
+	 * a time. Throws IllegalArgumentException if the arrays differ in length.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n*k)
+	 *
+	 * Amort O(k*log(n)) for k nodes
+	 */
+	@Override
+	public void decreaseKeys(HeapNode[] nodes, int[] deltas) {
+		if (nodes.length != deltas.length) {
+			throw new IllegalArgumentException(nodes.length + " nodes but " + deltas.length + " deltas");
+		}
+		for (int i = 0; i < nodes.length; i++) {
+			decreaseKey(nodes[i], deltas[i]);
+		}
+	}
+
+	/**
+	 * public void increaseKey(HeapNode x, int delta)
+	 *
+	 * Increases the key of the node by the non-negative delta, keeping the node.
+	 * The min order cuts the children now smaller than the node, see
+	 * FibonacciHeap.increaseKey, and the max order cuts the node like
+	 * decreaseKey does in the min order.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(log(n)), O(#trees) more if x was the minimum
+	 */
+	@Override
+	public void increaseKey(HeapNode x, int delta) {
+		super.increaseKey(x, delta);
+		maxRaised((MinMaxNode) x);
+	}
+
+	/**
+	 * public void meld(FibonacciHeap heap2)
+	 *
+	 * Melds heap2 with the current heap. Throws IllegalArgumentException if heap2
+	 * is not a MinMaxFibonacciHeap, whose nodes would not be in a max order.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	public void meld(FibonacciHeap heap2) {
+		if (!(heap2 instanceof MinMaxFibonacciHeap)) {
+			throw new IllegalArgumentException("can only meld a MinMaxFibonacciHeap");
+		}
+		MinMaxFibonacciHeap other = (MinMaxFibonacciHeap) heap2;
+		super.meld(heap2);
+		if (other.maxFirst == null) {
+			return;
+		}
+		if (maxFirst == null) {
+			maxFirst = other.maxFirst;
+			max = other.max;
+		} else {
+			MinMaxNode thisLast = maxFirst.maxPrev;
+			MinMaxNode thatLast = other.maxFirst.maxPrev;
+			maxConnect(thisLast, other.maxFirst);
+			maxConnect(thatLast, maxFirst);
+			if (other.max.key > max.key) {
+				max = other.max;
+			}
+		}
+		maxTrees += other.maxTrees;
+		maxMarked += other.maxMarked;
+	}
+
+	/**
+	 * public void setLazyDeletion(double purgeFraction)
+	 *
+	 * Throws UnsupportedOperationException for a positive purgeFraction, a
+	 * tombstone could be the maximum.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	public void setLazyDeletion(double purgeFraction) {
+		if (purgeFraction != 0) {
+			throw new UnsupportedOperationException("a MinMaxFibonacciHeap deletes eagerly");
+		}
+	}
+
+	/**
+	 * public int potential()
+	 *
+	 * Returns the potential of both orders: #trees + 2*#marked summed over them.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	public int potential() {
+		return super.potential() + maxTrees + 2 * maxMarked;
+	}
+
+	/**
+	 * protected HeapNode insertIndexed(long id, int key)
+	 *
+	 * Throws UnsupportedOperationException, a node with an id is not a
+	 * MinMaxNode.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	protected HeapNode insertIndexed(long id, int key) {
+		throw new UnsupportedOperationException("a MinMaxFibonacciHeap has no ids");
+	}
+
+	/**
+	 * protected HeapNode allocateNode(int key)
+	 *
+	 * allocates a MinMaxNode
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	protected HeapNode allocateNode(int key) {
+		return new MinMaxNode(key);
+	}
+
+	/**
+	 * protected void resetHeap()
+	 *
+	 * resets both orders
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	protected void resetHeap() {
+		super.resetHeap();
+		maxFirst = null;
+		max = null;
+		maxTrees = 0;
+		maxMarked = 0;
+	}
+
+	/**
+	 * protected void maxInsertNode(MinMaxNode node)
+	 *
+	 * adds a tree as the first root of the max order and updates max
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected void maxInsertNode(MinMaxNode node) {
+		maxTrees++;
+		if (maxFirst == null) {
+			maxConnect(node, node);
+			max = node;
+		} else {
+			maxConnect(maxFirst.maxPrev, node);
+			maxConnect(node, maxFirst);
+			if (node.key > max.key) {
+				max = node;
+			}
+		}
+		maxFirst = node;
+	}
+
+	/**
+	 * protected void maxRemove(MinMaxNode x)
+	 *
+	 * removes x from the max order: it is cut to the root list, its children
+	 * become roots, and the forest is consolidated if x was the maximum
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(log(n))
+	 */
+	protected void maxRemove(MinMaxNode x) {
+		long cutsBefore = cuts;
+		if (x.maxParent != null) {
+			maxCascadingCuts(x, x.maxParent);
+		}
+		TOTAL_CUTS.add(cuts - cutsBefore);
+		MinMaxNode child = x.maxChild;
+		for (int i = x.maxRank; i > 0; i--) {// the children become roots
+			MinMaxNode next = child.maxNext;
+			if (child.maxMark) {
+				maxMarked--;
+				child.maxMark = false;
+			}
+			child.maxParent = null;
+			maxInsertNode(child);
+			child = next;
+		}
+		x.maxChild = null;
+		x.maxRank = 0;
+		maxTrees--;
+		if (x.maxNext == x) {
+			maxFirst = null;
+			max = null;
+			return;
+		}
+		maxConnect(x.maxPrev, x.maxNext);
+		if (maxFirst == x) {
+			maxFirst = x.maxNext;
+		}
+		if (max == x) {
+			maxConsolidate();
+		}
+	}
+
+	/**
+	 * protected void maxRaised(MinMaxNode x)
+	 *
+	 * restores the max order after the key of x grew, the mirror of
+	 * decreaseKey: x is cut from its parent if it is no longer smaller
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(1)
+	 */
+	protected void maxRaised(MinMaxNode x) {
+		if (x.key > max.key) {
+			max = x;
+		}
+		if (x.maxParent == null || x.maxParent.key > x.key) {
+			return;
+		}
+		long cutsBefore = cuts;
+		maxCascadingCuts(x, x.maxParent);
+		TOTAL_CUTS.add(cuts - cutsBefore);
+	}
+
+	/**
+	 * protected void maxLowered(MinMaxNode x)
+	 *
+	 * restores the max order after the key of x shrank, the mirror of
+	 * FibonacciHeap.increaseKey: the children now bigger than x are cut, and the
+	 * max roots are scanned if x was the maximum
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(log(n)), O(#max trees) more if x was the maximum
+	 */
+	protected void maxLowered(MinMaxNode x) {
+		boolean wasMax = x == max; // maxInsertNode may move max to a cut child
+		long cutsBefore = cuts;
+		int lost = 0;
+		MinMaxNode child = x.maxChild;
+		for (int i = x.maxRank; i > 0; i--) {
+			MinMaxNode next = child.maxNext;
+			if (child.key > x.key) {
+				maxCut(child, x);
+				lost++;
+			}
+			child = next;
+		}
+		if (lost > 0 && x.maxParent != null) {
+			if (x.maxMark || lost > 1) {
+				maxCascadingCuts(x, x.maxParent);
+			} else {
+				x.maxMark = true;
+				maxMarked++;
+			}
+		}
+		TOTAL_CUTS.add(cuts - cutsBefore);
+		if (wasMax) {
+			maxRescan();
+		}
+	}
+
+	/**
+	 * protected void maxRescan()
+	 *
+	 * sets max to the biggest root of the max order, which is not empty
+	 *
+	 * Time complexity:
+	 *
+	 * O(#max trees)
+	 */
+	protected void maxRescan() {
+		MinMaxNode best = maxFirst;
+		for (MinMaxNode node = maxFirst.maxNext; node != maxFirst; node = node.maxNext) {
+			if (node.key > best.key) {
+				best = node;
+			}
+		}
+		max = best;
+	}
+
+	/**
+	 * protected void maxCascadingCuts(MinMaxNode child, MinMaxNode parent)
+	 *
+	 * cuts child to the max root list, and keeps cutting the marked parents up
+	 * the tree, marking the first unmarked one. Iterative, the chain can be long.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(1)
+	 */
+	protected void maxCascadingCuts(MinMaxNode child, MinMaxNode parent) {
+		maxCut(child, parent);
+		while (parent.maxParent != null) {
+			if (!parent.maxMark) {
+				parent.maxMark = true;
+				maxMarked++;
+				return;
+			}
+			MinMaxNode grandparent = parent.maxParent;
+			maxCut(parent, grandparent);
+			parent = grandparent;
+		}
+	}
+
+	/**
+	 * protected void maxCut(MinMaxNode child, MinMaxNode parent)
+	 *
+	 * cuts child from parent in the max order and adds it as an unmarked root,
+	 * without touching the mark of parent
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected void maxCut(MinMaxNode child, MinMaxNode parent) {
+		cuts++;
+		if (child.maxMark) {
+			maxMarked--;
+			child.maxMark = false;
+		}
+		child.maxParent = null;
+		if (child.maxNext == child) {
+			parent.maxChild = null;
+		} else {
+			if (parent.maxChild == child) {
+				parent.maxChild = child.maxNext;
+			}
+			maxConnect(child.maxPrev, child.maxNext);
+		}
+		parent.maxRank--;
+		maxInsertNode(child);
+	}
+
+	/**
+	 * protected void maxConsolidate()
+	 *
+	 * links the max roots of equal rank until the ranks are distinct and finds
+	 * the maximum, like consolidate. Shares the rank table of the min order.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(log(n))
+	 */
+	protected void maxConsolidate() {
+		HeapNode[] ranks = rankTable(size);
+		long linksBefore = links;
+		long occupied = 0; // bit k is set iff ranks[k] holds a tree
+		MinMaxNode node = maxFirst;
+		maxFirst.maxPrev.maxNext = null; // so we know where to stop
+		while (node != null) {
+			MinMaxNode next = node.maxNext;
+			int k = node.maxRank;
+			while ((occupied & (1L << k)) != 0) {
+				node = maxLink(node, (MinMaxNode) ranks[k]);
+				ranks[k] = null;
+				occupied &= ~(1L << k);
+				k++;
+			}
+			ranks[k] = node;
+			occupied |= 1L << k;
+			node = next;
+		}
+		maxTrees = Long.bitCount(occupied);
+		maxFirst = null;
+		MinMaxNode last = null;
+		while (occupied != 0) {
+			int k = Long.numberOfTrailingZeros(occupied);
+			occupied &= occupied - 1;
+			MinMaxNode tree = (MinMaxNode) ranks[k];
+			ranks[k] = null;
+			if (maxFirst == null) {
+				maxFirst = tree;
+				max = tree;
+			} else {
+				maxConnect(last, tree);
+				if (tree.key >= max.key) {
+					max = tree;
+				}
+			}
+			last = tree;
+		}
+		maxConnect(last, maxFirst);
+		TOTAL_LINKS.add(links - linksBefore);
+	}
+
+	/**
+	 * protected MinMaxNode maxLink(MinMaxNode a, MinMaxNode b)
+	 *
+	 * links two max trees of the same rank, the one with the smaller root becomes
+	 * the first child of the other. Returns the root of the result.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected MinMaxNode maxLink(MinMaxNode a, MinMaxNode b) {
+		links++;
+		MinMaxNode parent = a.key >= b.key ? a : b;
+		MinMaxNode child = parent == a ? b : a;
+		child.maxParent = parent;
+		if (parent.maxChild == null) {
+			maxConnect(child, child);
+		} else {
+			maxConnect(parent.maxChild.maxPrev, child);
+			maxConnect(child, parent.maxChild);
+		}
+		parent.maxChild = child;
+		parent.maxRank++;
+		return parent;
+	}
+
+	/**
+	 * protected static void maxConnect(MinMaxNode left, MinMaxNode right)
+	 *
+	 * makes right the next of left in the max order
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected static void maxConnect(MinMaxNode left, MinMaxNode right) {
+		left.maxNext = right;
+		right.maxPrev = left;
+	}
+
+	/**
+	 * public static class MinMaxNode
+	 *
+	 * A node of a MinMaxFibonacciHeap: a HeapNode in the min order with a second
+	 * set of links for the max order.
+	 */
+	public static class MinMaxNode extends HeapNode {
+		protected MinMaxNode maxParent;
+		protected MinMaxNode maxChild;
+		protected MinMaxNode maxNext;
+		protected MinMaxNode maxPrev;
+		protected int maxRank;
+		protected boolean maxMark;
+
+		/**
+		 * public MinMaxNode(int key)
+		 *
+		 * Constructs a node with the key
+		 *
+		 * Time complexity:
+		 * O(1)
+		 */
+		public MinMaxNode(int key) {
+			super(key);
+		}
+	}
+}
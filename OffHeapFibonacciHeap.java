@@ -0,0 +1,732 @@
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+
+/**
+ * OffHeapFibonacciHeap
+ *
+ * A Fibonacci Heap over integers whose nodes live outside the Java heap. Every
+ * node is a 32 byte record (key, rank, flags and the parent/child/next/prev
+ * links) in native memory pages allocated from an Arena, and is referred to by
+ * an int handle, its record number, in place of a HeapNode reference. The GC
+ * never scans the nodes; their memory is released all at once by close().
+ *
+ * Records of deleted nodes are recycled by later inserts. The algorithms are the
+ * same as in FibonacciHeap. Requires the java.lang.foreign API: Java 22, or
+ * Java 21 with --enable-preview. See the README to build without it on older JDKs.
+ */
+public class OffHeapFibonacciHeap implements AutoCloseable {
+	public static final int NIL = -1;
+	protected static final int MAX_RANK = 64;
+
+	// record layout
+	protected static final long RECORD_BYTES = 32;
+	protected static final long KEY = 0;
+	protected static final long RANK = 4;
+	protected static final long FLAGS = 8;
+	protected static final long PARENT = 12;
+	protected static final long CHILD = 16;
+	protected static final long NEXT = 20; // for a free record: the next free record
+	protected static final long PREV = 24;
+	protected static final int MARKED = 1;
+	protected static final int FREE = 2;
+
+	// 2^14 records (512KB) per page
+	protected static final int PAGE_SHIFT = 14;
+	protected static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+	protected final Arena arena;
+	protected MemorySegment[] pages = new MemorySegment[4];
+	protected int pageCount;
+
+	protected int first = NIL;
+	protected int min = NIL;
+	protected int free = NIL;
+	protected int used; // records [0, used) were handed out at least once
+	protected int size;
+	protected int trees;
+	protected int marked;
+	protected final int[] rankTable = new int[MAX_RANK];
+
+	/**
+	 * public OffHeapFibonacciHeap()
+	 *
+	 * Constructs an empty heap with its own shared arena.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public OffHeapFibonacciHeap() {
+		arena = Arena.ofShared();
+		Arrays.fill(rankTable, NIL);
+	}
+
+	/**
+	 * public void close()
+	 *
+	 * Frees the native memory of all the nodes. The heap can not be used
+	 * afterwards.
+	 *
+	 * Time complexity:
+	 *
+	 * O(#pages)
+	 */
+	@Override
+	public void close() {
+		arena.close();
+		pages = new MemorySegment[0];
+		pageCount = 0;
+		first = NIL;
+		min = NIL;
+		free = NIL;
+		used = 0;
+		size = 0;
+		trees = 0;
+		marked = 0;
+	}
+
+	// record access
+
+	protected int get(int node, long field) {
+		return pages[node >>> PAGE_SHIFT].get(ValueLayout.JAVA_INT, (node & PAGE_MASK) * RECORD_BYTES + field);
+	}
+
+	protected void set(int node, long field, int value) {
+		pages[node >>> PAGE_SHIFT].set(ValueLayout.JAVA_INT, (node & PAGE_MASK) * RECORD_BYTES + field, value);
+	}
+
+	protected int key(int node) {
+		return get(node, KEY);
+	}
+
+	protected int rank(int node) {
+		return get(node, RANK);
+	}
+
+	protected boolean isMark(int node) {
+		return (get(node, FLAGS) & MARKED) != 0;
+	}
+
+	protected void setMark(int node, boolean mark) {
+		set(node, FLAGS, mark ? MARKED : 0);
+	}
+
+	protected int parent(int node) {
+		return get(node, PARENT);
+	}
+
+	protected int child(int node) {
+		return get(node, CHILD);
+	}
+
+	protected int next(int node) {
+		return get(node, NEXT);
+	}
+
+	protected int prev(int node) {
+		return get(node, PREV);
+	}
+
+	/**
+	 * protected int allocate()
+	 *
+	 * returns a free record, taking a new page from the arena if needed
+	 *
+	 * Time complexity:
+	 *
+	 * Amort O(1)
+	 */
+	protected int allocate() {
+		if (free != NIL) {
+			int node = free;
+			free = next(node);
+			return node;
+		}
+		if (used == Integer.MAX_VALUE) {
+			throw new IllegalStateException("heap is full");
+		}
+		if ((used >>> PAGE_SHIFT) == pageCount) {
+			if (pageCount == pages.length) {
+				pages = Arrays.copyOf(pages, pageCount * 2);
+			}
+			pages[pageCount++] = arena.allocate(RECORD_BYTES << PAGE_SHIFT, RECORD_BYTES);
+		}
+		return used++;
+	}
+
+	/**
+	 * protected void release(int node)
+	 *
+	 * returns the record of a removed node to the free list
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected void release(int node) {
+		set(node, FLAGS, FREE);
+		set(node, NEXT, free);
+		free = node;
+	}
+
+	/**
+	 * protected void checkNode(int node)
+	 *
+	 * throws IllegalArgumentException if node is not a live handle of this heap
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected void checkNode(int node) {
+		if (node < 0 || node >= used || (get(node, FLAGS) & FREE) != 0) {
+			throw new IllegalArgumentException("not a node of this heap: " + node);
+		}
+	}
+
+	/**
+	 * public boolean isEmpty()
+	 *
+	 * Returns true if and only if the heap is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public boolean isEmpty() {
+		return first == NIL;
+	}
+
+	/**
+	 * public int getKey(int node)
+	 *
+	 * returns the key of the node
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public int getKey(int node) {
+		checkNode(node);
+		return key(node);
+	}
+
+	/**
+	 * public int getRank(int node)
+	 *
+	 * returns the rank of the node
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public int getRank(int node) {
+		checkNode(node);
+		return rank(node);
+	}
+
+	/**
+	 * protected void connect2Nodes(int left, int right)
+	 *
+	 * Receives 2 nodes and connects them setting one to be the next of the other.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected void connect2Nodes(int left, int right) {
+		set(left, NEXT, right);
+		set(right, PREV, left);
+	}
+
+	/**
+	 * public int insert(int key)
+	 *
+	 * Creates a node which contains the given key and inserts it into the heap.
+	 *
+	 * Returns the handle of the new node.
+	 *
+	 * Time complexity:
+	 *
+	 * Amort O(1)
+	 */
+	public int insert(int key) {
+		int node = allocate();
+		set(node, KEY, key);
+		set(node, RANK, 0);
+		set(node, FLAGS, 0);
+		set(node, PARENT, NIL);
+		set(node, CHILD, NIL);
+		size++;
+		insertNode(node);
+		return node;
+	}
+
+	/**
+	 * protected void insertNode(int node)
+	 *
+	 * the method receives a root of a tree and inserts it as is to the heap as the
+	 * first tree.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected void insertNode(int node) {
+		trees++;
+		if (isEmpty()) {
+			min = node;
+			connect2Nodes(node, node);
+		} else {
+			if (key(min) > key(node)) {
+				min = node;
+			}
+			int last = prev(first);
+			connect2Nodes(node, first);
+			connect2Nodes(last, node);
+		}
+		first = node;
+	}
+
+	/**
+	 * public int findMin()
+	 *
+	 * Returns the handle of the node whose key is minimal, or NIL if the heap is
+	 * empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public int findMin() {
+		return min;
+	}
+
+	/**
+	 * public void deleteMin()
+	 *
+	 * Deletes the node containing the minimum key.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(log(n))
+	 */
+	public void deleteMin() {
+		if (isEmpty()) {
+			return;
+		}
+		int oldMin = min;
+		size--;
+		if (size == 0) {
+			release(oldMin);
+			first = NIL;
+			min = NIL;
+			trees = 0;
+			marked = 0;
+			return;
+		}
+		int child = child(oldMin);
+		if (first == oldMin) {
+			first = child != NIL ? child : next(oldMin);
+		}
+		if (child == NIL) {
+			connect2Nodes(prev(oldMin), next(oldMin));
+		} else {
+			int node = child;
+			do {// the children become roots
+				if (isMark(node)) {
+					marked--;
+					setMark(node, false);
+				}
+				set(node, PARENT, NIL);
+				node = next(node);
+			} while (node != child);
+			if (next(oldMin) == oldMin) {
+				first = child;
+			} else {
+				int last = prev(child);
+				int nextMin = next(oldMin);
+				int prevMin = prev(oldMin);
+				connect2Nodes(last, nextMin);
+				connect2Nodes(prevMin, child);
+			}
+		}
+		release(oldMin);
+		consolidate();
+	}
+
+	/**
+	 * protected void consolidate()
+	 *
+	 * links the roots until no two of them have the same rank.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(logn)
+	 */
+	protected void consolidate() {
+		int[] table = rankTable;
+		int maxRank = 0;
+		int node = first;
+		set(prev(first), NEXT, NIL); // so we know where to stop
+		while (node != NIL) {
+			int next = next(node);
+			int k = rank(node);
+			while (table[k] != NIL) {
+				node = link(node, table[k]);
+				table[k] = NIL;
+				k++;
+			}
+			table[k] = node;
+			maxRank = Math.max(maxRank, k);
+			node = next;
+		}
+		first = NIL;
+		trees = 0;
+		for (int i = maxRank; i >= 0; i--) {// from the bigger to the smaller so the smallest is the first
+			if (table[i] != NIL) {
+				insertNode(table[i]);
+				table[i] = NIL;
+			}
+		}
+	}
+
+	/**
+	 * protected int link(int parent, int child)
+	 *
+	 * Receives 2 roots of trees and combines them to 1 big tree and sets the
+	 * smaller to be the parent of the other
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected int link(int parent, int child) {
+		if (key(child) < key(parent)) {
+			int temp = parent;
+			parent = child;
+			child = temp;
+		}
+		set(child, PARENT, parent);
+		setMark(child, false);
+		int thisChild = child(parent);
+		if (thisChild == NIL) {
+			connect2Nodes(child, child);
+		} else {
+			connect2Nodes(prev(thisChild), child);
+			connect2Nodes(child, thisChild);
+		}
+		set(parent, CHILD, child);
+		set(parent, RANK, rank(parent) + 1);
+		return parent;
+	}
+
+	/**
+	 * public int meld(OffHeapFibonacciHeap heap2)
+	 *
+	 * Melds heap2 with the current heap. The records of heap2 are copied into this
+	 * heap, heap2 becomes empty (it stays open), and a handle h of heap2 becomes
+	 * the handle h + offset of this heap, where offset is the returned value.
+	 *
+	 * Time complexity:
+	 *
+	 * O(the records used by heap2)
+	 */
+	public int meld(OffHeapFibonacciHeap heap2) {
+		if (heap2 == this) {
+			throw new IllegalArgumentException("cannot meld a heap with itself");
+		}
+		if (heap2.used > Integer.MAX_VALUE - used) {
+			throw new IllegalStateException("heap is full");
+		}
+		int offset = used;
+		int oldFree = free;
+		free = NIL;
+		for (int i = 0; i < heap2.used; i++) {// records are taken in order, so record i lands on i + offset
+			int node = allocate();
+			set(node, KEY, heap2.get(i, KEY));
+			set(node, RANK, heap2.get(i, RANK));
+			set(node, FLAGS, heap2.get(i, FLAGS));
+			set(node, PARENT, shift(heap2.get(i, PARENT), offset));
+			set(node, CHILD, shift(heap2.get(i, CHILD), offset));
+			set(node, NEXT, shift(heap2.get(i, NEXT), offset));
+			set(node, PREV, shift(heap2.get(i, PREV), offset));
+		}
+		free = oldFree;
+		for (int slot = heap2.free; slot != NIL; slot = heap2.next(slot)) {// the free records of heap2 stay free
+			release(slot + offset);
+		}
+		if (!heap2.isEmpty()) {
+			int thatFirst = heap2.first + offset;
+			int thatMin = heap2.min + offset;
+			if (isEmpty()) {
+				first = thatFirst;
+				min = thatMin;
+			} else {
+				int thisLast = prev(first);
+				int thatLast = prev(thatFirst);
+				connect2Nodes(thisLast, thatFirst);
+				connect2Nodes(thatLast, first);
+				min = key(min) < key(thatMin) ? min : thatMin;
+			}
+			size += heap2.size;
+			trees += heap2.trees;
+			marked += heap2.marked;
+		}
+		heap2.first = NIL;
+		heap2.min = NIL;
+		heap2.free = NIL;
+		heap2.used = 0;
+		heap2.size = 0;
+		heap2.trees = 0;
+		heap2.marked = 0;
+		return offset;
+	}
+
+	private static int shift(int link, int offset) {
+		return link == NIL ? NIL : link + offset;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of elements in the heap.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * public int[] countersRep()
+	 *
+	 * Return an array of counters. The i-th entry contains the number of trees of
+	 * order i in the heap. An empty heap returns an empty array.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 */
+	public int[] countersRep() {
+		if (isEmpty()) {
+			return new int[0];
+		}
+		int maxRank = 0;
+		int node = first;
+		do {
+			maxRank = Math.max(maxRank, rank(node));
+			node = next(node);
+		} while (node != first);
+		int[] res = new int[maxRank + 1];
+		do {
+			res[rank(node)]++;
+			node = next(node);
+		} while (node != first);
+		return res;
+	}
+
+	/**
+	 * public void delete(int node)
+	 *
+	 * Deletes the node from the heap. The node is cut up to the root list (with
+	 * cascading cuts) and deleted as if it was the minimum, so it works for any
+	 * key.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(logn)
+	 */
+	public void delete(int node) {
+		checkNode(node);
+		if (node != min) {// force it to be the minimum, a key below the minimum may overflow
+			int parent = parent(node);
+			if (parent != NIL) {
+				cascadingCuts(node, parent);
+			}
+			min = node;
+		}
+		deleteMin();
+	}
+
+	/**
+	 * public void decreaseKey(int node, int delta)
+	 *
+	 * decreases the key of the node by a non-negative value delta, applying
+	 * cascading cuts if the heap order is broken.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(1)
+	 */
+	public void decreaseKey(int node, int delta) {
+		checkNode(node);
+		int key = key(node) - delta;
+		set(node, KEY, key);
+		if (key < key(min)) {
+			min = node;
+		}
+		int parent = parent(node);
+		if (parent == NIL || key(parent) < key) {
+			return;
+		}
+		cascadingCuts(node, parent);
+	}
+
+	/**
+	 * protected void cascadingCuts(int child, int parent)
+	 *
+	 * cuts the node from its parent and continues up while the parents are marked,
+	 * marking the first unmarked non-root parent.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(1)
+	 */
+	protected void cascadingCuts(int child, int parent) {
+		while (true) {
+			if (isMark(child)) {
+				marked--;
+				setMark(child, false);
+			}
+			cut(child, parent);
+			insertNode(child);
+			if (parent(parent) == NIL) {
+				return;
+			}
+			if (!isMark(parent)) {
+				setMark(parent, true);
+				marked++;
+				return;
+			}
+			child = parent;
+			parent = parent(parent);
+		}
+	}
+
+	/**
+	 * protected void cut(int child, int parent)
+	 *
+	 * disconnects the child from the parent.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected void cut(int child, int parent) {
+		set(child, PARENT, NIL);
+		int next = next(child);
+		if (next == child) {
+			set(parent, CHILD, NIL);
+		} else {
+			if (child(parent) == child) {
+				set(parent, CHILD, next);
+			}
+			connect2Nodes(prev(child), next);
+		}
+		set(parent, RANK, rank(parent) - 1);
+	}
+
+	/**
+	 * public int potential()
+	 *
+	 * returns #trees + 2*#marked
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public int potential() {
+		return trees + 2 * marked;
+	}
+
+	/**
+	 * public static int[] kMin(OffHeapFibonacciHeap H, int k)
+	 *
+	 * returns the k smallest keys of H (fewer if H is smaller) in ascending order
+	 * without changing H. The candidates are kept in a binary heap of handles.
+	 *
+	 * Time complexity:
+	 *
+	 * O(k*deg(H)*log(k*deg(H))) for a heap that contains a single tree
+	 */
+	public static int[] kMin(OffHeapFibonacciHeap H, int k) {
+		k = Math.min(k, H.size);
+		int[] res = new int[Math.max(k, 0)];
+		if (k <= 0) {
+			return res;
+		}
+		int[] candidates = new int[(int) Math.min(H.size, H.trees + (long) k * MAX_RANK)];
+		int count = 0;
+		int root = H.first;
+		do {
+			count = H.siftUp(candidates, count, root);
+			root = H.next(root);
+		} while (root != H.first);
+		for (int i = 0; i < k; i++) {
+			int node = candidates[0];
+			res[i] = H.key(node);
+			count--;
+			H.siftDown(candidates, count, candidates[count]);
+			int first = H.child(node);
+			if (first != NIL) {
+				int child = first;
+				do {
+					count = H.siftUp(candidates, count, child);
+					child = H.next(child);
+				} while (child != first);
+			}
+		}
+		return res;
+	}
+
+	private int siftUp(int[] heap, int count, int node) {
+		int key = key(node);
+		int i = count;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (key(heap[parent]) <= key) {
+				break;
+			}
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = node;
+		return count + 1;
+	}
+
+	private void siftDown(int[] heap, int count, int node) {
+		if (count == 0) {
+			return;
+		}
+		int key = key(node);
+		int i = 0;
+		int half = count >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			if (child + 1 < count && key(heap[child + 1]) < key(heap[child])) {
+				child++;
+			}
+			if (key <= key(heap[child])) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = node;
+	}
+}
@@ -0,0 +1,372 @@
+import java.util.NoSuchElementException;
+
+/**
+ * PersistentHeap
+ *
+ * An immutable heap over integers: insert, deleteMin and meld return a new
+ * version and leave the old one unchanged, sharing all the unchanged parts with
+ * it. Keeping a version is a snapshot that costs nothing, and a version can be
+ * read by any number of threads without locking while a writer derives new
+ * versions - publishing the current version through a volatile field is
+ * enough, since every field is final.
+ *
+ * The versions are skew binomial heaps (Brodal and Okasaki) with the minimum
+ * cached next to the forest: a list of skew binomial trees in increasing rank,
+ * where only the first two may have the same rank, so insert links at most one
+ * pair of trees.
+ */
+public final class PersistentHeap {
+	protected static final PersistentHeap EMPTY = new PersistentHeap(null, 0, 0);
+
+	protected final Trees trees; // increasing rank, only the first two may be equal
+	protected final int size;
+	protected final int min; // the smallest root key, undefined when empty
+
+	/**
+	 * protected PersistentHeap(Trees trees, int size, int min)
+	 *
+	 * Constructs a version with the forest
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected PersistentHeap(Trees trees, int size, int min) {
+		this.trees = trees;
+		this.size = size;
+		this.min = min;
+	}
+
+	/**
+	 * public static PersistentHeap empty()
+	 *
+	 * Returns the empty heap.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public static PersistentHeap empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * public boolean isEmpty()
+	 *
+	 * Returns true if and only if the heap is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of elements in the heap.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * public int findMin()
+	 *
+	 * Returns the minimal key. Throws NoSuchElementException if the heap is
+	 * empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public int findMin() {
+		if (size == 0) {
+			throw new NoSuchElementException("empty heap");
+		}
+		return min;
+	}
+
+	/**
+	 * public PersistentHeap insert(int key)
+	 *
+	 * Returns this heap with the key added.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(1)
+	 */
+	public PersistentHeap insert(int key) {
+		Trees ts = trees;
+		Trees inserted;
+		if (ts != null && ts.next != null && ts.tree.rank == ts.next.tree.rank) {// skew link the first two
+			inserted = new Trees(skewLink(key, ts.tree, ts.next.tree), ts.next.next);
+		} else {
+			inserted = new Trees(new Tree(0, key, null, null), ts);
+		}
+		return new PersistentHeap(inserted, size + 1, size == 0 ? key : Math.min(min, key));
+	}
+
+	/**
+	 * public PersistentHeap deleteMin()
+	 *
+	 * Returns this heap without one occurrence of its minimal key. Throws
+	 * NoSuchElementException if the heap is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(log(n))
+	 */
+	public PersistentHeap deleteMin() {
+		if (size == 0) {
+			throw new NoSuchElementException("empty heap");
+		}
+		if (size == 1) {
+			return EMPTY;
+		}
+		// remove the tree of the minimum, copying the trees in front of it
+		Trees ts = trees;
+		Trees before = null;
+		while (ts.tree.key != min) {
+			before = new Trees(ts.tree, before);
+			ts = ts.next;
+		}
+		Tree removed = ts.tree;
+		Trees rest = ts.next;
+		for (; before != null; before = before.next) {
+			rest = new Trees(before.tree, rest);
+		}
+		// its children are in decreasing rank, without equal ranks
+		Trees children = null;
+		for (Trees c = removed.children; c != null; c = c.next) {
+			children = new Trees(c.tree, children);
+		}
+		Trees merged = merge(normalize(children), normalize(rest));
+		PersistentHeap heap = merged == null ? EMPTY
+				: new PersistentHeap(merged, size - 1 - count(removed.extras), minRoot(merged));
+		for (Keys x = removed.extras; x != null; x = x.next) {
+			heap = heap.insert(x.key);
+		}
+		return heap;
+	}
+
+	/**
+	 * public PersistentHeap meld(PersistentHeap heap2)
+	 *
+	 * Returns the heap of the keys of this heap and of heap2.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(log(n))
+	 */
+	public PersistentHeap meld(PersistentHeap heap2) {
+		if (heap2.size == 0) {
+			return this;
+		}
+		if (size == 0) {
+			return heap2;
+		}
+		return new PersistentHeap(merge(normalize(trees), normalize(heap2.trees)), size + heap2.size,
+				Math.min(min, heap2.min));
+	}
+
+	/**
+	 * public int[] toSortedArray()
+	 *
+	 * Returns the keys of the heap in ascending order.
+	 *
+	 * Time complexity:
+	 *
+	 * O(n*log(n))
+	 */
+	public int[] toSortedArray() {
+		int[] res = new int[size];
+		PersistentHeap heap = this;
+		for (int i = 0; i < res.length; i++) {
+			res[i] = heap.findMin();
+			heap = heap.deleteMin();
+		}
+		return res;
+	}
+
+	/**
+	 * protected static Tree link(Tree t1, Tree t2)
+	 *
+	 * links two trees of the same rank, the one with the bigger root becomes the
+	 * first child of the other
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected static Tree link(Tree t1, Tree t2) {
+		if (t1.key <= t2.key) {
+			return new Tree(t1.rank + 1, t1.key, t1.extras, new Trees(t2, t1.children));
+		}
+		return new Tree(t2.rank + 1, t2.key, t2.extras, new Trees(t1, t2.children));
+	}
+
+	/**
+	 * protected static Tree skewLink(int key, Tree t1, Tree t2)
+	 *
+	 * links two trees of the same rank and adds the key to the result, as its
+	 * root if it is the smallest
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected static Tree skewLink(int key, Tree t1, Tree t2) {
+		Tree t = link(t1, t2);
+		if (key <= t.key) {
+			return new Tree(t.rank, key, new Keys(t.key, t.extras), t.children);
+		}
+		return new Tree(t.rank, t.key, new Keys(key, t.extras), t.children);
+	}
+
+	/**
+	 * protected static Trees insertTree(Tree t, Trees ts)
+	 *
+	 * adds a tree to a forest of distinct ranks, none smaller than its rank,
+	 * linking while the ranks collide
+	 *
+	 * Time complexity:
+	 *
+	 * O(log(n))
+	 */
+	protected static Trees insertTree(Tree t, Trees ts) {
+		while (ts != null && ts.tree.rank <= t.rank) {
+			t = link(t, ts.tree);
+			ts = ts.next;
+		}
+		return new Trees(t, ts);
+	}
+
+	/**
+	 * protected static Trees normalize(Trees ts)
+	 *
+	 * removes the one possible rank collision at the front of a forest
+	 *
+	 * Time complexity:
+	 *
+	 * O(log(n))
+	 */
+	protected static Trees normalize(Trees ts) {
+		return ts == null ? null : insertTree(ts.tree, ts.next);
+	}
+
+	/**
+	 * protected static Trees merge(Trees ts1, Trees ts2)
+	 *
+	 * merges two forests of distinct increasing ranks like adding binary numbers
+	 *
+	 * Time complexity:
+	 *
+	 * O(log(n))
+	 */
+	protected static Trees merge(Trees ts1, Trees ts2) {
+		if (ts1 == null) {
+			return ts2;
+		}
+		if (ts2 == null) {
+			return ts1;
+		}
+		if (ts1.tree.rank < ts2.tree.rank) {
+			return new Trees(ts1.tree, merge(ts1.next, ts2));
+		}
+		if (ts2.tree.rank < ts1.tree.rank) {
+			return new Trees(ts2.tree, merge(ts1, ts2.next));
+		}
+		return insertTree(link(ts1.tree, ts2.tree), merge(ts1.next, ts2.next));
+	}
+
+	/**
+	 * protected static int minRoot(Trees ts)
+	 *
+	 * returns the smallest root key of a non-empty forest
+	 *
+	 * Time complexity:
+	 *
+	 * O(log(n))
+	 */
+	protected static int minRoot(Trees ts) {
+		int res = ts.tree.key;
+		for (ts = ts.next; ts != null; ts = ts.next) {
+			res = Math.min(res, ts.tree.key);
+		}
+		return res;
+	}
+
+	/**
+	 * protected static int count(Keys keys)
+	 *
+	 * returns the length of the list
+	 *
+	 * Time complexity:
+	 *
+	 * O(length), at most the rank of the tree holding the list
+	 */
+	protected static int count(Keys keys) {
+		int res = 0;
+		for (; keys != null; keys = keys.next) {
+			res++;
+		}
+		return res;
+	}
+
+	/**
+	 * protected static class Tree
+	 *
+	 * A skew binomial tree: a root key, up to rank extra keys that were skew
+	 * linked into it, and its children in decreasing rank.
+	 */
+	protected static final class Tree {
+		protected final int rank;
+		protected final int key;
+		protected final Keys extras;
+		protected final Trees children;
+
+		protected Tree(int rank, int key, Keys extras, Trees children) {
+			this.rank = rank;
+			this.key = key;
+			this.extras = extras;
+			this.children = children;
+		}
+	}
+
+	/**
+	 * protected static class Trees
+	 *
+	 * An immutable list of trees.
+	 */
+	protected static final class Trees {
+		protected final Tree tree;
+		protected final Trees next;
+
+		protected Trees(Tree tree, Trees next) {
+			this.tree = tree;
+			this.next = next;
+		}
+	}
+
+	/**
+	 * protected static class Keys
+	 *
+	 * An immutable list of keys.
+	 */
+	protected static final class Keys {
+		protected final int key;
+		protected final Keys next;
+
+		protected Keys(int key, Keys next) {
+			this.key = key;
+			this.next = next;
+		}
+	}
+}
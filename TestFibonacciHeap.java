@@ -5,14 +5,24 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -1966,4 +1976,1258 @@ public class TestFibonacciHeap {
             node = node.getNext();
         }
     }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1000)
+    public void testNodePool() {
+        FibonacciHeap pooledHeap = new FibonacciHeap(1);
+        FibonacciHeap.HeapNode node1 = pooledHeap.insert(1);
+        FibonacciHeap.HeapNode node2 = pooledHeap.insert(2);
+        int generation = node1.getGeneration();
+
+        pooledHeap.deleteMin();
+        assertEquals(1, pooledHeap.pooledNodes());
+        assertThrows(IllegalStateException.class, () -> pooledHeap.decreaseKey(node1, 1));
+
+        FibonacciHeap.HeapNode node3 = pooledHeap.insert(3);
+        assertSame(node1, node3);
+        assertEquals(3, node3.getKey());
+        assertEquals(1, pooledHeap.poolHits());
+        assertEquals(2, pooledHeap.poolMisses());
+        assertThrows(IllegalStateException.class, () -> pooledHeap.delete(node1, generation));
+        assertValidHeap(pooledHeap);
+
+        pooledHeap.delete(node2);
+        pooledHeap.deleteMin();
+        assertEquals(1, pooledHeap.pooledNodes());
+        assertEquals(1, pooledHeap.poolDrops());
+        assertTrue(pooledHeap.isEmpty());
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1001)
+    public void testInsertAll() {
+        heap.insert(50);
+        int[] keys = new int[] { 7, 3, 9, 1, 12, 5, 8, 20, 2, 11, 4 }; // 11 = 0b1011
+        int links = FibonacciHeap.totalLinks();
+        FibonacciHeap.HeapNode[] nodes = heap.insertAll(keys);
+        assertValidHeap(heap);
+        assertEquals(keys.length + 1, heap.size());
+        assertEquals(keys.length - 3, FibonacciHeap.totalLinks() - links);
+        assertTrue(Arrays.equals(new int[] { 2, 1, 0, 1 }, heap.countersRep()));
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(keys[i], nodes[i].getKey());
+        }
+        assertSame(nodes[3], heap.findMin());
+
+        int[] sorted = IntStream.concat(Arrays.stream(keys), IntStream.of(50)).sorted().toArray();
+        for (int key : sorted) {
+            assertEquals(key, heap.findMin().getKey());
+            heap.deleteMin();
+            assertValidHeap(heap);
+        }
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1002)
+    public void testInsertAllSorted() {
+        int[] keys = IntStream.range(0, 13).toArray(); // 13 = 0b1101
+        FibonacciHeap.HeapNode[] nodes = heap.insertAllSorted(keys);
+        assertValidHeap(heap);
+        assertTrue(Arrays.equals(new int[] { 1, 0, 1, 1 }, heap.countersRep()));
+        assertSame(nodes[0], heap.findMin());
+        assertEquals(3, nodes[0].getRank());
+        assertEquals(3, heap.potential());
+        for (int key : keys) {
+            assertEquals(key, heap.findMin().getKey());
+            heap.deleteMin();
+            assertValidHeap(heap);
+        }
+        assertThrows(IllegalArgumentException.class, () -> heap.insertAllSorted(new int[] { 2, 1 }));
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1003)
+    public void testInstanceCounters() {
+        FibonacciHeap other = new FibonacciHeap();
+        other.insert(100);
+        other.insert(101);
+        other.insert(102);
+        other.deleteMin();
+        int links = FibonacciHeap.totalLinks();
+        int cuts = FibonacciHeap.totalCuts();
+        long consolidations = FibonacciHeap.totalConsolidations();
+
+        FibonacciHeap.HeapNode[] nodes = new FibonacciHeap.HeapNode[8];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = heap.insert(i + 1);
+        }
+        heap.insert(0);
+        heap.deleteMin(); // a single binomial tree of rank 3
+        assertEquals(7, heap.links());
+        assertEquals(1, heap.consolidations());
+        assertEquals(8, heap.rootsScanned());
+        heap.decreaseKey(nodes[7], 100); // 8 is under 7 under 5 under 1, 7 gets marked
+        heap.decreaseKey(nodes[5], 100); // 6 is under 5, 5 gets marked
+        heap.decreaseKey(nodes[6], 100); // cuts 7 and cascades to 5
+        assertEquals(4, heap.cuts());
+        assertEquals(2, heap.maxCascadingCutDepth());
+
+        assertEquals(7, FibonacciHeap.totalLinks() - links);
+        assertEquals(4, FibonacciHeap.totalCuts() - cuts);
+        assertEquals(1, FibonacciHeap.totalConsolidations() - consolidations);
+        assertTrue(FibonacciHeap.maxTotalCascadingCutDepth() >= 2);
+
+        heap.meld(other);
+        assertEquals(8, heap.links());
+        assertEquals(2, heap.consolidations());
+        assertValidHeap(heap);
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1004)
+    public void testDecreaseKeys() {
+        FibonacciHeap.HeapNode[] nodes = new FibonacciHeap.HeapNode[8];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = heap.insert(i + 1);
+        }
+        heap.insert(0);
+        heap.deleteMin(); // 1 with children 5, 3, 2; 5 with 7, 6; 7 with 8; 3 with 4
+        int cuts = FibonacciHeap.totalCuts();
+        heap.decreaseKeys(new FibonacciHeap.HeapNode[] { nodes[7], nodes[6], nodes[3] }, new int[] { 10, 12, 0 });
+        assertValidHeap(heap);
+        assertEquals(1, heap.cuts()); // 8 stays under 7, which is cut and marks 5
+        assertEquals(1, FibonacciHeap.totalCuts() - cuts);
+        assertSame(nodes[6], heap.findMin());
+        assertEquals(-5, heap.findMin().getKey());
+
+        heap.decreaseKeys(new FibonacciHeap.HeapNode[] { nodes[5] }, new int[] { 6 });
+        assertValidHeap(heap);
+        assertEquals(3, heap.cuts());
+        assertEquals(2, heap.maxCascadingCutDepth()); // cutting 6 cascades to the marked 5
+
+        int[] sorted = new int[] { -5, -2, 0, 1, 2, 3, 4, 5 };
+        for (int key : sorted) {
+            assertEquals(key, heap.findMin().getKey());
+            heap.deleteMin();
+            assertValidHeap(heap);
+        }
+        assertThrows(IllegalArgumentException.class, () -> heap.decreaseKeys(new FibonacciHeap.HeapNode[1], new int[0]));
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1005)
+    public void testValuedHeap() {
+        ValuedFibonacciHeap<String> valued = new ValuedFibonacciHeap<>(4);
+        ValuedFibonacciHeap.Entry<String> b = valued.insert(2, "b");
+        valued.insert(3, "c");
+        valued.insert(1, "a");
+        assertEquals("a", valued.findMinValue());
+        valued.decreaseKey(b, 2);
+        assertEquals("b", valued.deleteMinValue());
+        assertNull(b.getValue()); // cleared for the node pool
+        assertEquals("a", valued.deleteMinValue());
+        assertValidHeap(valued);
+        assertThrows(IllegalArgumentException.class, () -> valued.meld(new FibonacciHeap()));
+
+        LongValuedFibonacciHeap longs = new LongValuedFibonacciHeap();
+        for (int i = 0; i < 10; i++) {
+            longs.insert(10 - i, 1L << (40 + i));
+        }
+        for (int i = 9; i >= 0; i--) {
+            assertEquals(1L << (40 + i), longs.deleteMinValue());
+            assertValidHeap(longs);
+        }
+        assertThrows(NoSuchElementException.class, () -> longs.deleteMinValue());
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1006)
+    public void testIdIndex() {
+        for (long id = 0; id < 100; id++) {
+            heap.insertWithId(id << 33, (int) (1000 - id));
+        }
+        heap.insert(5000);
+        assertTrue(heap.containsId(7L << 33));
+        assertFalse(heap.containsId(7));
+        assertThrows(IllegalArgumentException.class, () -> heap.insertWithId(7L << 33, 1));
+
+        assertTrue(heap.decreaseKeyById(7L << 33, 500)); // 993 -> 493
+        assertSame(heap.getById(7L << 33), heap.findMin());
+        assertSame(heap.getById(8L << 33), heap.upsert(8L << 33, 2000)); // bigger key, unchanged
+        assertEquals(992, heap.getById(8L << 33).getKey());
+        heap.upsert(8L << 33, 10);
+        assertEquals(10, heap.findMin().getKey());
+        heap.upsert(1000, 20);
+        assertTrue(heap.deleteById(99L << 33));
+        assertFalse(heap.deleteById(99L << 33));
+        assertValidHeap(heap);
+
+        heap.deleteMin(); // removes id 8
+        assertFalse(heap.containsId(8L << 33));
+        assertFalse(heap.decreaseKeyById(8L << 33, 1));
+        assertEquals(20, heap.findMin().getKey());
+
+        FibonacciHeap other = new FibonacciHeap();
+        other.insertWithId(1000, 1);
+        assertThrows(IllegalArgumentException.class, () -> heap.meld(other));
+        other.deleteById(1000);
+        other.insertWithId(1001, 1);
+        heap.meld(other);
+        assertTrue(heap.deleteById(1001));
+        int ids = 0;
+        for (long id = 0; id < 100; id++) {
+            ids += heap.containsId(id << 33) ? 1 : 0;
+        }
+        assertEquals(98, ids);
+        assertEquals(100, heap.size());
+        assertValidHeap(heap);
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1007)
+    public void testPeekK() {
+        FibonacciHeap other = new FibonacciHeap();
+        for (int i = 0; i < 20; i++) {
+            heap.insert(2 * i);
+            other.insert(2 * i + 1);
+        }
+        heap.deleteMin();
+        heap.meld(other); // a consolidated heap and 20 singleton roots
+        int potential = heap.potential();
+        int[] dst = new int[50];
+        assertEquals(5, heap.peekK(5, dst));
+        assertTrue(Arrays.equals(new int[] { 1, 2, 3, 4, 5 }, Arrays.copyOf(dst, 5)));
+        assertEquals(39, heap.peekK(100, dst));
+        assertEquals(IntStream.rangeClosed(1, 39).boxed().collect(java.util.stream.Collectors.toList()),
+                Arrays.stream(dst, 0, 39).boxed().collect(java.util.stream.Collectors.toList()));
+        assertEquals(39, FibonacciHeap.kMin(heap, 100).length);
+        assertEquals(39, heap.size());
+        assertEquals(potential, heap.potential());
+        assertValidHeap(heap);
+        assertThrows(IllegalArgumentException.class, () -> heap.peekK(10, new int[9]));
+        assertThrows(IllegalArgumentException.class, () -> heap.peekK(-1, dst));
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1008)
+    public void testDrain() {
+        int[] keys = new Random(7).ints(-5000, 5000).distinct().limit(1000).toArray();
+        int[] sorted = keys.clone();
+        Arrays.sort(sorted);
+
+        heap.insertAll(keys);
+        int[] dst = new int[10];
+        assertEquals(10, heap.drainTo(dst, 10));
+        assertTrue(Arrays.equals(Arrays.copyOf(sorted, 10), dst));
+        PrimitiveIterator.OfInt it = heap.drainIterator();
+        assertEquals(sorted[10], it.nextInt());
+        assertEquals(sorted.length - 11, heap.size());
+        assertValidHeap(heap);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(sorted, 11, sorted.length), heap.drain().toArray()));
+        assertTrue(heap.isEmpty());
+        assertFalse(it.hasNext());
+        assertThrows(NoSuchElementException.class, () -> it.nextInt());
+        assertEquals(0, heap.drainTo(dst, 10));
+
+        FibonacciHeap.sort(keys);
+        assertTrue(Arrays.equals(sorted, keys));
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1009)
+    public void testLazyDeletion() {
+        heap.setLazyDeletion(0.5);
+        FibonacciHeap.HeapNode[] nodes = new FibonacciHeap.HeapNode[16];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = heap.insert(i);
+        }
+        heap.deleteMin(); // roots 1, 2 (3), 4 (5, 6 (7)) and 8 (9, 10 (11), 12 (13, 14 (15)))
+        int potential = heap.potential();
+        heap.delete(nodes[3]); // only marked as deleted
+        heap.delete(nodes[9]);
+        heap.delete(nodes[14]);
+        assertEquals(3, heap.tombstones());
+        assertEquals(12, heap.size());
+        assertEquals(potential, heap.potential());
+        assertThrows(IllegalStateException.class, () -> heap.decreaseKey(nodes[9], 1));
+        assertTrue(Arrays.equals(new int[] { 1, 2, 4, 5, 6 }, FibonacciHeap.kMin(heap, 5)));
+
+        heap.delete(nodes[1]); // the minimum is deleted eagerly
+        assertEquals(2, heap.findMin().getKey());
+        assertEquals(3, heap.tombstones());
+        heap.delete(nodes[10]);
+        heap.delete(nodes[11]); // 5 tombstones > 0.5 * 9 live nodes, purged
+        assertEquals(0, heap.tombstones());
+        assertEquals(9, heap.size());
+        assertValidHeap(heap);
+        heap.delete(nodes[12]);
+        heap.delete(nodes[13]);
+        assertEquals(2, heap.tombstones());
+        heap.setLazyDeletion(0);
+        assertEquals(0, heap.tombstones());
+        assertValidHeap(heap);
+        for (int key : new int[] { 2, 4, 5, 6, 7, 8, 15 }) {
+            assertEquals(key, heap.findMin().getKey());
+            heap.deleteMin();
+        }
+        assertTrue(heap.isEmpty());
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1010)
+    public void testSnapshot() throws IOException {
+        heap.setLazyDeletion(0.5);
+        Random random = new Random(7);
+        int[] keys = random.ints(-100000, 100000).distinct().limit(2000).toArray();
+        FibonacciHeap.HeapNode[] nodes = new FibonacciHeap.HeapNode[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            nodes[i] = i % 3 == 0 ? heap.insertWithId(i, keys[i]) : heap.insert(keys[i]);
+        }
+        heap.deleteMin();
+        for (int i = 0; i < 300; i++) {
+            FibonacciHeap.HeapNode node = nodes[random.nextInt(nodes.length)];
+            if (node != null && node != heap.findMin() && node.getParent() != null && !node.tombstone) {
+                if (i % 2 == 0) {
+                    heap.delete(node);
+                } else {
+                    heap.decreaseKey(node, node.getKey() + 1000000 - i); // below all the keys, cut
+                }
+            }
+        }
+        assertTrue(heap.tombstones() > 0);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        heap.writeTo(Channels.newChannel(out));
+        byte[] bytes = out.toByteArray();
+        FibonacciHeap copy = FibonacciHeap.readFrom(Channels.newChannel(new ByteArrayInputStream(bytes)));
+
+        assertEquals(heap.size(), copy.size());
+        assertEquals(heap.tombstones(), copy.tombstones());
+        assertEquals(heap.potential(), copy.potential());
+        assertEquals(heap.links(), copy.links());
+        assertEquals(heap.cuts(), copy.cuts());
+        assertEquals(heap.consolidations(), copy.consolidations());
+        assertTrue(Arrays.equals(heap.countersRep(), copy.countersRep()));
+        assertSameShape(heap.findMin(), copy.findMin());
+        FibonacciHeap.HeapNode a = heap.getFirst(), b = copy.getFirst();
+        do {
+            assertSameShape(a, b);
+            a = a.getNext();
+            b = b.getNext();
+        } while (a != heap.getFirst());
+        assertEquals(heap.getById(3).getKey(), copy.getById(3).getKey());
+        assertTrue(copy.getById(3) instanceof FibonacciHeap.IndexedNode);
+
+        copy.setLazyDeletion(0);
+        heap.setLazyDeletion(0);
+        assertValidHeap(copy);
+        assertTrue(Arrays.equals(heap.drain().toArray(), copy.drain().toArray()));
+
+        FibonacciHeap empty = FibonacciHeap.readFrom(Channels.newChannel(new ByteArrayInputStream(snapshot(heap))));
+        assertTrue(empty.isEmpty());
+        assertThrows(EOFException.class, () -> FibonacciHeap
+                .readFrom(Channels.newChannel(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1)))));
+        bytes[0]++;
+        assertThrows(IOException.class,
+                () -> FibonacciHeap.readFrom(Channels.newChannel(new ByteArrayInputStream(bytes))));
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1011)
+    public void testJournal() throws IOException {
+        Path dir = Files.createTempDirectory("journal");
+        JournaledFibonacciHeap journaled = JournaledFibonacciHeap.open(dir, 4);
+        Random random = new Random(11);
+        for (int i = 0; i < 500; i++) {
+            int key = random.nextInt(1000000);
+            journaled.insert(i, key);
+            heap.insertWithId(i, key);
+        }
+        journaled.deleteMin();
+        heap.deleteMin();
+        journaled.decreaseKey(7, 5);
+        heap.decreaseKeyById(7, 5);
+        assertTrue(journaled.delete(8));
+        heap.deleteById(8);
+        assertFalse(journaled.delete(8));
+        assertThrows(IllegalArgumentException.class, () -> journaled.insert(9, 1));
+        for (FibonacciHeap target : new FibonacciHeap[] { null, heap }) {
+            FibonacciHeap other = new FibonacciHeap();
+            other.insertWithId(1000, -1);
+            other.insert(-2);
+            if (target == null) {
+                journaled.meld(other);
+            } else {
+                target.meld(other);
+            }
+        }
+        journaled.deleteMin();
+        heap.deleteMin();
+        journaled.sync();
+        journaled.insert(1001, 3); // after the last sync, but in the page cache
+        heap.insertWithId(1001, 3);
+
+        // reopen without closing, as after a crash of the process
+        JournaledFibonacciHeap recovered = JournaledFibonacciHeap.open(dir, 4);
+        assertEquals(heap.size(), recovered.size());
+        assertSameShape(heap.findMin(), recovered.findMin());
+        assertEquals(-1, recovered.findMin().getKey());
+        assertNull(recovered.getById(8));
+        assertEquals(heap.getById(7).getKey(), recovered.getById(7).getKey());
+        recovered.close();
+
+        // a torn record at the end is dropped
+        Files.write(dir.resolve("heap.log"), new byte[] { 20, 0, 0, 0, 1, 2, 3 }, StandardOpenOption.APPEND);
+        recovered = JournaledFibonacciHeap.open(dir, 0);
+        assertEquals(heap.size(), recovered.size());
+        recovered.checkpoint();
+        assertEquals(1, recovered.epoch());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(heap.findMin().getKey(), recovered.deleteMin().getKey());
+            heap.deleteMin();
+        }
+        recovered.close();
+
+        JournaledFibonacciHeap reopened = JournaledFibonacciHeap.open(dir, 1);
+        assertEquals(heap.size(), reopened.size());
+        assertEquals(1, reopened.epoch());
+        while (!heap.isEmpty()) {
+            assertEquals(heap.findMin().getKey(), reopened.deleteMin().getKey());
+            heap.deleteMin();
+        }
+        assertTrue(reopened.isEmpty());
+        assertNull(reopened.deleteMin());
+        reopened.close();
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1012)
+    public void testPersistentHeap() {
+        Random random = new Random(5);
+        PersistentHeap persistent = PersistentHeap.empty();
+        List<PersistentHeap> versions = new ArrayList<>();
+        List<int[]> contents = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            if (random.nextInt(3) > 0 || persistent.isEmpty()) {
+                int key = random.nextInt(1000);
+                persistent = persistent.insert(key);
+                heap.insert(key);
+            } else {
+                assertEquals(heap.findMin().getKey(), persistent.findMin());
+                persistent = persistent.deleteMin();
+                heap.deleteMin();
+            }
+            if (i % 100 == 0) {
+                PersistentHeap other = PersistentHeap.empty().insert(-i).insert(i);
+                persistent = persistent.meld(other);
+                heap.insert(-i);
+                heap.insert(i);
+                versions.add(persistent);
+                contents.add(FibonacciHeap.kMin(heap, heap.size()));
+            }
+            assertEquals(heap.size(), persistent.size());
+        }
+        for (int i = 0; i < versions.size(); i++) { // the old versions are unchanged
+            assertTrue(Arrays.equals(contents.get(i), versions.get(i).toSortedArray()));
+        }
+        assertThrows(NoSuchElementException.class, () -> PersistentHeap.empty().findMin());
+        assertThrows(NoSuchElementException.class, () -> PersistentHeap.empty().deleteMin());
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1013)
+    public void testParallelConsolidate() {
+        assertThrows(IllegalArgumentException.class, () -> heap.setParallelConsolidateThreshold(0));
+        heap.setParallelConsolidateThreshold(1000);
+        int[] keys = new Random(13).ints(-1000000, 1000000).distinct().limit(100000).toArray();
+        for (int key : keys) {
+            heap.insert(key);
+        }
+        heap.deleteMin(); // 99999 roots, linked in chunks
+        assertValidHeap(heap);
+        assertTrue(heap.rootsScanned() <= 7 * 17); // the trees of at most 7 chunks, the chunks' roots are not counted
+        assertEquals(heap.size() - heap.potential(), heap.links());
+        Arrays.sort(keys);
+        for (int i = 1; i < 1000; i++) {
+            heap.insert(keys[i]); // a second copy of each, linked in chunks again
+        }
+        for (int i = 1; i < 1000; i++) {
+            assertEquals(keys[i], heap.findMin().getKey());
+            heap.deleteMin();
+            assertEquals(keys[i], heap.findMin().getKey());
+            heap.deleteMin();
+        }
+        int[] rest = heap.drain().toArray();
+        assertTrue(Arrays.equals(Arrays.copyOfRange(keys, 1000, keys.length), rest));
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1014)
+    public void testRootRankHistogram() {
+        assertEquals(-1, heap.maxRootRank());
+        Random random = new Random(17);
+        List<FibonacciHeap.HeapNode> nodes = new ArrayList<>();
+        int next = 0;
+        for (int i = 0; i < 5000; i++) {
+            int op = random.nextInt(10);
+            if (op < 4 || nodes.isEmpty()) {
+                nodes.add(heap.insert(next += 1 + random.nextInt(10)));
+            } else if (op < 6) {
+                nodes.remove(heap.findMin());
+                heap.deleteMin();
+            } else if (op < 8) {
+                FibonacciHeap.HeapNode node = nodes.get(random.nextInt(nodes.size()));
+                heap.decreaseKey(node, node.getKey() - (-1000000 - i)); // below all the keys, still unique
+            } else if (op < 9) {
+                heap.delete(nodes.remove(random.nextInt(nodes.size())));
+            } else {
+                FibonacciHeap other = new FibonacciHeap();
+                for (int j = 0; j < 3; j++) {
+                    nodes.add(other.insert(next += 1 + random.nextInt(10)));
+                }
+                other.deleteMin();
+                nodes.remove(nodes.size() - 3);
+                heap.meld(other);
+            }
+            if (i == 2500) {
+                heap.setLazyDeletion(0.25);
+            }
+            int[] expected = new int[0];
+            if (!heap.isEmpty()) {
+                FibonacciHeap.HeapNode root = heap.getFirst();
+                do {
+                    if (root.getRank() >= expected.length) {
+                        expected = Arrays.copyOf(expected, root.getRank() + 1);
+                    }
+                    expected[root.getRank()]++;
+                    root = root.getNext();
+                } while (root != heap.getFirst());
+            }
+            assertTrue(Arrays.equals(expected, heap.countersRep()));
+            assertEquals(expected.length - 1, heap.maxRootRank());
+        }
+        heap.setLazyDeletion(0);
+        assertValidHeap(heap);
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1015)
+    public void testBoundedTopK() {
+        assertEquals(Integer.MAX_VALUE, heap.capacity());
+        assertThrows(IllegalArgumentException.class, () -> heap.setCapacity(0));
+        FibonacciHeap bounded = new FibonacciHeap(16);
+        bounded.setCapacity(100);
+        int[] keys = new Random(19).ints(-1000000, 1000000).distinct().limit(10000).toArray();
+        int rejected = 0;
+        for (int key : keys) {
+            if (bounded.offer(key) == null) {
+                rejected++;
+            }
+            assertTrue(bounded.size() <= 100);
+        }
+        assertTrue(rejected > 9000);
+        assertThrows(IllegalStateException.class, () -> bounded.insert(2000000));
+        heap.insert(1);
+        assertThrows(IllegalStateException.class, () -> bounded.meld(heap));
+        assertEquals(100, bounded.size());
+        Arrays.sort(keys);
+        assertEquals(keys[keys.length - 100], bounded.findMin().getKey());
+        assertNull(bounded.offer(keys[keys.length - 101]));
+
+        bounded.setCapacity(10); // evicts the 90 smallest
+        assertTrue(Arrays.equals(Arrays.copyOfRange(keys, keys.length - 10, keys.length), bounded.drain().toArray()));
+        assertNotNull(bounded.offer(5));
+        assertTrue(bounded.poolHits() > 0);
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1016)
+    public void testMinMaxHeap() {
+        MinMaxFibonacciHeap minMax = new MinMaxFibonacciHeap();
+        assertNull(minMax.findMax());
+        assertThrows(NoSuchElementException.class, minMax::findMaxKey);
+        assertThrows(UnsupportedOperationException.class, () -> minMax.insertWithId(1, 1));
+        assertThrows(IllegalArgumentException.class, () -> minMax.meld(heap));
+        Random rand = new Random(22);
+        TreeSet<Integer> keys = new TreeSet<>();
+        ArrayList<MinMaxFibonacciHeap.MinMaxNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            int op = keys.isEmpty() ? 0 : rand.nextInt(7);
+            if (op <= 1) {
+                int key = rand.nextInt(1000000);
+                if (keys.add(key)) {
+                    nodes.add(minMax.insert(key));
+                }
+            } else if (op == 2) {
+                nodes.remove(minMax.findMin());
+                minMax.deleteMin();
+                keys.pollFirst();
+            } else if (op == 3) {
+                nodes.remove(minMax.findMax());
+                minMax.deleteMax();
+                keys.pollLast();
+            } else {
+                MinMaxFibonacciHeap.MinMaxNode node = nodes.get(rand.nextInt(nodes.size()));
+                int key = rand.nextInt(1000000);
+                if (op == 6) {
+                    keys.remove(node.getKey());
+                    nodes.remove(node);
+                    long heapCuts = minMax.cuts();
+                    int totalCuts = FibonacciHeap.totalCuts();
+                    minMax.delete(node);
+                    assertEquals(minMax.cuts() - heapCuts, FibonacciHeap.totalCuts() - totalCuts); // counted like decreaseKey
+                } else if (!keys.contains(key)) {
+                    keys.remove(node.getKey());
+                    keys.add(key);
+                    if (key < node.getKey()) {
+                        minMax.decreaseKey(node, node.getKey() - key);
+                    } else {
+                        minMax.increaseKey(node, key - node.getKey());
+                    }
+                    assertEquals(key, node.getKey());
+                }
+            }
+            assertEquals(keys.size(), minMax.size());
+            if (!keys.isEmpty()) {
+                assertEquals((int) keys.first(), minMax.findMin().getKey());
+                assertEquals((int) keys.last(), minMax.findMaxKey());
+            }
+        }
+
+        MinMaxFibonacciHeap other = new MinMaxFibonacciHeap();
+        other.insertAll(new int[] { 2000001, -5 });
+        other.insertAllSorted(new int[] { -7, 2000000 });
+        minMax.meld(other);
+        assertEquals(-7, minMax.findMin().getKey());
+        assertEquals(2000001, minMax.findMaxKey());
+        minMax.deleteMax();
+        assertEquals(2000000, minMax.findMaxKey());
+        int previous = Integer.MAX_VALUE;
+        while (!minMax.isEmpty()) {
+            assertTrue(minMax.findMaxKey() < previous);
+            previous = minMax.findMaxKey();
+            minMax.deleteMax();
+        }
+        assertNull(minMax.findMin());
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1017)
+    public void testIncreaseKey() {
+        Random rand = new Random(23);
+        TreeSet<Integer> keys = new TreeSet<>();
+        ArrayList<FibonacciHeap.HeapNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int key = rand.nextInt(1000000);
+            if (keys.add(key)) {
+                nodes.add(heap.insert(key));
+            }
+        }
+        heap.deleteMin(); // builds trees
+        nodes.removeIf(node -> node.getKey() == keys.first());
+        keys.pollFirst();
+        for (int i = 0; i < 20000; i++) {
+            FibonacciHeap.HeapNode node = i % 10 == 0 ? heap.findMin() : nodes.get(rand.nextInt(nodes.size()));
+            int key = rand.nextInt(1000000);
+            if (keys.contains(key)) {
+                continue;
+            }
+            keys.remove(node.getKey());
+            keys.add(key);
+            if (key > node.getKey()) {
+                heap.increaseKey(node, key - node.getKey());
+            } else {
+                heap.decreaseKey(node, node.getKey() - key);
+            }
+            assertEquals(key, node.getKey());
+            assertEquals((int) keys.first(), heap.findMin().getKey());
+            if (i % 100 == 0) {
+                heap.deleteMin();
+                nodes.removeIf(n -> n.getKey() == keys.first());
+                keys.pollFirst();
+            }
+        }
+        assertValidHeap(heap);
+        assertEquals(keys.size(), heap.size());
+
+        // a lazily deleted root may hold the next minimum in its tree
+        heap.setLazyDeletion(1);
+        FibonacciHeap.HeapNode hidden = heap.getFirst();
+        while (hidden == heap.findMin() || hidden.getChild() == null) {
+            hidden = hidden.getNext();
+        }
+        keys.remove(hidden.getKey());
+        heap.delete(hidden);
+        int min = heap.findMin().getKey();
+        heap.increaseKey(heap.findMin(), 2000000);
+        keys.remove(min);
+        keys.add(min + 2000000);
+        assertEquals((int) keys.first(), heap.findMin().getKey());
+        heap.setLazyDeletion(0);
+        assertTrue(Arrays.equals(keys.stream().mapToInt(Integer::intValue).toArray(), heap.drain().toArray()));
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1018)
+    public void testTimerScheduler() throws InterruptedException {
+        TimerScheduler timer = new TimerScheduler();
+        int n = 300;
+        CountDownLatch done = new CountDownLatch(n - n / 3);
+        List<Integer> fired = Collections.synchronizedList(new ArrayList<>());
+        long[] deadlines = new long[n];
+        TimerScheduler.Timeout[] timeouts = new TimerScheduler.Timeout[n];
+        Random rand = new Random(24);
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            int task = i;
+            long delay = TimeUnit.MILLISECONDS.toNanos(100 + rand.nextInt(200));
+            deadlines[i] = start + delay;
+            timeouts[i] = timer.schedule(() -> {
+                assertTrue(System.nanoTime() >= deadlines[task]);
+                fired.add(task);
+                done.countDown();
+            }, delay, TimeUnit.NANOSECONDS);
+        }
+        for (int i = 0; i < n; i++) {
+            if (i % 3 == 0) {
+                assertTrue(timer.cancel(timeouts[i]));
+                assertFalse(timer.cancel(timeouts[i]));
+                assertTrue(timeouts[i].isCancelled());
+            } else if (i % 3 == 1) { // earlier or later
+                long delay = TimeUnit.MILLISECONDS.toNanos(50 + rand.nextInt(300));
+                long now = System.nanoTime();
+                assertTrue(timer.reschedule(timeouts[i], delay, TimeUnit.NANOSECONDS));
+                deadlines[i] = now + delay;
+            }
+        }
+        assertEquals(n - n / 3, timer.size());
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(n - n / 3, fired.size());
+        for (int i = 1; i < fired.size(); i++) {// deadline order
+            assertTrue(timeouts[fired.get(i - 1)].getKey() <= timeouts[fired.get(i)].getKey());
+        }
+        for (int i : fired) {
+            assertTrue(timeouts[i].isExpired());
+            assertFalse(timer.cancel(timeouts[i]));
+            assertFalse(timer.reschedule(timeouts[i], 1, TimeUnit.SECONDS));
+        }
+        TimerScheduler.Timeout[] far = new TimerScheduler.Timeout[100];
+        for (int i = 0; i < far.length; i++) {
+            far[i] = timer.schedule(() -> fail("cancelled"), 3600 + i, TimeUnit.SECONDS);
+        }
+        for (int i = 1; i < far.length; i++) {// lazily, with a rebuild of the heap past half
+            assertTrue(timer.cancel(far[i]));
+        }
+        assertEquals(1, timer.size());
+        assertTrue(timer.reschedule(far[0], 1, TimeUnit.DAYS));
+        assertTrue(far[0].isPending());
+
+        TimerScheduler.Timeout late = timer.schedule(() -> fail("ran after close"), 1, TimeUnit.HOURS);
+        TimerScheduler.Timeout never = timer.schedule(() -> fail("ran after close"), Long.MAX_VALUE, TimeUnit.DAYS);
+        assertTrue(never.isPending());
+        timer.close();
+        assertTrue(late.isCancelled());
+        assertEquals(0, timer.size());
+        assertThrows(IllegalStateException.class, () -> timer.schedule(() -> {}, 1, TimeUnit.SECONDS));
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1019)
+    public void testBlockingQueue() throws InterruptedException {
+        FibonacciBlockingQueue<String> queue = new FibonacciBlockingQueue<>(String::length);
+        assertNull(queue.poll());
+        assertNull(queue.poll(1, TimeUnit.MILLISECONDS));
+        assertThrows(NullPointerException.class, () -> queue.offer(null));
+        assertThrows(IllegalArgumentException.class, () -> queue.drainTo(queue));
+        for (String s : new String[] { "ccc", "a", "eeeee", "bb", "dddd" }) {
+            queue.put(s);
+        }
+        assertEquals("a", queue.peek());
+        assertEquals(5, queue.size());
+        assertTrue(queue.contains("dddd"));
+        assertTrue(queue.remove("dddd")); // through the snapshot iterator
+        assertFalse(queue.remove("dddd"));
+        List<String> drained = new ArrayList<>();
+        assertEquals(2, queue.drainTo(drained, 2));
+        assertEquals(Arrays.asList("a", "bb"), drained);
+        assertEquals("ccc", queue.take());
+        queue.clear();
+        assertTrue(queue.isEmpty());
+
+        // consumers blocked in take receive every element exactly once
+        FibonacciBlockingQueue<Integer> ints = new FibonacciBlockingQueue<>(Integer::intValue);
+        int consumers = 8;
+        int perConsumer = 2000;
+        int[] seen = new int[consumers * perConsumer];
+        Thread[] threads = new Thread[consumers];
+        for (int t = 0; t < consumers; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < perConsumer; i++) {
+                        int value = ints.take();
+                        synchronized (seen) {
+                            seen[value]++;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads[t].start();
+        }
+        for (int i = seen.length - 1; i >= 0; i--) {
+            ints.offer(i);
+        }
+        for (Thread thread : threads) {
+            thread.join(10000);
+            assertFalse(thread.isAlive());
+        }
+        for (int count : seen) {
+            assertEquals(1, count);
+        }
+        assertTrue(ints.isEmpty());
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1020)
+    public void testValuedHeapsWithIds() {
+        ValuedFibonacciHeap<String> valued = new ValuedFibonacciHeap<>(8);
+        valued.insert(10, "ten");
+        @SuppressWarnings("unchecked")
+        ValuedFibonacciHeap.Entry<String> seven = (ValuedFibonacciHeap.Entry<String>) valued.insertWithId(7L, 20);
+        seven.setValue("seven");
+        assertTrue(seven instanceof ValuedFibonacciHeap.IndexedEntry);
+        assertTrue(valued.upsert(7L, 5) == seven); // relaxes the existing entry
+        assertTrue(valued.upsert(8L, 30) instanceof ValuedFibonacciHeap.Entry);
+        assertTrue(valued.getById(7L) == seven);
+        assertEquals(3, valued.size());
+        assertEquals("seven", valued.findMinValue());
+        assertEquals("seven", valued.deleteMinValue());
+        assertFalse(valued.containsId(7L));
+        assertTrue(valued.deleteById(8L));
+        valued.insertWithId(7L, 1); // the id is free again
+        assertFalse(valued.insert(2) instanceof ValuedFibonacciHeap.IndexedEntry); // indexed entries are not pooled
+        assertNull(valued.deleteMinValue());
+        assertNull(valued.deleteMinValue());
+        assertEquals("ten", valued.deleteMinValue());
+        assertTrue(valued.isEmpty());
+
+        LongValuedFibonacciHeap longValued = new LongValuedFibonacciHeap();
+        longValued.insert(10, 100L);
+        ((LongValuedFibonacciHeap.Entry) longValued.upsert(7L, 20)).setValue(700L);
+        longValued.upsert(7L, 5);
+        assertEquals(700L, ((LongValuedFibonacciHeap.Entry) longValued.getById(7L)).getValue());
+        assertEquals(2, longValued.size());
+        assertEquals(700L, longValued.findMinValue());
+        assertEquals(700L, longValued.deleteMinValue());
+        assertFalse(longValued.containsId(7L));
+        assertEquals(100L, longValued.deleteMinValue());
+        assertTrue(longValued.isEmpty());
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1021)
+    public void testDeleteExtremeKeys() {
+        FibonacciBlockingQueue<Integer> queue = new FibonacciBlockingQueue<>(Integer::intValue);
+        queue.offer(Integer.MIN_VALUE);
+        queue.offer(2_000_000_000);
+        queue.offer(5);
+        assertTrue(queue.remove(2_000_000_000));
+        assertEquals(2, queue.size());
+        assertEquals(Integer.MIN_VALUE, (int) queue.poll());
+        assertEquals(5, (int) queue.poll());
+
+        // the deleted nodes are children, so delete cuts them before deleting them
+        FibonacciHeap heap = new FibonacciHeap();
+        heap.insert(Integer.MIN_VALUE);
+        heap.insert(Integer.MIN_VALUE + 1);
+        FibonacciHeap.HeapNode high = heap.insert(Integer.MAX_VALUE);
+        FibonacciHeap.HeapNode middle = heap.insert(0);
+        heap.insert(Integer.MAX_VALUE - 1);
+        heap.deleteMin();
+        assertNotNull(high.getParent());
+        heap.delete(high);
+        heap.delete(middle);
+        assertEquals(2, heap.size());
+        assertEquals(Integer.MIN_VALUE + 1, heap.findMin().getKey());
+        heap.deleteMin();
+        assertEquals(Integer.MAX_VALUE - 1, heap.findMin().getKey());
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1022)
+    public void testPrimitiveHeaps() {
+        int links = FibonacciHeap.totalLinks();
+        int cuts = FibonacciHeap.totalCuts();
+        long longLinks = LongFibonacciHeap.totalLinks();
+        long longCuts = LongFibonacciHeap.totalCuts();
+        long doubleLinks = DoubleFibonacciHeap.totalLinks();
+
+        LongFibonacciHeap longHeap = new LongFibonacciHeap();
+        long[] longKeys = new Random(17).longs(1000, -1L << 50, 1L << 50).distinct().toArray();
+        LongFibonacciHeap.HeapNode[] longNodes = new LongFibonacciHeap.HeapNode[longKeys.length];
+        for (int i = 0; i < longKeys.length; i++) {
+            longNodes[i] = longHeap.insert(longKeys[i]);
+        }
+        longHeap.insert(Long.MIN_VALUE);
+        LongFibonacciHeap.HeapNode lowest = longHeap.insert(Long.MIN_VALUE + 1);
+        LongFibonacciHeap.HeapNode highest = longHeap.insert(Long.MAX_VALUE);
+        longHeap.deleteMin();
+        assertEquals(Long.MIN_VALUE + 1, longHeap.findMin().getKey());
+        longHeap.delete(lowest); // deleting the extremes must not overflow
+        longHeap.delete(highest);
+        for (int i = 0; i < longKeys.length; i += 10) {
+            longKeys[i] -= 1L << 52;
+            longHeap.decreaseKey(longNodes[i], 1L << 52);
+        }
+        long[] sortedLongs = longKeys.clone();
+        Arrays.sort(sortedLongs);
+        assertTrue(Arrays.equals(Arrays.copyOf(sortedLongs, 20), LongFibonacciHeap.kMin(longHeap, 20)));
+        assertEquals(longKeys.length, longHeap.size());
+        for (long key : sortedLongs) {
+            assertEquals(key, longHeap.findMin().getKey());
+            longHeap.deleteMin();
+        }
+        assertTrue(longHeap.isEmpty());
+        assertEquals(0, LongFibonacciHeap.kMin(longHeap, 5).length);
+
+        DoubleFibonacciHeap doubleHeap = new DoubleFibonacciHeap();
+        assertThrows(IllegalArgumentException.class, () -> doubleHeap.insert(Double.NaN));
+        double[] doubleKeys = new Random(19).doubles(500).toArray();
+        DoubleFibonacciHeap.HeapNode[] doubleNodes = new DoubleFibonacciHeap.HeapNode[doubleKeys.length];
+        for (int i = 0; i < doubleKeys.length; i++) {
+            doubleNodes[i] = doubleHeap.insert(doubleKeys[i]);
+        }
+        doubleHeap.insert(Double.NEGATIVE_INFINITY);
+        doubleHeap.deleteMin();
+        assertThrows(IllegalArgumentException.class, () -> doubleHeap.decreaseKey(doubleNodes[1], Double.NaN));
+        doubleKeys[3] -= 2;
+        doubleHeap.decreaseKey(doubleNodes[3], 2);
+        DoubleFibonacciHeap other = new DoubleFibonacciHeap();
+        other.insert(Double.POSITIVE_INFINITY);
+        doubleHeap.meld(other);
+        double[] sortedDoubles = Arrays.copyOf(doubleKeys, doubleKeys.length + 1);
+        sortedDoubles[doubleKeys.length] = Double.POSITIVE_INFINITY;
+        Arrays.sort(sortedDoubles);
+        assertTrue(Arrays.equals(Arrays.copyOf(sortedDoubles, 10), DoubleFibonacciHeap.kMin(doubleHeap, 10)));
+        assertEquals(sortedDoubles.length, doubleHeap.size());
+        for (double key : sortedDoubles) {
+            assertEquals(key, doubleHeap.findMin().getKey());
+            doubleHeap.deleteMin();
+        }
+        assertTrue(doubleHeap.isEmpty());
+
+        // the primitive heaps count in their own totals only
+        assertEquals(links, FibonacciHeap.totalLinks());
+        assertEquals(cuts, FibonacciHeap.totalCuts());
+        assertTrue(LongFibonacciHeap.totalLinks() - longLinks >= longHeap.links());
+        assertTrue(LongFibonacciHeap.totalCuts() - longCuts >= longHeap.cuts());
+        assertTrue(longHeap.links() > 0 && longHeap.cuts() > 0);
+        assertTrue(DoubleFibonacciHeap.totalLinks() - doubleLinks >= doubleHeap.links());
+        assertTrue(doubleHeap.links() > 0);
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1023)
+    public void testConcurrentHeap() throws InterruptedException {
+        ConcurrentFibonacciHeap concurrent = new ConcurrentFibonacciHeap(4);
+        int producers = 4;
+        int perProducer = 20000;
+        int total = producers * perProducer;
+        int[] polled = new int[total];
+        CountDownLatch produced = new CountDownLatch(producers);
+        int[] tail = new int[1]; // the polls after all the producers finished start here
+        Thread consumer = new Thread(() -> {
+            int count = 0;
+            tail[0] = -1;
+            while (count < total) {
+                boolean finished = produced.getCount() == 0;
+                FibonacciHeap.HeapNode min = concurrent.pollMin();
+                if (min != null) {
+                    if (finished && tail[0] < 0) {
+                        tail[0] = count;
+                    }
+                    polled[count++] = min.getKey();
+                }
+            }
+        });
+        consumer.start();
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int first = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    concurrent.insert(first + producers * i); // increasing per producer
+                }
+                produced.countDown();
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join(10000);
+            assertFalse(thread.isAlive());
+        }
+        consumer.join(10000);
+        assertFalse(consumer.isAlive());
+        assertTrue(concurrent.isEmpty());
+        assertNull(concurrent.pollMin());
+
+        // every key once, and the keys of one producer in the order it inserted them:
+        // a smaller key of the producer was visible before a bigger one was polled
+        boolean[] seen = new boolean[total];
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        for (int key : polled) {
+            assertFalse(seen[key]);
+            seen[key] = true;
+            assertTrue(key > last[key % producers]);
+            last[key % producers] = key;
+        }
+        // without producers the consumer polls in increasing order
+        if (tail[0] >= 0) {
+            for (int i = tail[0] + 1; i < total; i++) {
+                assertTrue(polled[i - 1] < polled[i]);
+            }
+        }
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1024)
+    public void testArrayHeap() {
+        ArrayFibonacciHeap array = new ArrayFibonacciHeap(4);
+        assertEquals(ArrayFibonacciHeap.NIL, array.findMin());
+        int[] keys = new Random(23).ints(-1000000, 1000000).distinct().limit(2000).toArray();
+        int[] handles = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            handles[i] = array.insert(keys[i]);
+            assertEquals(i, handles[i]); // the arrays grow, the handles are the slots in order
+        }
+        array.deleteMin();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int key : keys) {
+            expected.add(key);
+        }
+        expected.pollFirst();
+        for (int i = 0; i < keys.length; i += 7) {
+            if (expected.contains(keys[i])) {
+                expected.remove(keys[i]);
+                expected.add(keys[i] - 5000000);
+                array.decreaseKey(handles[i], 5000000);
+                assertEquals(keys[i] - 5000000, array.getKey(handles[i]));
+            }
+        }
+        assertEquals(expected.size(), array.size());
+        assertEquals((int) expected.first(), array.getKey(array.findMin()));
+
+        // a deleted slot is handed out again by the next insert, and its old handle is dead
+        int deleted = handles[keys.length - 1];
+        expected.remove(array.getKey(deleted));
+        array.delete(deleted);
+        assertThrows(IllegalArgumentException.class, () -> array.getKey(deleted));
+        assertEquals(deleted, array.insert(3000000));
+        expected.add(3000000);
+        assertEquals(3000000, array.getKey(deleted));
+
+        // meld moves the nodes of heap2, whose handles are shifted by the returned offset
+        ArrayFibonacciHeap other = new ArrayFibonacciHeap();
+        int[] otherHandles = new int[10];
+        for (int i = 0; i < otherHandles.length; i++) {
+            otherHandles[i] = other.insert(4000000 + i);
+        }
+        other.deleteMin();
+        other.delete(otherHandles[5]); // the free slots of heap2 stay free
+        int offset = array.meld(other);
+        assertTrue(other.isEmpty());
+        assertEquals(ArrayFibonacciHeap.NIL, other.findMin());
+        for (int i = 1; i < otherHandles.length; i++) {
+            if (i == 5) {
+                continue;
+            }
+            assertEquals(4000000 + i, array.getKey(otherHandles[i] + offset));
+            expected.add(4000000 + i - 9000000);
+            array.decreaseKey(otherHandles[i] + offset, 9000000);
+        }
+        int[] freed = { otherHandles[0] + offset, otherHandles[5] + offset }; // deleteMin freed the first
+        assertThrows(IllegalArgumentException.class, () -> array.getKey(freed[0]));
+        assertThrows(IllegalArgumentException.class, () -> array.getKey(freed[1]));
+        int[] reused = { array.insert(1), array.insert(2) }; // the free slots of heap2 are reused
+        Arrays.sort(reused);
+        assertTrue(Arrays.equals(freed, reused));
+        expected.add(1);
+        expected.add(2);
+
+        ArrayFibonacciHeap empty = new ArrayFibonacciHeap();
+        assertEquals(0, empty.meld(array)); // an empty heap takes over the arrays
+        assertTrue(array.isEmpty());
+        int[] smallest = new int[10];
+        Iterator<Integer> it = expected.iterator();
+        for (int i = 0; i < smallest.length; i++) {
+            smallest[i] = it.next();
+        }
+        assertTrue(Arrays.equals(smallest, ArrayFibonacciHeap.kMin(empty, 10)));
+        assertEquals(expected.size(), empty.size());
+        for (int key : expected) {
+            assertEquals(key, empty.getKey(empty.findMin()));
+            empty.deleteMin();
+        }
+        assertTrue(empty.isEmpty());
+
+        // deleting a key far above the minimum must not overflow, as a root or as a child
+        int low = empty.insert(Integer.MIN_VALUE);
+        int high = empty.insert(2_000_000_000);
+        int five = empty.insert(5);
+        empty.delete(high);
+        assertEquals(2, empty.size());
+        assertEquals(low, empty.findMin());
+        assertEquals(Integer.MIN_VALUE, empty.getKey(low));
+        assertEquals(5, empty.getKey(five));
+        empty.insert(Integer.MIN_VALUE + 1);
+        int max = empty.insert(Integer.MAX_VALUE);
+        empty.insert(Integer.MAX_VALUE - 1);
+        empty.deleteMin(); // links the other four into one tree
+        empty.delete(max);
+        empty.delete(five);
+        assertEquals(2, empty.size());
+        assertEquals(Integer.MIN_VALUE + 1, empty.getKey(empty.findMin()));
+        empty.deleteMin();
+        assertEquals(Integer.MAX_VALUE - 1, empty.getKey(empty.findMin()));
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1025)
+    public void testJournalLimits() throws IOException {
+        // a record the log cannot take leaves the heap unchanged
+        Path dir = Files.createTempDirectory("journal");
+        boolean[] full = new boolean[1];
+        JournaledFibonacciHeap failing = new JournaledFibonacciHeap(dir, 0) {
+            @Override
+            protected void map(long start, int size) throws IOException {
+                if (full[0]) {
+                    throw new IOException("no space left");
+                }
+                super.map(start, size);
+            }
+        };
+        failing.recover();
+        full[0] = true;
+        int inserted = 0;
+        while (true) {
+            try {
+                failing.insert(inserted, inserted);
+            } catch (IOException e) {
+                break;
+            }
+            inserted++;
+            assertTrue(inserted < 1000000);
+        }
+        assertEquals(inserted, failing.size());
+        assertNull(failing.getById(inserted));
+        assertThrows(IOException.class, () -> failing.decreaseKey(5, 10)); // a record as long as an insert
+        assertEquals(5, failing.getById(5).getKey());
+        FibonacciHeap other = new FibonacciHeap();
+        other.insert(-2);
+        assertThrows(IOException.class, () -> failing.meld(other));
+        assertEquals(inserted, failing.size());
+        assertEquals(0, failing.findMin().getKey());
+        full[0] = false;
+        failing.insert(inserted, -1);
+        failing.close();
+        JournaledFibonacciHeap reopened = JournaledFibonacciHeap.open(dir, 0);
+        assertEquals(inserted + 1, reopened.size());
+        assertEquals(-1, reopened.deleteMin().getKey());
+        reopened.close();
+
+        // the log is checkpointed before it outgrows what replay can map
+        Path limited = Files.createTempDirectory("journal");
+        JournaledFibonacciHeap journaled = JournaledFibonacciHeap.open(limited, 0);
+        journaled.logLimit = 2 * JournaledFibonacciHeap.WINDOW + 100;
+        int n = 200000; // 21 bytes per insert record
+        for (int i = 0; i < n; i++) {
+            journaled.insert(i, n - i);
+            assertTrue(Files.size(limited.resolve("heap.log")) <= journaled.logLimit);
+        }
+        assertTrue(journaled.epoch() >= 1);
+        journaled.sync();
+        JournaledFibonacciHeap recovered = JournaledFibonacciHeap.open(limited, 0); // as after a crash
+        assertEquals(n, recovered.size());
+        assertEquals(1, recovered.findMin().getKey());
+        recovered.close();
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1026)
+    public void testIdIndexStridedIds() {
+        for (int stride : new int[] { 0, 20, 24, 32, 40 }) {
+            FibonacciHeap indexed = new FibonacciHeap();
+            for (int i = 0; i < 100000; i++) {
+                indexed.insertWithId((long) i << stride, i);
+            }
+            for (int i = 0; i < 100000; i += 2) {
+                assertTrue(indexed.deleteById((long) i << stride));
+            }
+            for (int i = 0; i < 100000; i++) {
+                assertEquals(i % 2 == 1, indexed.containsId((long) i << stride));
+            }
+            // the probe runs stay short, strided ids do not share a few home slots
+            FibonacciHeap.IdIndex index = indexed.index;
+            int mask = index.nodes.length - 1;
+            int longest = 0;
+            for (int i = 0; i <= mask; i++) {
+                if (index.nodes[i] != null) {
+                    longest = Math.max(longest, (i - index.slot(index.ids[i])) & mask);
+                }
+            }
+            assertTrue(longest < 64, "stride " + stride + ": probe of " + longest);
+        }
+    }
+
+    private static byte[] snapshot(FibonacciHeap heap) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        heap.writeTo(Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    // compares the trees of a and b node by node
+    private static void assertSameShape(FibonacciHeap.HeapNode a, FibonacciHeap.HeapNode b) {
+        assertEquals(a.getKey(), b.getKey());
+        assertEquals(a.getRank(), b.getRank());
+        assertEquals(a.isMark(), b.isMark());
+        assertEquals(a.tombstone, b.tombstone);
+        assertEquals(a instanceof FibonacciHeap.IndexedNode, b instanceof FibonacciHeap.IndexedNode);
+        FibonacciHeap.HeapNode x = a.getChild(), y = b.getChild();
+        for (int i = 0; i < a.getRank(); i++) {
+            assertSame(b, y.getParent());
+            assertSameShape(x, y);
+            x = x.getNext();
+            y = y.getNext();
+        }
+    }
 }
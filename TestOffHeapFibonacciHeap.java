@@ -0,0 +1,170 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+
+//OffHeapFibonacciHeap Tester, kept apart from TestFibonacciHeap because it needs
+//the java.lang.foreign API (Java 22, or Java 21 with --enable-preview)
+
+@TestMethodOrder(OrderAnnotation.class)
+public class TestOffHeapFibonacciHeap {
+
+    @Tag("NoCompare")
+    @Test
+    @Order(1)
+    public void testInsertDeleteMin() {
+        try (OffHeapFibonacciHeap heap = new OffHeapFibonacciHeap()) {
+            assertTrue(heap.isEmpty());
+            assertEquals(OffHeapFibonacciHeap.NIL, heap.findMin());
+            int[] keys = new Random(29).ints(-1000000, 1000000).distinct().limit(40000).toArray(); // several pages
+            for (int i = 0; i < keys.length; i++) {
+                assertEquals(i, heap.insert(keys[i]));
+            }
+            assertEquals(keys.length, heap.size());
+            int[] sorted = keys.clone();
+            Arrays.sort(sorted);
+            assertTrue(Arrays.equals(Arrays.copyOf(sorted, 16), OffHeapFibonacciHeap.kMin(heap, 16)));
+            for (int key : sorted) {
+                assertEquals(key, heap.getKey(heap.findMin()));
+                heap.deleteMin();
+            }
+            assertTrue(heap.isEmpty());
+            assertEquals(0, heap.potential());
+        }
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(2)
+    public void testDecreaseKeyDelete() {
+        try (OffHeapFibonacciHeap heap = new OffHeapFibonacciHeap()) {
+            int[] keys = new Random(31).ints(0, 1000000).distinct().limit(5000).toArray();
+            int[] handles = new int[keys.length];
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int i = 0; i < keys.length; i++) {
+                handles[i] = heap.insert(keys[i]);
+                expected.add(keys[i]);
+            }
+            heap.deleteMin(); // consolidate, so decreaseKey has parents to cut from
+            expected.pollFirst();
+            for (int i = 0; i < keys.length; i += 3) {
+                if (expected.remove(keys[i])) {
+                    heap.decreaseKey(handles[i], 2000000);
+                    expected.add(keys[i] - 2000000);
+                    assertEquals(keys[i] - 2000000, heap.getKey(handles[i]));
+                    assertEquals((int) expected.first(), heap.getKey(heap.findMin()));
+                }
+            }
+            int lastDeleted = OffHeapFibonacciHeap.NIL;
+            for (int i = 1; i < keys.length; i += 3) {
+                if (expected.remove(keys[i])) {
+                    heap.delete(handles[i]);
+                    int deleted = handles[i];
+                    assertThrows(IllegalArgumentException.class, () -> heap.getKey(deleted));
+                    lastDeleted = deleted;
+                }
+            }
+            assertEquals(expected.size(), heap.size());
+            assertEquals(lastDeleted, heap.insert(-5000000)); // the last freed record is reused first
+            expected.add(-5000000);
+            for (int key : expected) {
+                assertEquals(key, heap.getKey(heap.findMin()));
+                heap.deleteMin();
+            }
+            assertTrue(heap.isEmpty());
+        }
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(3)
+    public void testDeleteExtremeKeys() {
+        try (OffHeapFibonacciHeap heap = new OffHeapFibonacciHeap()) {
+            int low = heap.insert(Integer.MIN_VALUE);
+            int high = heap.insert(Integer.MAX_VALUE);
+            int five = heap.insert(5);
+            heap.delete(high); // a root far above the minimum
+            assertEquals(2, heap.size());
+            assertEquals(low, heap.findMin());
+            assertEquals(Integer.MIN_VALUE, heap.getKey(low));
+            assertEquals(5, heap.getKey(five));
+            heap.insert(Integer.MIN_VALUE + 1);
+            int max = heap.insert(Integer.MAX_VALUE);
+            heap.insert(Integer.MAX_VALUE - 1);
+            heap.deleteMin(); // links the other four into one tree
+            heap.delete(max); // now children
+            heap.delete(five);
+            assertEquals(2, heap.size());
+            assertEquals(Integer.MIN_VALUE + 1, heap.getKey(heap.findMin()));
+            heap.deleteMin();
+            assertEquals(Integer.MAX_VALUE - 1, heap.getKey(heap.findMin()));
+        }
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(4)
+    public void testMeld() {
+        try (OffHeapFibonacciHeap heap = new OffHeapFibonacciHeap();
+                OffHeapFibonacciHeap other = new OffHeapFibonacciHeap()) {
+            assertThrows(IllegalArgumentException.class, () -> heap.meld(heap));
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int i = 0; i < 100; i++) {
+                heap.insert(2 * i);
+                expected.add(2 * i);
+            }
+            heap.deleteMin();
+            expected.pollFirst();
+            int[] otherHandles = new int[100];
+            for (int i = 0; i < otherHandles.length; i++) {
+                otherHandles[i] = other.insert(2 * i + 1);
+                expected.add(2 * i + 1);
+            }
+            other.deleteMin();
+            expected.remove(1);
+            int offset = heap.meld(other);
+            assertTrue(other.isEmpty());
+            assertEquals(expected.size(), heap.size());
+            for (int i = 1; i < otherHandles.length; i++) {// the handles of heap2 are shifted by the offset
+                assertEquals(2 * i + 1, heap.getKey(otherHandles[i] + offset));
+            }
+            heap.decreaseKey(otherHandles[50] + offset, 1000);
+            expected.remove(101);
+            expected.add(101 - 1000);
+            other.insert(7); // heap2 stays open and usable
+            assertEquals(7, other.getKey(other.findMin()));
+            Iterator<Integer> it = expected.iterator();
+            while (!heap.isEmpty()) {
+                assertEquals((int) it.next(), heap.getKey(heap.findMin()));
+                heap.deleteMin();
+            }
+            assertFalse(it.hasNext());
+        }
+    }
+
+    @Tag("NoCompare")
+    @Test
+    @Order(5)
+    public void testClose() {
+        OffHeapFibonacciHeap heap = new OffHeapFibonacciHeap();
+        int node = heap.insert(42);
+        heap.insert(7);
+        heap.close();
+        assertTrue(heap.isEmpty());
+        assertEquals(0, heap.size());
+        assertEquals(OffHeapFibonacciHeap.NIL, heap.findMin());
+        assertThrows(IllegalArgumentException.class, () -> heap.getKey(node));
+        assertThrows(IllegalStateException.class, () -> heap.insert(1)); // the arena is closed
+    }
+}
@@ -0,0 +1,430 @@
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * TimerScheduler
+ *
+ * Runs tasks after a delay, for the many timeouts that are cancelled or moved
+ * before they fire. The pending timeouts are the nodes of a LongFibonacciHeap
+ * keyed by their deadline, so schedule is O(1) and reschedule is a decreaseKey
+ * when the deadline moves earlier, all through the Timeout handle that
+ * schedule returns - DelayQueue has to search its array to remove an element.
+ * Cancelling a timeout that is not the minimum only
+ * marks it, like the lazy deletion of FibonacciHeap: the dispatcher drops it
+ * when it reaches the minimum, and the heap is rebuilt without the cancelled
+ * timeouts once they outnumber the pending ones, so cancel is O(1) amortized.
+ *
+ * A single dispatcher thread sleeps until the deadline of the minimum. When it
+ * wakes up it deletes all the timeouts that are due under the lock, and runs
+ * their tasks in deadline order after releasing it, so tasks may schedule,
+ * cancel and reschedule freely. A task that throws is reported to the
+ * dispatcher's uncaught exception handler and does not stop the other tasks.
+ */
+public class TimerScheduler implements AutoCloseable {
+	protected final TimerHeap heap = new TimerHeap();
+	protected final ReentrantLock lock = new ReentrantLock();
+	protected final Condition changed = lock.newCondition(); // a new minimum or close
+	protected final long origin = System.nanoTime(); // deadlines are kept relative to it, so they do not overflow
+	protected final Thread dispatcher;
+	protected boolean closed;
+	protected int cancelled; // cancelled timeouts still in the heap
+	protected Timeout[] batch = new Timeout[16]; // the due timeouts of one wake-up, used by the dispatcher only
+
+	/**
+	 * public TimerScheduler()
+	 *
+	 * Constructs a scheduler and starts its dispatcher, a daemon thread.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public TimerScheduler() {
+		dispatcher = new Thread(this::dispatch, "TimerScheduler");
+		dispatcher.setDaemon(true);
+		dispatcher.start();
+	}
+
+	/**
+	 * public Timeout schedule(Runnable task, long delay, TimeUnit unit)
+	 *
+	 * Schedules the task to run on the dispatcher after the delay, at once if it
+	 * is not positive. Throws IllegalStateException if the scheduler is closed.
+	 *
+	 * Returns the handle of the timeout.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+		if (task == null) {
+			throw new NullPointerException("task");
+		}
+		long deadline = deadline(delay, unit);
+		lock.lock();
+		try {
+			if (closed) {
+				throw new IllegalStateException("the scheduler is closed");
+			}
+			Timeout timeout = (Timeout) heap.insert(deadline);
+			timeout.task = task;
+			if (heap.findMin() == timeout) {
+				changed.signal();
+			}
+			return timeout;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public boolean cancel(Timeout timeout)
+	 *
+	 * Cancels the timeout if it is still pending.
+	 *
+	 * Returns true if and only if the timeout was pending, so its task will not
+	 * run.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(1)
+	 */
+	public boolean cancel(Timeout timeout) {
+		lock.lock();
+		try {
+			if (timeout.state != Timeout.PENDING) {
+				return false;
+			}
+			timeout.state = Timeout.CANCELLED;
+			timeout.task = null;
+			if (timeout == heap.findMin()) {// the dispatcher may be waiting for it
+				heap.deleteMin();
+				return true;
+			}
+			cancelled++;
+			if (cancelled > heap.size() - cancelled) {
+				heap.purge();
+				cancelled = 0;
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public boolean reschedule(Timeout timeout, long delay, TimeUnit unit)
+	 *
+	 * Moves the deadline of a pending timeout to delay from now, keeping the
+	 * handle. An earlier deadline is a decreaseKey, a later one deletes the node
+	 * and inserts it again.
+	 *
+	 * Returns true if and only if the timeout was pending.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(1) for an earlier deadline, O(log(n)) for a later one
+	 */
+	public boolean reschedule(Timeout timeout, long delay, TimeUnit unit) {
+		long deadline = deadline(delay, unit);
+		lock.lock();
+		try {
+			if (timeout.state != Timeout.PENDING) {
+				return false;
+			}
+			if (deadline <= timeout.key) {
+				heap.decreaseKey(timeout, timeout.key - deadline);
+			} else {
+				heap.delete(timeout);
+				timeout.key = deadline;
+				heap.reinsert(timeout);
+			}
+			if (heap.findMin() == timeout) {
+				changed.signal();
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of pending timeouts.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			return heap.size() - cancelled;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public void close()
+	 *
+	 * Stops the dispatcher and cancels the pending timeouts. The tasks of a batch
+	 * that is already running complete. Closing twice does nothing.
+	 *
+	 * Time complexity:
+	 *
+	 * O(n*log(n))
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			while (!heap.isEmpty()) {
+				Timeout timeout = (Timeout) heap.findMin();
+				heap.deleteMin();
+				timeout.state = Timeout.CANCELLED;
+				timeout.task = null;
+			}
+			cancelled = 0;
+			changed.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * protected long deadline(long delay, TimeUnit unit)
+	 *
+	 * returns the deadline delay from now relative to origin, saturated instead of
+	 * overflowing
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	protected long deadline(long delay, TimeUnit unit) {
+		long now = System.nanoTime() - origin;
+		long nanos = Math.max(0, unit.toNanos(delay));
+		return nanos > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + nanos;
+	}
+
+	/**
+	 * protected void dispatch()
+	 *
+	 * the loop of the dispatcher: sleeps until the minimum is due or changes,
+	 * then expires all the due timeouts at once and runs them outside the lock
+	 *
+	 * Time complexity:
+	 *
+	 * Amort O(log(n)) per expired timeout
+	 */
+	protected void dispatch() {
+		while (true) {
+			int due = 0;
+			lock.lock();
+			try {
+				while (due == 0) {
+					if (closed) {
+						return;
+					}
+					LongFibonacciHeap.HeapNode min = heap.findMin();
+					if (min == null) {
+						changed.awaitUninterruptibly();
+						continue;
+					}
+					long now = System.nanoTime() - origin;
+					if (min.key > now) {
+						try {
+							changed.awaitNanos(min.key - now);
+						} catch (InterruptedException e) {// only close stops the dispatcher
+						}
+						continue;
+					}
+					do {// all the due timeouts in one batch
+						Timeout timeout = (Timeout) min;
+						heap.deleteMin();
+						if (timeout.state == Timeout.CANCELLED) {
+							cancelled--;
+						} else {
+							timeout.state = Timeout.EXPIRED;
+							if (due == batch.length) {
+								batch = Arrays.copyOf(batch, 2 * due);
+							}
+							batch[due++] = timeout;
+						}
+						min = heap.findMin();
+					} while (min != null && min.key <= now);
+				}
+			} finally {
+				lock.unlock();
+			}
+			for (int i = 0; i < due; i++) {
+				Runnable task = batch[i].task;
+				batch[i].task = null;
+				batch[i] = null;
+				try {
+					task.run();
+				} catch (Throwable t) {
+					Thread thread = Thread.currentThread();
+					thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+				}
+			}
+		}
+	}
+
+	/**
+	 * protected static class TimerHeap
+	 *
+	 * The heap of the pending timeouts, whose nodes are Timeout objects.
+	 */
+	protected static class TimerHeap extends LongFibonacciHeap {
+
+		/**
+		 * protected void reinsert(Timeout timeout)
+		 *
+		 * inserts a node that was deleted from the heap again, as a single tree
+		 *
+		 * Time complexity:
+		 *
+		 * O(1)
+		 */
+		protected void reinsert(Timeout timeout) {
+			timeout.rank = 0;
+			timeout.mark = false;
+			timeout.child = null;
+			timeout.parent = null;
+			size++;
+			insertNode(timeout);
+		}
+
+		/**
+		 * protected void purge()
+		 *
+		 * rebuilds the heap from its pending timeouts, as single trees that the
+		 * next deleteMin consolidates
+		 *
+		 * Time complexity:
+		 *
+		 * O(n)
+		 */
+		protected void purge() {
+			if (isEmpty()) {
+				return;
+			}
+			Timeout[] pending = new Timeout[size];
+			int count = 0;
+			HeapNode[] stack = new HeapNode[64];
+			int depth = 0;
+			stack[depth++] = first;
+			while (depth > 0) {// every sibling list is pushed once, by its first node
+				HeapNode start = stack[--depth];
+				HeapNode node = start;
+				do {
+					if (((Timeout) node).state == Timeout.PENDING) {
+						pending[count++] = (Timeout) node;
+					}
+					if (node.child != null) {
+						if (depth == stack.length) {
+							stack = Arrays.copyOf(stack, 2 * depth);
+						}
+						stack[depth++] = node.child;
+					}
+					node = node.next;
+				} while (node != start);
+			}
+			resetHeap();
+			for (int i = 0; i < count; i++) {
+				reinsert(pending[i]);
+			}
+		}
+
+		/**
+		 * protected HeapNode newNode(long key)
+		 *
+		 * creates a pending Timeout without a task
+		 *
+		 * Time complexity:
+		 *
+		 * O(1)
+		 */
+		@Override
+		protected HeapNode newNode(long key) {
+			return new Timeout(key);
+		}
+	}
+
+	/**
+	 * public static class Timeout
+	 *
+	 * The handle of a scheduled task, a node of the heap keyed by its deadline.
+	 */
+	public static class Timeout extends LongFibonacciHeap.HeapNode {
+		protected static final int PENDING = 0, EXPIRED = 1, CANCELLED = 2;
+
+		protected Runnable task; // null once the timeout is no longer pending
+		protected volatile int state; // written under the lock
+
+		/**
+		 * protected Timeout(long deadline)
+		 *
+		 * Constructs a pending timeout
+		 *
+		 * Time complexity:
+		 * O(1)
+		 */
+		protected Timeout(long deadline) {
+			super(deadline);
+		}
+
+		/**
+		 * public boolean isPending()
+		 *
+		 * returns true if and only if the task neither ran nor was cancelled
+		 *
+		 * Time complexity:
+		 *
+		 * O(1)
+		 */
+		public boolean isPending() {
+			return state == PENDING;
+		}
+
+		/**
+		 * public boolean isExpired()
+		 *
+		 * returns true if and only if the task was handed to the dispatcher to run
+		 *
+		 * Time complexity:
+		 *
+		 * O(1)
+		 */
+		public boolean isExpired() {
+			return state == EXPIRED;
+		}
+
+		/**
+		 * public boolean isCancelled()
+		 *
+		 * returns true if and only if the timeout was cancelled before it expired
+		 *
+		 * Time complexity:
+		 *
+		 * O(1)
+		 */
+		public boolean isCancelled() {
+			return state == CANCELLED;
+		}
+	}
+}
@@ -0,0 +1,269 @@
+import java.util.NoSuchElementException;
+
+/**
+ * ValuedFibonacciHeap
+ *
+ * A FibonacciHeap whose nodes carry a value of type V next to their int key, so
+ * the data of an entry is found through the node instead of a side map. The
+ * nodes are Entry objects: insert, insertWithId, findMin and the node handles
+ * work as in FibonacciHeap, and deleteMinValue removes the minimum and returns
+ * its value. A node inserted with an id is an IndexedEntry.
+ *
+ * With a node pool the value of a deleted entry is cleared before the node is
+ * reused, so the heap does not keep deleted values alive.
+ */
+public class ValuedFibonacciHeap<V> extends FibonacciHeap {
+
+	/**
+	 * public ValuedFibonacciHeap()
+	 *
+	 * Constructs an empty heap without a node pool.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public ValuedFibonacciHeap() {
+	}
+
+	/**
+	 * public ValuedFibonacciHeap(int nodePoolCapacity)
+	 *
+	 * Constructs an empty heap that recycles up to nodePoolCapacity deleted
+	 * entries, see FibonacciHeap(int).
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public ValuedFibonacciHeap(int nodePoolCapacity) {
+		super(nodePoolCapacity);
+	}
+
+	/**
+	 * public Entry<V> insert(int key, V value)
+	 *
+	 * Inserts an entry with the key and the value.
+	 *
+	 * Returns the newly created entry.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public Entry<V> insert(int key, V value) {
+		Entry<V> entry = insert(key);
+		entry.value = value;
+		return entry;
+	}
+
+	/**
+	 * public Entry<V> insert(int key)
+	 *
+	 * Inserts an entry with the key and a null value.
+	 *
+	 * Returns the newly created entry.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public Entry<V> insert(int key) {
+		return (Entry<V>) super.insert(key);
+	}
+
+	/**
+	 * public Entry<V> findMin()
+	 *
+	 * Returns the entry whose key is minimal, or null if the heap is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public Entry<V> findMin() {
+		return (Entry<V>) min;
+	}
+
+	/**
+	 * public V findMinValue()
+	 *
+	 * Returns the value of the entry whose key is minimal. Throws
+	 * NoSuchElementException if the heap is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public V findMinValue() {
+		if (isEmpty()) {
+			throw new NoSuchElementException("the heap is empty");
+		}
+		return findMin().value;
+	}
+
+	/**
+	 * public V deleteMinValue()
+	 *
+	 * Deletes the entry whose key is minimal and returns its value. Throws
+	 * NoSuchElementException if the heap is empty.
+	 *
+	 * Time complexity:
+	 *
+	 * WC O(n)
+	 *
+	 * Amort O(log(n))
+	 */
+	public V deleteMinValue() {
+		V value = findMinValue();
+		deleteMin();
+		return value;
+	}
+
+	/**
+	 * public void meld(FibonacciHeap heap2)
+	 *
+	 * Melds heap2 with the current heap. Throws IllegalArgumentException if heap2
+	 * is not a ValuedFibonacciHeap, whose nodes would not be entries.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	public void meld(FibonacciHeap heap2) {
+		if (!(heap2 instanceof ValuedFibonacciHeap)) {
+			throw new IllegalArgumentException("can only meld a ValuedFibonacciHeap");
+		}
+		super.meld(heap2);
+	}
+
+	/**
+	 * protected HeapNode allocateNode(int key)
+	 *
+	 * allocates an entry with a null value
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	protected HeapNode allocateNode(int key) {
+		return new Entry<V>(key);
+	}
+
+	/**
+	 * protected HeapNode allocateIndexedNode(long id, int key)
+	 *
+	 * allocates an entry with the id and a null value, so insertWithId and upsert
+	 * return entries too
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	@Override
+	protected HeapNode allocateIndexedNode(long id, int key) {
+		return new IndexedEntry<V>(key, id);
+	}
+
+	/**
+	 * protected void recycle(HeapNode node)
+	 *
+	 * clears the value of the deleted entry before the node pool may keep it
+	 *
+	 * Time complexity:
+	 *
+	 * Amort O(1)
+	 */
+	@Override
+	protected void recycle(HeapNode node) {
+		((Entry<?>) node).value = null;
+		super.recycle(node);
+	}
+
+	/**
+	 * public static class Entry<V>
+	 *
+	 * A node of a ValuedFibonacciHeap, holding a key and a value.
+	 */
+	public static class Entry<V> extends HeapNode {
+		protected V value;
+
+		/**
+		 * public Entry(int key)
+		 *
+		 * Constructs an entry with the key and a null value
+		 *
+		 * Time complexity:
+		 * O(1)
+		 */
+		public Entry(int key) {
+			super(key);
+		}
+
+		/**
+		 * public V getValue()
+		 *
+		 * returns the value of the entry
+		 *
+		 * Time Complexity:
+		 *
+		 * O(1)
+		 */
+		public V getValue() {
+			return value;
+		}
+
+		/**
+		 * public void setValue(V value)
+		 *
+		 * sets the value of the entry
+		 *
+		 * Time complexity:
+		 * O(1)
+		 */
+		public void setValue(V value) {
+			this.value = value;
+		}
+	}
+
+	/**
+	 * public static class IndexedEntry<V>
+	 *
+	 * An entry inserted with an id (see insertWithId).
+	 */
+	public static class IndexedEntry<V> extends Entry<V> implements FibonacciHeap.Indexed {
+		protected final long id;
+
+		/**
+		 * public IndexedEntry(int key, long id)
+		 *
+		 * Constructs an entry with the key, the id and a null value
+		 *
+		 * Time complexity:
+		 * O(1)
+		 */
+		public IndexedEntry(int key, long id) {
+			super(key);
+			this.id = id;
+		}
+
+		/**
+		 * public long getId()
+		 *
+		 * returns the id of the entry
+		 *
+		 * Time Complexity:
+		 *
+		 * O(1)
+		 */
+		public long getId() {
+			return id;
+		}
+	}
+}
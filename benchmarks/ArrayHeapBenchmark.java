@@ -0,0 +1,176 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+/**
+ * ArrayHeapBenchmark
+ *
+ * The memory of ArrayFibonacciHeap against FibonacciHeap. The fill benchmarks
+ * insert n keys into a new heap, so their B/op column is the bytes allocated
+ * per element, array growth included (fill.presized starts at capacity n).
+ * The cycle benchmarks fill the heap and delete the minimum until it is empty.
+ * After the timed benchmarks, every heap is filled once more and kept alive to
+ * print the bytes it retains per element after a full GC, and the cycles are
+ * repeated for bench.gcTime milliseconds (default 2000) to print the number of
+ * collections and the GC time they caused.
+ */
+public class ArrayHeapBenchmark {
+	protected static final long GC_MILLIS = Long.getLong("bench.gcTime", 2000);
+
+	public static void main(String[] args) {
+		for (int n : BenchmarkHarness.intList("bench.sizes", "1000,100000,1000000")) {
+			for (KeyDistribution dist : KeyDistribution.fromProperty()) {
+				int[] keys = dist.keys(n, 42);
+				run("fill.fibonacciHeap", n, dist, new Fill(keys, Fill.OBJECTS, false));
+				run("fill.arrayHeap", n, dist, new Fill(keys, Fill.ARRAYS, false));
+				run("fill.arrayHeap.presized", n, dist, new Fill(keys, Fill.PRESIZED, false));
+				run("cycle.fibonacciHeap", n, dist, new Fill(keys, Fill.OBJECTS, true));
+				run("cycle.arrayHeap", n, dist, new Fill(keys, Fill.ARRAYS, true));
+				retained("fibonacciHeap", n, dist, () -> new Fill(keys, Fill.OBJECTS, false).fill());
+				retained("arrayHeap", n, dist, () -> new Fill(keys, Fill.ARRAYS, false).fill());
+				retained("arrayHeap.presized", n, dist, () -> new Fill(keys, Fill.PRESIZED, false).fill());
+				collections("cycle.fibonacciHeap", n, dist, new Fill(keys, Fill.OBJECTS, true));
+				collections("cycle.arrayHeap", n, dist, new Fill(keys, Fill.ARRAYS, true));
+			}
+		}
+	}
+
+	/**
+	 * protected static void run(String benchmark, int n, KeyDistribution dist,
+	 * BenchmarkHarness.Workload workload)
+	 *
+	 * measures the workload if it passes bench.filter
+	 */
+	protected static void run(String benchmark, int n, KeyDistribution dist, BenchmarkHarness.Workload workload) {
+		String name = String.format("ArrayHeap.%s n=%d %s", benchmark, n, dist);
+		if (BenchmarkHarness.selected(name)) {
+			BenchmarkHarness.measure(name, workload);
+		}
+	}
+
+	/**
+	 * protected static void retained(String benchmark, int n, KeyDistribution
+	 * dist, Supplier<Object> heap)
+	 *
+	 * prints the bytes per element that the heap built by the supplier keeps
+	 * reachable, measured as the used heap after a full GC with and without it
+	 */
+	protected static void retained(String benchmark, int n, KeyDistribution dist, Supplier<Object> heap) {
+		String name = String.format("ArrayHeap.retained.%s n=%d %s", benchmark, n, dist);
+		if (!BenchmarkHarness.selected(name)) {
+			return;
+		}
+		long before = usedAfterGc();
+		Object alive = heap.get();
+		long after = usedAfterGc();
+		BenchmarkHarness.consume(alive.hashCode());
+		System.out.println(String.format("%-60s %12.2f B/element", name, (double) (after - before) / n));
+	}
+
+	/**
+	 * protected static void collections(String benchmark, int n, KeyDistribution
+	 * dist, Fill cycle)
+	 *
+	 * runs the cycle for GC_MILLIS and prints the collections and the GC time per
+	 * million elements that went through the heap
+	 */
+	protected static void collections(String benchmark, int n, KeyDistribution dist, Fill cycle) {
+		String name = String.format("ArrayHeap.gc.%s n=%d %s", benchmark, n, dist);
+		if (!BenchmarkHarness.selected(name)) {
+			return;
+		}
+		usedAfterGc();
+		long countBefore = 0, timeBefore = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			countBefore += gc.getCollectionCount();
+			timeBefore += gc.getCollectionTime();
+		}
+		long elements = 0;
+		long end = System.nanoTime() + GC_MILLIS * 1_000_000L;
+		while (System.nanoTime() < end) {
+			elements += cycle.run();
+		}
+		long count = -countBefore, time = -timeBefore;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += gc.getCollectionCount();
+			time += gc.getCollectionTime();
+		}
+		double millions = elements / 1e6;
+		System.out.println(String.format("%-60s %12.2f GCs/M %10.2f GC ms/M", name, count / millions, time / millions));
+	}
+
+	/**
+	 * protected static long usedAfterGc()
+	 *
+	 * returns the used heap after asking for full GCs until it stops shrinking
+	 */
+	protected static long usedAfterGc() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 10; i++) {
+			System.gc();
+			long now = runtime.totalMemory() - runtime.freeMemory();
+			if (now >= used) {
+				break;
+			}
+			used = now;
+		}
+		return used;
+	}
+
+	// inserts the keys into a new heap, then deletes them all if cycle
+	static class Fill implements BenchmarkHarness.Workload {
+		static final int OBJECTS = 0, ARRAYS = 1, PRESIZED = 2;
+		final int[] keys;
+		final int mode;
+		final boolean cycle;
+
+		Fill(int[] keys, int mode, boolean cycle) {
+			this.keys = keys;
+			this.mode = mode;
+			this.cycle = cycle;
+		}
+
+		public void setup() {
+		}
+
+		Object fill() {
+			if (mode == OBJECTS) {
+				FibonacciHeap heap = new FibonacciHeap();
+				for (int key : keys) {
+					heap.insert(key);
+				}
+				return heap;
+			}
+			ArrayFibonacciHeap heap = mode == PRESIZED ? new ArrayFibonacciHeap(keys.length) : new ArrayFibonacciHeap();
+			for (int key : keys) {
+				heap.insert(key);
+			}
+			return heap;
+		}
+
+		public long run() {
+			Object heap = fill();
+			if (!cycle) {
+				BenchmarkHarness.consume(heap.hashCode());
+				return keys.length;
+			}
+			int sum = 0;
+			if (heap instanceof FibonacciHeap) {
+				FibonacciHeap objects = (FibonacciHeap) heap;
+				while (!objects.isEmpty()) {
+					sum += objects.findMin().getKey();
+					objects.deleteMin();
+				}
+			} else {
+				ArrayFibonacciHeap arrays = (ArrayFibonacciHeap) heap;
+				while (!arrays.isEmpty()) {
+					sum += arrays.getKey(arrays.findMin());
+					arrays.deleteMin();
+				}
+			}
+			BenchmarkHarness.consume(sum);
+			return 2L * keys.length;
+		}
+	}
+}
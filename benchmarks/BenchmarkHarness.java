@@ -0,0 +1,178 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * BenchmarkHarness
+ *
+ * A small measurement harness for the heap benchmarks. Every workload is run
+ * through warmup and measurement iterations, the untimed setup is excluded from
+ * the numbers, and the average time and the number of bytes allocated per
+ * operation are reported.
+ *
+ * Configuration (system properties):
+ *
+ * bench.warmup - number of warmup iterations (default 5)
+ *
+ * bench.iterations - number of measured iterations (default 5)
+ *
+ * bench.time - minimal timed milliseconds per iteration (default 200)
+ *
+ * bench.filter - regular expression the benchmark name has to contain
+ */
+public class BenchmarkHarness {
+	protected static final int WARMUP = Integer.getInteger("bench.warmup", 5);
+	protected static final int ITERATIONS = Integer.getInteger("bench.iterations", 5);
+	protected static final long ITERATION_NANOS = Long.getLong("bench.time", 200) * 1_000_000L;
+	protected static final Pattern FILTER = Pattern.compile(System.getProperty("bench.filter", ""));
+
+	private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	// results are folded into this field so the JIT cannot drop the measured work
+	private static int sink;
+	private static volatile int published;
+
+	/**
+	 * public interface Workload
+	 *
+	 * A benchmarked operation. setup() is called (untimed) before every run(), and
+	 * run() returns the number of operations it performed.
+	 */
+	public interface Workload {
+		void setup();
+
+		long run();
+	}
+
+	/**
+	 * public static void consume(int value)
+	 *
+	 * Sinks a result of the measured code.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public static void consume(int value) {
+		sink ^= value;
+	}
+
+	/**
+	 * public static void consume(int[] values)
+	 *
+	 * Sinks an array result of the measured code.
+	 *
+	 * Time complexity:
+	 *
+	 * O(1)
+	 */
+	public static void consume(int[] values) {
+		sink ^= values.length;
+		if (values.length > 0) {
+			sink ^= values[values.length - 1];
+		}
+	}
+
+	/**
+	 * public static boolean selected(String name)
+	 *
+	 * returns whether the benchmark with the given name passes bench.filter
+	 */
+	public static boolean selected(String name) {
+		return FILTER.matcher(name).find();
+	}
+
+	/**
+	 * public static int[] intList(String property, String defaults)
+	 *
+	 * parses a comma separated list of ints from a system property
+	 */
+	public static int[] intList(String property, String defaults) {
+		String[] parts = System.getProperty(property, defaults).split(",");
+		int[] res = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			res[i] = Integer.parseInt(parts[i].trim().replace("_", ""));
+		}
+		return res;
+	}
+
+	/**
+	 * public static Result measure(String name, Workload workload)
+	 *
+	 * Runs the workload through the warmup and measurement iterations, prints a
+	 * result line and returns it.
+	 */
+	public static Result measure(String name, Workload workload) {
+		for (int i = 0; i < WARMUP; i++) {
+			iteration(workload);
+		}
+		List<double[]> samples = new ArrayList<>();
+		for (int i = 0; i < ITERATIONS; i++) {
+			samples.add(iteration(workload));
+		}
+		published = sink;
+
+		double nanos = 0, bytes = 0;
+		for (double[] sample : samples) {
+			nanos += sample[0];
+			bytes += sample[1];
+		}
+		nanos /= samples.size();
+		bytes /= samples.size();
+		double deviation = 0;
+		for (double[] sample : samples) {
+			deviation += (sample[0] - nanos) * (sample[0] - nanos);
+		}
+		deviation = Math.sqrt(deviation / samples.size());
+
+		Result result = new Result(name, nanos, deviation, bytes);
+		System.out.println(result);
+		return result;
+	}
+
+	/**
+	 * private static double[] iteration(Workload workload)
+	 *
+	 * runs setup/run pairs until ITERATION_NANOS of timed work were collected and
+	 * returns {ns/op, B/op} for the iteration
+	 */
+	private static double[] iteration(Workload workload) {
+		long elapsed = 0, allocated = 0, ops = 0;
+		while (elapsed < ITERATION_NANOS) {
+			workload.setup();
+			long bytesBefore = THREADS.getCurrentThreadAllocatedBytes();
+			long before = System.nanoTime();
+			ops += workload.run();
+			long after = System.nanoTime();
+			allocated += THREADS.getCurrentThreadAllocatedBytes() - bytesBefore;
+			elapsed += after - before;
+		}
+		return new double[] { (double) elapsed / ops, (double) allocated / ops };
+	}
+
+	/**
+	 * public static class Result
+	 *
+	 * The outcome of a single measured benchmark.
+	 */
+	public static class Result {
+		public final String name;
+		public final double nanosPerOp;
+		public final double deviation;
+		public final double bytesPerOp;
+
+		public Result(String name, double nanosPerOp, double deviation, double bytesPerOp) {
+			this.name = name;
+			this.nanosPerOp = nanosPerOp;
+			this.deviation = deviation;
+			this.bytesPerOp = bytesPerOp;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-60s %12.2f +- %8.2f ns/op %10.2f B/op", name, nanosPerOp, deviation, bytesPerOp);
+		}
+	}
+}
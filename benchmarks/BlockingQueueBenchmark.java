@@ -0,0 +1,162 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BlockingQueueBenchmark
+ *
+ * FibonacciBlockingQueue against PriorityBlockingQueue as the queue of a worker
+ * pool: bench.consumers (default 1000,10000) consumers block in take while the
+ * benchmark thread offers n tasks of random priority, and are interrupted
+ * once all the tasks were taken. The drainTo variants take one task and drain
+ * up to 63 more in the same batch. The consumers are virtual threads when the
+ * JVM has them (Java 21), platform threads otherwise.
+ */
+public class BlockingQueueBenchmark {
+	protected static final int BATCH = 64;
+	protected static final ThreadFactory CONSUMERS = consumerThreads();
+
+	public static void main(String[] args) {
+		System.out.println("consumer threads: " + (CONSUMERS == null ? "platform" : "virtual"));
+		for (int n : BenchmarkHarness.intList("bench.sizes", "100000,1000000")) {
+			for (int consumers : BenchmarkHarness.intList("bench.consumers", "1000,10000")) {
+				int[] keys = KeyDistribution.RANDOM.keys(n, 42);
+				run("fibonacci.take", n, consumers, new Pool(keys, consumers, true, false));
+				run("fibonacci.drainTo", n, consumers, new Pool(keys, consumers, true, true));
+				run("priorityBlockingQueue.take", n, consumers, new Pool(keys, consumers, false, false));
+				run("priorityBlockingQueue.drainTo", n, consumers, new Pool(keys, consumers, false, true));
+			}
+		}
+	}
+
+	/**
+	 * protected static void run(String benchmark, int n, int consumers,
+	 * BenchmarkHarness.Workload workload)
+	 *
+	 * measures the workload if it passes bench.filter
+	 */
+	protected static void run(String benchmark, int n, int consumers, BenchmarkHarness.Workload workload) {
+		String name = String.format("BlockingQueue.%s n=%d consumers=%d", benchmark, n, consumers);
+		if (BenchmarkHarness.selected(name)) {
+			BenchmarkHarness.measure(name, workload);
+		}
+	}
+
+	/**
+	 * protected static ThreadFactory consumerThreads()
+	 *
+	 * returns Thread.ofVirtual().factory() through reflection, so the benchmarks
+	 * still compile for Java 17, or null without virtual threads
+	 */
+	protected static ThreadFactory consumerThreads() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException | UnsupportedOperationException e) {
+			return null;
+		}
+	}
+
+	// a task of the pool
+	static class Task {
+		final int priority;
+
+		Task(int priority) {
+			this.priority = priority;
+		}
+	}
+
+	// n tasks offered to blocked consumers, which are interrupted once all the
+	// tasks were taken
+	static class Pool implements BenchmarkHarness.Workload {
+		final Task[] tasks;
+		final int consumers;
+		final boolean fibonacci;
+		final boolean drain;
+		BlockingQueue<Task> queue;
+		Thread[] threads;
+		AtomicInteger remaining;
+		CountDownLatch finished;
+
+		Pool(int[] keys, int consumers, boolean fibonacci, boolean drain) {
+			this.tasks = new Task[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				tasks[i] = new Task(keys[i]);
+			}
+			this.consumers = consumers;
+			this.fibonacci = fibonacci;
+			this.drain = drain;
+		}
+
+		public void setup() {
+			queue = fibonacci ? new FibonacciBlockingQueue<>(task -> task.priority)
+					: new PriorityBlockingQueue<>(11, (a, b) -> Integer.compare(a.priority, b.priority));
+			remaining = new AtomicInteger(tasks.length);
+			finished = new CountDownLatch(1);
+			threads = new Thread[consumers];
+			for (int i = 0; i < consumers; i++) {
+				Runnable consumer = drain ? this::drainLoop : this::takeLoop;
+				threads[i] = CONSUMERS == null ? new Thread(consumer) : CONSUMERS.newThread(consumer);
+				threads[i].start();
+			}
+		}
+
+		public long run() {
+			for (Task task : tasks) {
+				queue.offer(task);
+			}
+			try {
+				finished.await();
+				for (Thread thread : threads) {
+					thread.interrupt();
+				}
+				for (Thread thread : threads) {
+					thread.join();
+				}
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			return tasks.length;
+		}
+
+		void takeLoop() {
+			long sum = 0;
+			try {
+				while (true) {
+					sum += queue.take().priority;
+					taken(1);
+				}
+			} catch (InterruptedException e) {
+				BenchmarkHarness.consume((int) sum);
+			}
+		}
+
+		void drainLoop() {
+			List<Task> batch = new ArrayList<>(BATCH);
+			long sum = 0;
+			try {
+				while (true) {
+					batch.add(queue.take());
+					queue.drainTo(batch, BATCH - 1);
+					for (Task task : batch) {
+						sum += task.priority;
+					}
+					taken(batch.size());
+					batch.clear();
+				}
+			} catch (InterruptedException e) {
+				BenchmarkHarness.consume((int) sum);
+			}
+		}
+
+		void taken(int count) {
+			if (remaining.addAndGet(-count) == 0) {
+				finished.countDown();
+			}
+		}
+	}
+}
@@ -0,0 +1,156 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * ConcurrentHeapBenchmark
+ *
+ * Multi-producer throughput: bench.threads (default 1,2,4,8) producer threads
+ * insert n keys between them while one consumer thread removes the minimum
+ * until it removed all n. Compares ConcurrentFibonacciHeap with a FibonacciHeap
+ * behind a global synchronized and with PriorityBlockingQueue. An operation is
+ * one insert or one removal; the B/op column only counts the measuring thread
+ * and is meaningless here.
+ */
+public class ConcurrentHeapBenchmark {
+	public static void main(String[] args) throws Exception {
+		int[] threads = BenchmarkHarness.intList("bench.threads", "1,2,4,8");
+		int maxThreads = 1;
+		for (int t : threads) {
+			maxThreads = Math.max(maxThreads, t);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(maxThreads + 1);
+		try {
+			for (int n : BenchmarkHarness.intList("bench.sizes", "100000,1000000")) {
+				for (KeyDistribution dist : KeyDistribution.fromProperty()) {
+					int[] keys = dist.keys(n, 42);
+					for (int t : threads) {
+						run("concurrent", n, dist, t, new Throughput(keys, t, executor, Concurrent::new));
+						run("synchronized", n, dist, t, new Throughput(keys, t, executor, Synchronized::new));
+						run("priorityBlockingQueue", n, dist, t, new Throughput(keys, t, executor, Blocking::new));
+					}
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * protected static void run(String benchmark, int n, KeyDistribution dist, int
+	 * threads, BenchmarkHarness.Workload workload)
+	 *
+	 * measures the workload if it passes bench.filter
+	 */
+	protected static void run(String benchmark, int n, KeyDistribution dist, int threads,
+			BenchmarkHarness.Workload workload) {
+		String name = String.format("ConcurrentHeap.%s n=%d %s producers=%d", benchmark, n, dist, threads);
+		if (BenchmarkHarness.selected(name)) {
+			BenchmarkHarness.measure(name, workload);
+		}
+	}
+
+	// the heap under test
+	interface Target {
+		void insert(int key);
+
+		// removes the minimum, returns false if the heap was empty
+		boolean poll();
+	}
+
+	static class Concurrent implements Target {
+		final ConcurrentFibonacciHeap heap = new ConcurrentFibonacciHeap();
+
+		public void insert(int key) {
+			heap.insert(key);
+		}
+
+		public boolean poll() {
+			return heap.pollMin() != null;
+		}
+	}
+
+	static class Synchronized implements Target {
+		final FibonacciHeap heap = new FibonacciHeap();
+
+		public synchronized void insert(int key) {
+			heap.insert(key);
+		}
+
+		public synchronized boolean poll() {
+			if (heap.isEmpty()) {
+				return false;
+			}
+			heap.deleteMin();
+			return true;
+		}
+	}
+
+	static class Blocking implements Target {
+		final PriorityBlockingQueue<Integer> queue = new PriorityBlockingQueue<>();
+
+		public void insert(int key) {
+			queue.offer(key);
+		}
+
+		public boolean poll() {
+			return queue.poll() != null;
+		}
+	}
+
+	// producers insert their share of the keys while the consumer drains the heap
+	static class Throughput implements BenchmarkHarness.Workload {
+		final int[] keys;
+		final int producers;
+		final ExecutorService executor;
+		final Supplier<Target> factory;
+		Target target;
+
+		Throughput(int[] keys, int producers, ExecutorService executor, Supplier<Target> factory) {
+			this.keys = keys;
+			this.producers = producers;
+			this.executor = executor;
+			this.factory = factory;
+		}
+
+		public void setup() {
+			target = factory.get();
+		}
+
+		public long run() {
+			Target heap = target;
+			List<Future<?>> futures = new ArrayList<>();
+			for (int p = 0; p < producers; p++) {
+				int from = (int) ((long) keys.length * p / producers);
+				int to = (int) ((long) keys.length * (p + 1) / producers);
+				futures.add(executor.submit(() -> {
+					for (int i = from; i < to; i++) {
+						heap.insert(keys[i]);
+					}
+				}));
+			}
+			futures.add(executor.submit(() -> {
+				int removed = 0;
+				while (removed < keys.length) {
+					if (heap.poll()) {
+						removed++;
+					} else {
+						Thread.onSpinWait();
+					}
+				}
+			}));
+			try {
+				for (Future<?> future : futures) {
+					future.get();
+				}
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+			return 2L * keys.length;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+/**
+ * ConsolidateBenchmark
+ *
+ * Measures the deleteMin/consolidate hot path on its own: every run drains a
+ * heap that was filled and consolidated during the untimed setup, so the timed
+ * code is nothing but deleteMin. The steady state has to allocate nothing; the
+ * benchmark exits with status 1 if it measures more than ALLOWED_BYTES per
+ * operation (the allocation counter has a granularity of a few bytes per run).
+ */
+public class ConsolidateBenchmark {
+	protected static final double ALLOWED_BYTES = 0.01;
+
+	public static void main(String[] args) {
+		boolean allocates = false;
+		for (int n : BenchmarkHarness.intList("bench.sizes", "1000,100000,1000000")) {
+			for (KeyDistribution dist : KeyDistribution.fromProperty()) {
+				String name = String.format("FibonacciHeap.deleteMin.steady n=%d %s", n, dist);
+				if (!BenchmarkHarness.selected(name)) {
+					continue;
+				}
+				BenchmarkHarness.Result result = BenchmarkHarness.measure(name, new Drain(dist.keys(n, 42)));
+				if (result.bytesPerOp > ALLOWED_BYTES) {
+					System.out.println("  ^ allocates on the deleteMin path");
+					allocates = true;
+				}
+			}
+		}
+		if (allocates) {
+			System.exit(1);
+		}
+	}
+
+	// drains a consolidated heap
+	static class Drain implements BenchmarkHarness.Workload {
+		final int[] keys;
+		FibonacciHeap heap;
+
+		Drain(int[] keys) {
+			this.keys = keys;
+		}
+
+		public void setup() {
+			heap = new FibonacciHeap();
+			FibonacciHeapBenchmark.consolidated(heap, keys);
+		}
+
+		public long run() {
+			int n = heap.size();
+			for (int i = 0; i < n; i++) {
+				heap.deleteMin();
+			}
+			return n;
+		}
+	}
+}
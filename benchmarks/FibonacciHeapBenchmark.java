@@ -0,0 +1,709 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * FibonacciHeapBenchmark
+ *
+ * Benchmarks every public operation of FibonacciHeap, parameterized by the heap
+ * size (bench.sizes, default 1000,100000,1000000) and the key distribution
+ * (bench.distributions, default all of KeyDistribution). The warm* benchmarks
+ * keep a heap of the given size alive and measure the steady state of mixed
+ * operations on it.
+ */
+public class FibonacciHeapBenchmark {
+	protected static final long SEED = 42;
+
+	public static void main(String[] args) {
+		for (int n : BenchmarkHarness.intList("bench.sizes", "1000,100000,1000000")) {
+			for (KeyDistribution dist : KeyDistribution.fromProperty()) {
+				int[] keys = dist.keys(n, SEED);
+				run("insert", n, dist, new Insert(keys));
+				run("load.insertLoop", n, dist, new Load(keys, Load.LOOP));
+				run("load.insertAll", n, dist, new Load(keys, Load.BULK));
+				run("load.insertAllSorted", n, dist, new Load(keys, Load.SORTED));
+				run("load.insertLoop.parallel", n, dist, new Load(keys, Load.PARALLEL));
+				run("deleteMin", n, dist, new DeleteMin(keys));
+				run("drain.loop", n, dist, new Drain(keys, Drain.LOOP));
+				run("drain.drainTo", n, dist, new Drain(keys, Drain.DRAIN_TO));
+				run("sort", n, dist, new Drain(keys, Drain.SORT));
+				run("sort.arrays", n, dist, new Drain(keys, Drain.ARRAYS_SORT));
+				run("decreaseKey", n, dist, new DecreaseKey(keys));
+				run("decreaseKeys", n, dist, new DecreaseKeys(keys));
+				run("increaseKey", n, dist, new IncreaseKey(keys, false));
+				run("increaseKey.deleteInsert", n, dist, new IncreaseKey(keys, true));
+				run("delete", n, dist, new Delete(keys, 0));
+				run("delete.lazy", n, dist, new Delete(keys, 0.5));
+				run("meld", n, dist, new Meld(keys));
+				run("countersRep.roots", n, dist, new CountersRep(keys, false));
+				run("countersRep.consolidated", n, dist, new CountersRep(keys, true));
+				run("kMin", n, dist, new KMin(keys));
+				run("peekK", n, dist, new PeekK(keys));
+				run("warmInsertDeleteMin", n, dist, new WarmInsertDeleteMin(keys, 0));
+				run("warmInsertDeleteMin.pooled", n, dist, new WarmInsertDeleteMin(keys, 1024));
+				run("warmDecreaseKey", n, dist, new WarmDecreaseKey(keys));
+				run("payload.valued", n, dist, new Payload(keys, true));
+				run("payload.sideMap", n, dist, new Payload(keys, false));
+				run("relax.byId", n, dist, new Relax(keys, true));
+				run("relax.sideMap", n, dist, new Relax(keys, false));
+				run("topK.offer", n, dist, new TopK(keys, TopK.OFFER));
+				run("topK.offer.pooled", n, dist, new TopK(keys, TopK.POOLED));
+				run("topK.insertTrim", n, dist, new TopK(keys, TopK.INSERT_TRIM));
+				run("snapshot.write", n, dist, new Snapshot(keys, Snapshot.WRITE));
+				run("snapshot.read", n, dist, new Snapshot(keys, Snapshot.READ));
+				run("snapshot.reinsert", n, dist, new Snapshot(keys, Snapshot.REINSERT));
+			}
+		}
+	}
+
+	/**
+	 * protected static void run(String benchmark, int n, KeyDistribution dist,
+	 * BenchmarkHarness.Workload workload)
+	 *
+	 * measures the workload if it passes bench.filter
+	 */
+	protected static void run(String benchmark, int n, KeyDistribution dist, BenchmarkHarness.Workload workload) {
+		String name = String.format("FibonacciHeap.%s n=%d %s", benchmark, n, dist);
+		if (BenchmarkHarness.selected(name)) {
+			BenchmarkHarness.measure(name, workload);
+		}
+	}
+
+	/**
+	 * protected static FibonacciHeap.HeapNode[] fill(FibonacciHeap heap, int[]
+	 * keys)
+	 *
+	 * inserts all the keys and returns the created nodes
+	 */
+	protected static FibonacciHeap.HeapNode[] fill(FibonacciHeap heap, int[] keys) {
+		FibonacciHeap.HeapNode[] nodes = new FibonacciHeap.HeapNode[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			nodes[i] = heap.insert(keys[i]);
+		}
+		return nodes;
+	}
+
+	/**
+	 * protected static FibonacciHeap.HeapNode[] consolidated(FibonacciHeap heap,
+	 * int[] keys)
+	 *
+	 * fills the heap with the keys and one extra smaller key, then deletes the
+	 * extra key so the heap is consolidated into O(log n) trees
+	 */
+	protected static FibonacciHeap.HeapNode[] consolidated(FibonacciHeap heap, int[] keys) {
+		FibonacciHeap.HeapNode[] nodes = fill(heap, keys);
+		heap.insert(Integer.MIN_VALUE);
+		heap.deleteMin();
+		return nodes;
+	}
+
+	/**
+	 * protected static void shuffle(FibonacciHeap.HeapNode[] nodes, Random rand)
+	 *
+	 * Fisher-Yates shuffle of the nodes
+	 */
+	protected static void shuffle(FibonacciHeap.HeapNode[] nodes, Random rand) {
+		for (int i = nodes.length - 1; i > 0; i--) {
+			int j = rand.nextInt(i + 1);
+			FibonacciHeap.HeapNode temp = nodes[i];
+			nodes[i] = nodes[j];
+			nodes[j] = temp;
+		}
+	}
+
+	// n inserts into an empty heap
+	static class Insert implements BenchmarkHarness.Workload {
+		final int[] keys;
+		FibonacciHeap heap;
+
+		Insert(int[] keys) {
+			this.keys = keys;
+		}
+
+		public void setup() {
+			heap = new FibonacciHeap();
+		}
+
+		public long run() {
+			for (int key : keys) {
+				heap.insert(key);
+			}
+			return keys.length;
+		}
+	}
+
+	// loads the keys and runs the first deleteMin, by n inserts, by insertAll, by
+	// insertAllSorted (the sorting is not timed) or by n inserts with a parallel
+	// consolidate from 2^14 roots
+	static class Load implements BenchmarkHarness.Workload {
+		static final int LOOP = 0, BULK = 1, SORTED = 2, PARALLEL = 3;
+		final int[] keys;
+		final int mode;
+		FibonacciHeap heap;
+
+		Load(int[] keys, int mode) {
+			this.keys = mode == SORTED ? java.util.Arrays.stream(keys).sorted().toArray() : keys;
+			this.mode = mode;
+		}
+
+		public void setup() {
+			heap = new FibonacciHeap();
+			if (mode == PARALLEL) {
+				heap.setParallelConsolidateThreshold(1 << 14);
+			}
+		}
+
+		public long run() {
+			if (mode == LOOP || mode == PARALLEL) {
+				fill(heap, keys);
+			} else if (mode == BULK) {
+				heap.insertAll(keys);
+			} else {
+				heap.insertAllSorted(keys);
+			}
+			heap.deleteMin();
+			return keys.length;
+		}
+	}
+
+	// drains a freshly filled heap, the first deleteMin pays the full consolidate
+	static class DeleteMin implements BenchmarkHarness.Workload {
+		final int[] keys;
+		FibonacciHeap heap;
+
+		DeleteMin(int[] keys) {
+			this.keys = keys;
+		}
+
+		public void setup() {
+			heap = new FibonacciHeap();
+			fill(heap, keys);
+		}
+
+		public long run() {
+			int n = heap.size();
+			for (int i = 0; i < n; i++) {
+				BenchmarkHarness.consume(heap.findMin().getKey());
+				heap.deleteMin();
+			}
+			return n;
+		}
+	}
+
+	// empties a freshly filled heap in order into an array by findMin/deleteMin
+	// or by drainTo, or sorts the keys with FibonacciHeap.sort or Arrays.sort
+	static class Drain implements BenchmarkHarness.Workload {
+		static final int LOOP = 0, DRAIN_TO = 1, SORT = 2, ARRAYS_SORT = 3;
+		final int[] keys;
+		final int mode;
+		final int[] dst;
+		FibonacciHeap heap;
+
+		Drain(int[] keys, int mode) {
+			this.keys = keys;
+			this.mode = mode;
+			this.dst = new int[keys.length];
+		}
+
+		public void setup() {
+			if (mode == LOOP || mode == DRAIN_TO) {
+				heap = new FibonacciHeap();
+				fill(heap, keys);
+			} else {
+				System.arraycopy(keys, 0, dst, 0, keys.length);
+			}
+		}
+
+		public long run() {
+			if (mode == LOOP) {
+				for (int i = 0; !heap.isEmpty(); i++) {
+					dst[i] = heap.findMin().getKey();
+					heap.deleteMin();
+				}
+			} else if (mode == DRAIN_TO) {
+				heap.drainTo(dst, keys.length);
+			} else if (mode == SORT) {
+				FibonacciHeap.sort(dst);
+			} else {
+				java.util.Arrays.sort(dst);
+			}
+			BenchmarkHarness.consume(dst);
+			return keys.length;
+		}
+	}
+
+	// decreases every key of a consolidated heap once, in random order
+	static class DecreaseKey implements BenchmarkHarness.Workload {
+		final int[] keys;
+		final Random rand = new Random(SEED);
+		FibonacciHeap heap;
+		FibonacciHeap.HeapNode[] nodes;
+
+		DecreaseKey(int[] keys) {
+			this.keys = keys;
+		}
+
+		public void setup() {
+			heap = new FibonacciHeap();
+			nodes = consolidated(heap, keys);
+			shuffle(nodes, rand);
+		}
+
+		public long run() {
+			for (FibonacciHeap.HeapNode node : nodes) {
+				heap.decreaseKey(node, 1 + (node.getKey() & 7) * keys.length / 8);
+			}
+			return nodes.length;
+		}
+	}
+
+	// the same decreases as DecreaseKey in a single decreaseKeys batch
+	static class DecreaseKeys implements BenchmarkHarness.Workload {
+		final int[] keys;
+		final Random rand = new Random(SEED);
+		FibonacciHeap heap;
+		FibonacciHeap.HeapNode[] nodes;
+		int[] deltas;
+
+		DecreaseKeys(int[] keys) {
+			this.keys = keys;
+		}
+
+		public void setup() {
+			heap = new FibonacciHeap();
+			nodes = consolidated(heap, keys);
+			shuffle(nodes, rand);
+			deltas = new int[nodes.length];
+			for (int i = 0; i < nodes.length; i++) {
+				deltas[i] = 1 + (nodes[i].getKey() & 7) * keys.length / 8;
+			}
+		}
+
+		public long run() {
+			heap.decreaseKeys(nodes, deltas);
+			return nodes.length;
+		}
+	}
+
+	// increases every key of a consolidated heap once, in random order, by
+	// increaseKey or by delete and an insert of the new key
+	static class IncreaseKey implements BenchmarkHarness.Workload {
+		final int[] keys;
+		final boolean deleteInsert;
+		final Random rand = new Random(SEED);
+		FibonacciHeap heap;
+		FibonacciHeap.HeapNode[] nodes;
+
+		IncreaseKey(int[] keys, boolean deleteInsert) {
+			this.keys = keys;
+			this.deleteInsert = deleteInsert;
+		}
+
+		public void setup() {
+			heap = new FibonacciHeap();
+			nodes = consolidated(heap, keys);
+			shuffle(nodes, rand);
+		}
+
+		public long run() {
+			for (int i = 0; i < nodes.length; i++) {
+				FibonacciHeap.HeapNode node = nodes[i];
+				int delta = 1 + (node.getKey() & 7) * keys.length / 8;
+				if (deleteInsert) {
+					heap.delete(node);
+					nodes[i] = heap.insert(node.getKey() + delta);
+				} else {
+					heap.increaseKey(node, delta);
+				}
+			}
+			return nodes.length;
+		}
+	}
+
+	// deletes half of the nodes of a consolidated heap, in random order, eagerly
+	// or with lazy deletion
+	static class Delete implements BenchmarkHarness.Workload {
+		final int[] keys;
+		final double purgeFraction;
+		final Random rand = new Random(SEED);
+		FibonacciHeap heap;
+		FibonacciHeap.HeapNode[] nodes;
+
+		Delete(int[] keys, double purgeFraction) {
+			this.keys = keys;
+			this.purgeFraction = purgeFraction;
+		}
+
+		public void setup() {
+			heap = new FibonacciHeap();
+			heap.setLazyDeletion(purgeFraction);
+			nodes = consolidated(heap, keys);
+			shuffle(nodes, rand);
+		}
+
+		public long run() {
+			int count = nodes.length / 2;
+			for (int i = 0; i < count; i++) {
+				heap.delete(nodes[i]);
+			}
+			return count;
+		}
+	}
+
+	// melds up to 1024 heaps sharing the keys into one
+	static class Meld implements BenchmarkHarness.Workload {
+		final int[] keys;
+		final FibonacciHeap[] heaps;
+
+		Meld(int[] keys) {
+			this.keys = keys;
+			this.heaps = new FibonacciHeap[Math.min(keys.length, 1024)];
+		}
+
+		public void setup() {
+			for (int i = 0; i < heaps.length; i++) {
+				heaps[i] = new FibonacciHeap();
+			}
+			for (int i = 0; i < keys.length; i++) {
+				heaps[i % heaps.length].insert(keys[i]);
+			}
+		}
+
+		public long run() {
+			FibonacciHeap heap = heaps[0];
+			for (int i = 1; i < heaps.length; i++) {
+				heap.meld(heaps[i]);
+			}
+			BenchmarkHarness.consume(heap.size());
+			return heaps.length - 1;
+		}
+	}
+
+	// countersRep on a heap of n singleton roots or on a consolidated heap
+	static class CountersRep implements BenchmarkHarness.Workload {
+		final int[] keys;
+		final boolean consolidate;
+		final int repetitions;
+		FibonacciHeap heap;
+
+		CountersRep(int[] keys, boolean consolidate) {
+			this.keys = keys;
+			this.consolidate = consolidate;
+			this.repetitions = consolidate ? 1000 : Math.max(1, 1_000_000 / keys.length);
+		}
+
+		public void setup() {
+			if (heap == null) {
+				heap = new FibonacciHeap();
+				if (consolidate) {
+					consolidated(heap, keys);
+				} else {
+					fill(heap, keys);
+				}
+			}
+		}
+
+		public long run() {
+			for (int i = 0; i < repetitions; i++) {
+				BenchmarkHarness.consume(heap.countersRep());
+			}
+			return repetitions;
+		}
+	}
+
+	// kMin with k = min(100, size) on a single binomial tree of the largest power of
+	// two <= n keys
+	static class KMin implements BenchmarkHarness.Workload {
+		final int[] keys;
+		final int k;
+		FibonacciHeap heap;
+
+		KMin(int[] keys) {
+			this.keys = java.util.Arrays.copyOf(keys, Integer.highestOneBit(keys.length));
+			this.k = Math.min(100, this.keys.length);
+		}
+
+		public void setup() {
+			if (heap == null) {
+				heap = new FibonacciHeap();
+				consolidated(heap, keys);
+			}
+		}
+
+		public long run() {
+			for (int i = 0; i < 100; i++) {
+				BenchmarkHarness.consume(FibonacciHeap.kMin(heap, k));
+			}
+			return 100;
+		}
+	}
+
+	// peekK with k = min(100, size) into a reused array, on a consolidated heap
+	static class PeekK implements BenchmarkHarness.Workload {
+		final int[] keys;
+		final int[] dst;
+		FibonacciHeap heap;
+
+		PeekK(int[] keys) {
+			this.keys = keys;
+			this.dst = new int[Math.min(100, keys.length)];
+		}
+
+		public void setup() {
+			if (heap == null) {
+				heap = new FibonacciHeap();
+				consolidated(heap, keys);
+			}
+		}
+
+		public long run() {
+			for (int i = 0; i < 100; i++) {
+				BenchmarkHarness.consume(heap.peekK(dst.length, dst));
+			}
+			return 100;
+		}
+	}
+
+	// steady state of a size-n heap: one insert and one deleteMin per operation,
+	// optionally with a node pool
+	static class WarmInsertDeleteMin implements BenchmarkHarness.Workload {
+		final int[] keys;
+		final int poolCapacity;
+		final Random rand = new Random(SEED);
+		FibonacciHeap heap;
+
+		WarmInsertDeleteMin(int[] keys, int poolCapacity) {
+			this.keys = keys;
+			this.poolCapacity = poolCapacity;
+		}
+
+		public void setup() {
+			if (heap == null) {
+				heap = poolCapacity > 0 ? new FibonacciHeap(poolCapacity) : new FibonacciHeap();
+				consolidated(heap, keys);
+			}
+		}
+
+		public long run() {
+			int bound = 4 * keys.length;
+			for (int i = 0; i < 100_000; i++) {
+				heap.insert(heap.findMin().getKey() + rand.nextInt(bound));
+				heap.deleteMin();
+			}
+			return 100_000;
+		}
+	}
+
+	// steady state of a size-n heap: small decreaseKey on a random node
+	static class WarmDecreaseKey implements BenchmarkHarness.Workload {
+		final int[] keys;
+		final Random rand = new Random(SEED);
+		FibonacciHeap heap;
+		FibonacciHeap.HeapNode[] nodes;
+
+		WarmDecreaseKey(int[] keys) {
+			this.keys = keys;
+		}
+
+		public void setup() {
+			if (heap == null) {
+				heap = new FibonacciHeap();
+				nodes = consolidated(heap, keys);
+			}
+		}
+
+		public long run() {
+			for (int i = 0; i < 100_000; i++) {
+				heap.decreaseKey(nodes[rand.nextInt(nodes.length)], 1 + rand.nextInt(8));
+			}
+			return 100_000;
+		}
+	}
+
+	// inserts n keys with a payload each and drains them reading the payloads,
+	// from a ValuedFibonacciHeap or from a FibonacciHeap plus a HashMap from node
+	// to payload
+	static class Payload implements BenchmarkHarness.Workload {
+		final int[] keys;
+		final boolean valued;
+		final Integer[] payloads;
+
+		Payload(int[] keys, boolean valued) {
+			this.keys = keys;
+			this.valued = valued;
+			this.payloads = new Integer[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				payloads[i] = i;
+			}
+		}
+
+		public void setup() {
+		}
+
+		public long run() {
+			if (valued) {
+				ValuedFibonacciHeap<Integer> heap = new ValuedFibonacciHeap<>();
+				for (int i = 0; i < keys.length; i++) {
+					heap.insert(keys[i], payloads[i]);
+				}
+				while (!heap.isEmpty()) {
+					BenchmarkHarness.consume(heap.deleteMinValue());
+				}
+			} else {
+				FibonacciHeap heap = new FibonacciHeap();
+				Map<FibonacciHeap.HeapNode, Integer> values = new HashMap<>();
+				for (int i = 0; i < keys.length; i++) {
+					values.put(heap.insert(keys[i]), payloads[i]);
+				}
+				while (!heap.isEmpty()) {
+					BenchmarkHarness.consume(values.remove(heap.findMin()));
+					heap.deleteMin();
+				}
+			}
+			return 2L * keys.length;
+		}
+	}
+
+	// Dijkstra-like relaxing: upserts every id with its key, then 4n upserts of
+	// random ids to random smaller keys, through the id index or through a
+	// HashMap from id to node
+	static class Relax implements BenchmarkHarness.Workload {
+		final int[] keys;
+		final boolean byId;
+		final long[] ids;
+		final int[] newKeys;
+
+		Relax(int[] keys, boolean byId) {
+			this.keys = keys;
+			this.byId = byId;
+			Random rand = new Random(SEED);
+			ids = new long[4 * keys.length];
+			newKeys = new int[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				int id = rand.nextInt(keys.length);
+				ids[i] = id;
+				newKeys[i] = keys[id] - rand.nextInt(1 << 20);
+			}
+		}
+
+		public void setup() {
+		}
+
+		public long run() {
+			FibonacciHeap heap = new FibonacciHeap();
+			if (byId) {
+				for (int i = 0; i < keys.length; i++) {
+					heap.upsert(i, keys[i]);
+				}
+				for (int i = 0; i < ids.length; i++) {
+					heap.upsert(ids[i], newKeys[i]);
+				}
+			} else {
+				Map<Long, FibonacciHeap.HeapNode> nodes = new HashMap<>();
+				for (int i = 0; i < keys.length; i++) {
+					nodes.put((long) i, heap.insert(keys[i]));
+				}
+				for (int i = 0; i < ids.length; i++) {
+					FibonacciHeap.HeapNode node = nodes.get(ids[i]);
+					if (newKeys[i] < node.getKey()) {
+						heap.decreaseKey(node, node.getKey() - newKeys[i]);
+					}
+				}
+			}
+			BenchmarkHarness.consume(heap.findMin().getKey());
+			return keys.length + ids.length;
+		}
+	}
+
+	// keeps the 100 largest of the keys by offer on a bounded heap, the same with
+	// a node pool, or by insert followed by a deleteMin when over 100
+	static class TopK implements BenchmarkHarness.Workload {
+		static final int OFFER = 0, POOLED = 1, INSERT_TRIM = 2;
+		static final int K = 100;
+		final int[] keys;
+		final int mode;
+		FibonacciHeap heap;
+
+		TopK(int[] keys, int mode) {
+			this.keys = keys;
+			this.mode = mode;
+		}
+
+		public void setup() {
+			heap = mode == POOLED ? new FibonacciHeap(16) : new FibonacciHeap();
+			if (mode != INSERT_TRIM) {
+				heap.setCapacity(K);
+			}
+		}
+
+		public long run() {
+			if (mode == INSERT_TRIM) {
+				for (int key : keys) {
+					heap.insert(key);
+					if (heap.size() > K) {
+						heap.deleteMin();
+					}
+				}
+			} else {
+				for (int key : keys) {
+					heap.offer(key);
+				}
+			}
+			BenchmarkHarness.consume(heap.findMin().getKey());
+			return keys.length;
+		}
+	}
+
+	// saves a consolidated heap with writeTo, restores it with readFrom, or
+	// restores it from the plain keys by insertAll and one deleteMin
+	static class Snapshot implements BenchmarkHarness.Workload {
+		static final int WRITE = 0, READ = 1, REINSERT = 2;
+		final int[] keys;
+		final int mode;
+		final FibonacciHeap heap = new FibonacciHeap();
+		final byte[] bytes;
+
+		Snapshot(int[] keys, int mode) {
+			this.keys = keys;
+			this.mode = mode;
+			consolidated(heap, keys);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try {
+				heap.writeTo(Channels.newChannel(out));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			bytes = out.toByteArray();
+		}
+
+		public void setup() {
+		}
+
+		public long run() {
+			try {
+				if (mode == WRITE) {
+					ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+					heap.writeTo(Channels.newChannel(out));
+					BenchmarkHarness.consume(out.size());
+				} else if (mode == READ) {
+					FibonacciHeap copy = FibonacciHeap.readFrom(Channels.newChannel(new ByteArrayInputStream(bytes)));
+					BenchmarkHarness.consume(copy.findMin().getKey());
+				} else {
+					FibonacciHeap copy = new FibonacciHeap();
+					copy.insertAll(keys);
+					copy.insert(Integer.MIN_VALUE);
+					copy.deleteMin();
+					BenchmarkHarness.consume(copy.findMin().getKey());
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return keys.length;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * JournalBenchmark
+ *
+ * The cost of journaling: n inserts with ids followed by n deleteMins on a
+ * JournaledFibonacciHeap that forces its log every bench.syncEvery records
+ * (default 1,16,256,0 - 0 never forces), and on an unjournaled FibonacciHeap.
+ * The log lives in a fresh directory under bench.dir (default the temporary
+ * directory), which should be on the disk being measured. The recover
+ * benchmark reopens a heap of n records, one operation per record.
+ */
+public class JournalBenchmark {
+	public static void main(String[] args) throws IOException {
+		Path base = Path.of(System.getProperty("bench.dir", System.getProperty("java.io.tmpdir")));
+		Path root = Files.createTempDirectory(base, "journal");
+		for (int n : BenchmarkHarness.intList("bench.sizes", "10000,100000")) {
+			for (KeyDistribution dist : KeyDistribution.fromProperty()) {
+				int[] keys = dist.keys(n, 42);
+				run("plain", n, dist, new Journal(keys, root, -1));
+				for (int syncEvery : BenchmarkHarness.intList("bench.syncEvery", "1,16,256,0")) {
+					run("journaled.syncEvery=" + syncEvery, n, dist, new Journal(keys, root, syncEvery));
+				}
+				run("recover", n, dist, new Recover(keys, root));
+			}
+		}
+	}
+
+	/**
+	 * protected static void run(String benchmark, int n, KeyDistribution dist,
+	 * BenchmarkHarness.Workload workload)
+	 *
+	 * measures the workload if it passes bench.filter
+	 */
+	protected static void run(String benchmark, int n, KeyDistribution dist, BenchmarkHarness.Workload workload) {
+		String name = String.format("Journal.%s n=%d %s", benchmark, n, dist);
+		if (BenchmarkHarness.selected(name)) {
+			BenchmarkHarness.measure(name, workload);
+		}
+	}
+
+	/**
+	 * protected static Path emptyDirectory(Path root, String name)
+	 *
+	 * returns the directory root/name after deleting its files
+	 */
+	protected static Path emptyDirectory(Path root, String name) {
+		Path dir = root.resolve(name);
+		try {
+			Files.createDirectories(dir);
+			try (Stream<Path> files = Files.list(dir)) {
+				for (Path file : (Iterable<Path>) files::iterator) {
+					Files.delete(file);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return dir;
+	}
+
+	// n inserts with ids and n deleteMins, journaled unless syncEvery is negative
+	static class Journal implements BenchmarkHarness.Workload {
+		final int[] keys;
+		final Path root;
+		final int syncEvery;
+		Path dir;
+
+		Journal(int[] keys, Path root, int syncEvery) {
+			this.keys = keys;
+			this.root = root;
+			this.syncEvery = syncEvery;
+		}
+
+		public void setup() {
+			dir = emptyDirectory(root, "journal");
+		}
+
+		public long run() {
+			try {
+				if (syncEvery < 0) {
+					FibonacciHeap heap = new FibonacciHeap();
+					for (int i = 0; i < keys.length; i++) {
+						heap.insertWithId(i, keys[i]);
+					}
+					while (!heap.isEmpty()) {
+						heap.deleteMin();
+					}
+				} else {
+					try (JournaledFibonacciHeap heap = JournaledFibonacciHeap.open(dir, syncEvery)) {
+						for (int i = 0; i < keys.length; i++) {
+							heap.insert(i, keys[i]);
+						}
+						while (heap.deleteMin() != null) {
+						}
+					}
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return 2L * keys.length;
+		}
+	}
+
+	// reopens a heap whose log holds n inserts and n/2 deleteMins
+	static class Recover implements BenchmarkHarness.Workload {
+		final int[] keys;
+		final Path dir;
+
+		Recover(int[] keys, Path root) {
+			this.keys = keys;
+			this.dir = emptyDirectory(root, "recover");
+			try (JournaledFibonacciHeap heap = JournaledFibonacciHeap.open(dir, 0)) {
+				for (int i = 0; i < keys.length; i++) {
+					heap.insert(i, keys[i]);
+				}
+				for (int i = 0; i < keys.length / 2; i++) {
+					heap.deleteMin();
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		public void setup() {
+		}
+
+		public long run() {
+			try (JournaledFibonacciHeap heap = JournaledFibonacciHeap.open(dir, 0)) {
+				BenchmarkHarness.consume(heap.size());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return keys.length + keys.length / 2;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+import java.util.Random;
+
+/**
+ * KeyDistribution
+ *
+ * The key sequences the heap benchmarks are parameterized with.
+ */
+public enum KeyDistribution {
+	/** uniformly random keys in [0, 4n) */
+	RANDOM,
+	/** 0, 1, ..., n-1 */
+	ASCENDING,
+	/** n-1, n-2, ..., 0 */
+	DESCENDING,
+	/** random keys out of only 16 distinct values */
+	DUPLICATES;
+
+	/**
+	 * public int[] keys(int n, long seed)
+	 *
+	 * returns n keys following the distribution
+	 *
+	 * Time complexity:
+	 *
+	 * O(n)
+	 */
+	public int[] keys(int n, long seed) {
+		Random rand = new Random(seed);
+		int[] keys = new int[n];
+		for (int i = 0; i < n; i++) {
+			switch (this) {
+			case RANDOM:
+				keys[i] = rand.nextInt(4 * n);
+				break;
+			case ASCENDING:
+				keys[i] = i;
+				break;
+			case DESCENDING:
+				keys[i] = n - 1 - i;
+				break;
+			default:
+				keys[i] = rand.nextInt(16);
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * public static KeyDistribution[] fromProperty()
+	 *
+	 * returns the distributions listed in bench.distributions, or all of them
+	 */
+	public static KeyDistribution[] fromProperty() {
+		String property = System.getProperty("bench.distributions");
+		if (property == null) {
+			return values();
+		}
+		String[] names = property.split(",");
+		KeyDistribution[] res = new KeyDistribution[names.length];
+		for (int i = 0; i < names.length; i++) {
+			res[i] = valueOf(names[i].trim().toUpperCase());
+		}
+		return res;
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ * MinMaxHeapBenchmark
+ *
+ * MinMaxFibonacciHeap against the two mirrored heaps it replaces: a min heap
+ * and a max heap over the negated keys whose entries point at their twins. The
+ * workload inserts n keys, decreases every other key by one, then deletes the
+ * minimum and the maximum in turn until the heap is empty.
+ */
+public class MinMaxHeapBenchmark {
+	public static void main(String[] args) {
+		for (int n : BenchmarkHarness.intList("bench.sizes", "1000,100000,1000000")) {
+			for (KeyDistribution dist : KeyDistribution.fromProperty()) {
+				int[] keys = dist.keys(n, 42);
+				run("minMax", n, dist, new Shed(keys, false));
+				run("mirrored", n, dist, new Shed(keys, true));
+			}
+		}
+	}
+
+	/**
+	 * protected static void run(String benchmark, int n, KeyDistribution dist,
+	 * BenchmarkHarness.Workload workload)
+	 *
+	 * measures the workload if it passes bench.filter
+	 */
+	protected static void run(String benchmark, int n, KeyDistribution dist, BenchmarkHarness.Workload workload) {
+		String name = String.format("MinMaxHeap.%s n=%d %s", benchmark, n, dist);
+		if (BenchmarkHarness.selected(name)) {
+			BenchmarkHarness.measure(name, workload);
+		}
+	}
+
+	// n inserts, n/2 decreaseKeys, n deletes from alternating ends
+	static class Shed implements BenchmarkHarness.Workload {
+		final int[] keys;
+		final boolean mirrored;
+
+		Shed(int[] keys, boolean mirrored) {
+			this.keys = keys;
+			this.mirrored = mirrored;
+		}
+
+		public void setup() {
+		}
+
+		public long run() {
+			int n = keys.length;
+			if (mirrored) {
+				runMirrored();
+			} else {
+				MinMaxFibonacciHeap heap = new MinMaxFibonacciHeap();
+				MinMaxFibonacciHeap.MinMaxNode[] nodes = new MinMaxFibonacciHeap.MinMaxNode[n];
+				for (int i = 0; i < n; i++) {
+					nodes[i] = heap.insert(keys[i]);
+				}
+				for (int i = 0; i < n; i += 2) {
+					heap.decreaseKey(nodes[i], 1);
+				}
+				for (int i = 0; !heap.isEmpty(); i++) {
+					if ((i & 1) == 0) {
+						heap.deleteMin();
+					} else {
+						heap.deleteMax();
+					}
+				}
+			}
+			return n + (n + 1) / 2 + n;
+		}
+
+		// the twin of an entry is its value, a decreaseKey is an increase in the
+		// max heap and so a delete and an insert there
+		void runMirrored() {
+			int n = keys.length;
+			ValuedFibonacciHeap<ValuedFibonacciHeap.Entry<?>> minHeap = new ValuedFibonacciHeap<>();
+			ValuedFibonacciHeap<ValuedFibonacciHeap.Entry<?>> maxHeap = new ValuedFibonacciHeap<>();
+			@SuppressWarnings({ "unchecked", "rawtypes" })
+			ValuedFibonacciHeap.Entry<ValuedFibonacciHeap.Entry<?>>[] nodes = new ValuedFibonacciHeap.Entry[n];
+			for (int i = 0; i < n; i++) {
+				nodes[i] = minHeap.insert(keys[i]);
+				ValuedFibonacciHeap.Entry<ValuedFibonacciHeap.Entry<?>> twin = maxHeap.insert(-keys[i], nodes[i]);
+				nodes[i].setValue(twin);
+			}
+			for (int i = 0; i < n; i += 2) {
+				minHeap.decreaseKey(nodes[i], 1);
+				maxHeap.delete(nodes[i].getValue());
+				ValuedFibonacciHeap.Entry<ValuedFibonacciHeap.Entry<?>> twin = maxHeap.insert(-nodes[i].getKey(),
+						nodes[i]);
+				nodes[i].setValue(twin);
+			}
+			for (int i = 0; !minHeap.isEmpty(); i++) {
+				ValuedFibonacciHeap<ValuedFibonacciHeap.Entry<?>> from = (i & 1) == 0 ? minHeap : maxHeap;
+				ValuedFibonacciHeap<ValuedFibonacciHeap.Entry<?>> other = from == minHeap ? maxHeap : minHeap;
+				ValuedFibonacciHeap.Entry<?> twin = from.deleteMinValue();
+				other.delete(twin);
+			}
+		}
+	}
+}
@@ -0,0 +1,113 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+
+/**
+ * PersistentHeapBenchmark
+ *
+ * PersistentHeap against FibonacciHeap: n inserts, n inserts followed by n
+ * deleteMins, and a writer that inserts n keys and deletes n/2 minimums while
+ * handing a snapshot to a reader every bench.snapshotEvery (default 1000)
+ * operations. A snapshot of a PersistentHeap is the current version, a
+ * snapshot of a FibonacciHeap is a copy through writeTo/readFrom.
+ */
+public class PersistentHeapBenchmark {
+	protected static final int SNAPSHOT_EVERY = Integer.getInteger("bench.snapshotEvery", 1000);
+
+	public static void main(String[] args) {
+		for (int n : BenchmarkHarness.intList("bench.sizes", "1000,100000,1000000")) {
+			for (KeyDistribution dist : KeyDistribution.fromProperty()) {
+				int[] keys = dist.keys(n, 42);
+				run("insert.persistent", n, dist, new Mixed(keys, true, false, false));
+				run("insert.fibonacci", n, dist, new Mixed(keys, false, false, false));
+				run("insertDeleteMin.persistent", n, dist, new Mixed(keys, true, true, false));
+				run("insertDeleteMin.fibonacci", n, dist, new Mixed(keys, false, true, false));
+				run("snapshots.persistent", n, dist, new Mixed(keys, true, true, true));
+				run("snapshots.fibonacciCopy", n, dist, new Mixed(keys, false, true, true));
+			}
+		}
+	}
+
+	/**
+	 * protected static void run(String benchmark, int n, KeyDistribution dist,
+	 * BenchmarkHarness.Workload workload)
+	 *
+	 * measures the workload if it passes bench.filter
+	 */
+	protected static void run(String benchmark, int n, KeyDistribution dist, BenchmarkHarness.Workload workload) {
+		String name = String.format("PersistentHeap.%s n=%d %s", benchmark, n, dist);
+		if (BenchmarkHarness.selected(name)) {
+			BenchmarkHarness.measure(name, workload);
+		}
+	}
+
+	// n inserts, then n deleteMins or, with snapshots, n/2 of them, and a
+	// snapshot every SNAPSHOT_EVERY operations
+	static class Mixed implements BenchmarkHarness.Workload {
+		final int[] keys;
+		final boolean persistent;
+		final boolean delete;
+		final boolean snapshots;
+
+		Mixed(int[] keys, boolean persistent, boolean delete, boolean snapshots) {
+			this.keys = keys;
+			this.persistent = persistent;
+			this.delete = delete;
+			this.snapshots = snapshots;
+		}
+
+		public void setup() {
+		}
+
+		public long run() {
+			int deletes = !delete ? 0 : snapshots ? keys.length / 2 : keys.length;
+			long ops = 0;
+			if (persistent) {
+				PersistentHeap heap = PersistentHeap.empty();
+				PersistentHeap snapshot = heap;
+				for (int key : keys) {
+					heap = heap.insert(key);
+					if (snapshots && ++ops % SNAPSHOT_EVERY == 0) {
+						snapshot = heap;
+					}
+				}
+				for (int i = 0; i < deletes; i++) {
+					heap = heap.deleteMin();
+					if (snapshots && ++ops % SNAPSHOT_EVERY == 0) {
+						snapshot = heap;
+					}
+				}
+				BenchmarkHarness.consume(heap.size() + snapshot.size());
+			} else {
+				FibonacciHeap heap = new FibonacciHeap();
+				FibonacciHeap snapshot = heap;
+				for (int key : keys) {
+					heap.insert(key);
+					if (snapshots && ++ops % SNAPSHOT_EVERY == 0) {
+						snapshot = copy(heap);
+					}
+				}
+				for (int i = 0; i < deletes; i++) {
+					heap.deleteMin();
+					if (snapshots && ++ops % SNAPSHOT_EVERY == 0) {
+						snapshot = copy(heap);
+					}
+				}
+				BenchmarkHarness.consume(heap.size() + snapshot.size());
+			}
+			return keys.length + deletes;
+		}
+
+		static FibonacciHeap copy(FibonacciHeap heap) {
+			try {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				heap.writeTo(Channels.newChannel(out));
+				return FibonacciHeap.readFrom(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,190 @@
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TimerBenchmark
+ *
+ * Timeouts that never fire: n timeouts are scheduled an hour or more ahead,
+ * then every tenth is rescheduled to a later deadline and the others are
+ * cancelled, on a TimerScheduler, a DelayQueue (remove searches its array, a
+ * reschedule is a remove and a put) and a ScheduledThreadPoolExecutor that
+ * removes cancelled tasks (a reschedule is a cancel and a schedule). The
+ * default sizes stay small because DelayQueue is quadratic. The expire
+ * benchmarks schedule n timeouts due within a millisecond and wait until all
+ * of them ran, DelayQueue with a consumer thread taking them.
+ */
+public class TimerBenchmark {
+	protected static final int FIBONACCI = 0, DELAY_QUEUE = 1, EXECUTOR = 2;
+	protected static final long HOUR = TimeUnit.HOURS.toNanos(1);
+
+	public static void main(String[] args) {
+		for (int n : BenchmarkHarness.intList("bench.sizes", "1000,10000")) {
+			long[] delays = new long[n];
+			Random rand = new Random(42);
+			for (int i = 0; i < n; i++) {
+				delays[i] = HOUR + rand.nextInt(1 << 30);
+			}
+			run("timerScheduler", n, new Churn(delays, FIBONACCI));
+			run("delayQueue", n, new Churn(delays, DELAY_QUEUE));
+			run("scheduledThreadPoolExecutor", n, new Churn(delays, EXECUTOR));
+			run("expire.timerScheduler", n, new Expire(n, FIBONACCI));
+			run("expire.delayQueue", n, new Expire(n, DELAY_QUEUE));
+			run("expire.scheduledThreadPoolExecutor", n, new Expire(n, EXECUTOR));
+		}
+	}
+
+	/**
+	 * protected static void run(String benchmark, int n, BenchmarkHarness.Workload
+	 * workload)
+	 *
+	 * measures the workload if it passes bench.filter
+	 */
+	protected static void run(String benchmark, int n, BenchmarkHarness.Workload workload) {
+		String name = String.format("Timer.%s n=%d", benchmark, n);
+		if (BenchmarkHarness.selected(name)) {
+			BenchmarkHarness.measure(name, workload);
+		}
+	}
+
+	// n schedules, n/10 reschedules and the other cancels
+	static class Churn implements BenchmarkHarness.Workload {
+		static final Runnable TASK = () -> {
+		};
+		final long[] delays;
+		final int mode;
+
+		Churn(long[] delays, int mode) {
+			this.delays = delays;
+			this.mode = mode;
+		}
+
+		public void setup() {
+		}
+
+		public long run() {
+			int n = delays.length;
+			if (mode == FIBONACCI) {
+				try (TimerScheduler timer = new TimerScheduler()) {
+					TimerScheduler.Timeout[] timeouts = new TimerScheduler.Timeout[n];
+					for (int i = 0; i < n; i++) {
+						timeouts[i] = timer.schedule(TASK, delays[i], TimeUnit.NANOSECONDS);
+					}
+					for (int i = 0; i < n; i++) {
+						if (i % 10 == 0) {
+							timer.reschedule(timeouts[i], delays[i] + HOUR, TimeUnit.NANOSECONDS);
+						} else {
+							timer.cancel(timeouts[i]);
+						}
+					}
+				}
+			} else if (mode == DELAY_QUEUE) {
+				DelayQueue<Timeout> queue = new DelayQueue<>();
+				Timeout[] timeouts = new Timeout[n];
+				for (int i = 0; i < n; i++) {
+					timeouts[i] = new Timeout(delays[i]);
+					queue.put(timeouts[i]);
+				}
+				for (int i = 0; i < n; i++) {
+					queue.remove(timeouts[i]);
+					if (i % 10 == 0) {
+						queue.put(new Timeout(delays[i] + HOUR));
+					}
+				}
+				BenchmarkHarness.consume(queue.size());
+			} else {
+				ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+				executor.setRemoveOnCancelPolicy(true);
+				ScheduledFuture<?>[] futures = new ScheduledFuture<?>[n];
+				for (int i = 0; i < n; i++) {
+					futures[i] = executor.schedule(TASK, delays[i], TimeUnit.NANOSECONDS);
+				}
+				for (int i = 0; i < n; i++) {
+					futures[i].cancel(false);
+					if (i % 10 == 0) {
+						futures[i] = executor.schedule(TASK, delays[i] + HOUR, TimeUnit.NANOSECONDS);
+					}
+				}
+				executor.shutdownNow();
+			}
+			return 2L * n;
+		}
+	}
+
+	// n timeouts due within a millisecond, until all of them ran
+	static class Expire implements BenchmarkHarness.Workload {
+		final int n;
+		final int mode;
+
+		Expire(int n, int mode) {
+			this.n = n;
+			this.mode = mode;
+		}
+
+		public void setup() {
+		}
+
+		public long run() {
+			CountDownLatch done = new CountDownLatch(n);
+			Runnable task = done::countDown;
+			try {
+				if (mode == FIBONACCI) {
+					try (TimerScheduler timer = new TimerScheduler()) {
+						for (int i = 0; i < n; i++) {
+							timer.schedule(task, i % 1000, TimeUnit.MICROSECONDS);
+						}
+						done.await();
+					}
+				} else if (mode == DELAY_QUEUE) {
+					DelayQueue<Timeout> queue = new DelayQueue<>();
+					Thread consumer = new Thread(() -> {
+						try {
+							for (int i = 0; i < n; i++) {
+								queue.take();
+								task.run();
+							}
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					});
+					consumer.start();
+					for (int i = 0; i < n; i++) {
+						queue.put(new Timeout(TimeUnit.MICROSECONDS.toNanos(i % 1000)));
+					}
+					done.await();
+				} else {
+					ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+					for (int i = 0; i < n; i++) {
+						executor.schedule(task, i % 1000, TimeUnit.MICROSECONDS);
+					}
+					done.await();
+					executor.shutdown();
+				}
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			return n;
+		}
+	}
+
+	// a DelayQueue element
+	static class Timeout implements Delayed {
+		final long deadline;
+
+		Timeout(long delay) {
+			this.deadline = System.nanoTime() + delay;
+		}
+
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		public int compareTo(Delayed other) {
+			return Long.compare(deadline, ((Timeout) other).deadline);
+		}
+	}
+}
@@ -0,0 +1,27 @@
+#!/bin/sh
+# Generates the primitive key specializations of FibonacciHeap from
+# PrimitiveFibonacciHeap.java.template into the repository root.
+#
+#   codegen/generate.sh          regenerate LongFibonacciHeap/DoubleFibonacciHeap
+#   codegen/generate.sh --check  fail if a generated file is out of date
+set -e
+dir=$(cd "$(dirname "$0")" && pwd)
+root=$(dirname "$dir")
+status=0
+for spec in Long:long Double:double; do
+	Type=${spec%%:*}
+	type=${spec##*:}
+	out="$root/${Type}FibonacciHeap.java"
+	tmp=$(mktemp)
+	sed -e "s/\\\$Type\\\$/$Type/g" -e "s/\\\$type\\\$/$type/g" "$dir/PrimitiveFibonacciHeap.java.template" > "$tmp"
+	if [ "$1" = "--check" ]; then
+		if ! cmp -s "$tmp" "$out"; then
+			echo "$out is out of date, run codegen/generate.sh" >&2
+			status=1
+		fi
+		rm -f "$tmp"
+	else
+		mv "$tmp" "$out"
+	fi
+done
+exit $status